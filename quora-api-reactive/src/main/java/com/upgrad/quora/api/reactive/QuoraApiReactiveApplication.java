@@ -0,0 +1,15 @@
+package com.upgrad.quora.api.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Launches the read-only API serving the lists of questions and answers and the user profiles on a
+ * non-blocking stack, next to quora-api which keeps serving every request that writes.
+ */
+@SpringBootApplication
+public class QuoraApiReactiveApplication {
+  public static void main(String[] args) {
+    SpringApplication.run(QuoraApiReactiveApplication.class, args);
+  }
+}
@@ -0,0 +1,42 @@
+package com.upgrad.quora.api.reactive.business;
+
+import com.upgrad.quora.api.reactive.dao.AnswerDao;
+import com.upgrad.quora.api.reactive.dao.QuestionDao;
+import com.upgrad.quora.api.reactive.snapshot.AnswerSnapshot;
+import com.upgrad.quora.service.exception.InvalidQuestionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+public class AnswerService {
+
+  @Autowired private AuthorizationService authorizationService;
+
+  @Autowired private QuestionDao questionDao;
+
+  @Autowired private AnswerDao answerDao;
+
+  /**
+   * Gets all the answers to a question once the access token and the question have been checked.
+   *
+   * @param questionId uuid of the question whose answers are to be fetched.
+   * @param accessToken access token of the user.
+   * @return the answers, read from the DB once subscribed to, or else the error
+   *     AuthorizationFailedException ATHR-001 or ATHR-002 if the token is not valid and
+   *     InvalidQuestionException QUES-001 if the question doesn't exist.
+   */
+  public Mono<Flux<AnswerSnapshot>> getAllAnswersToQuestion(
+      final String questionId, final String accessToken) {
+    return authorizationService
+        .authorize(accessToken, "User is signed out.Sign in first to get the answers")
+        .then(questionDao.getQuestionDate(questionId))
+        .switchIfEmpty(
+            Mono.error(
+                new InvalidQuestionException(
+                    "QUES-001",
+                    "The question with entered uuid whose details are to be seen does not exist")))
+        .map(questionDate -> answerDao.streamAllAnswersToQuestion(questionId, questionDate));
+  }
+}
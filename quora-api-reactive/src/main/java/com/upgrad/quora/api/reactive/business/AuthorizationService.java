@@ -0,0 +1,33 @@
+package com.upgrad.quora.api.reactive.business;
+
+import com.upgrad.quora.api.reactive.dao.UserAuthDao;
+import com.upgrad.quora.api.reactive.snapshot.UserAuthSnapshot;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Service
+public class AuthorizationService {
+
+  @Autowired private UserAuthDao userAuthDao;
+
+  /**
+   * Checks that the access token belongs to a session which has not been signed out of.
+   *
+   * @param accessToken access token of the user.
+   * @param signedOutMessage message of the error if the user has signed out, as in quora-api.
+   * @return the session, or else the error AuthorizationFailedException ATHR-001 if the user has
+   *     not signed in and ATHR-002 if the user has signed out.
+   */
+  public Mono<UserAuthSnapshot> authorize(final String accessToken, final String signedOutMessage) {
+    return userAuthDao
+        .getUserAuthByToken(accessToken)
+        .switchIfEmpty(Mono.error(AuthorizationFailedException.NOT_SIGNED_IN))
+        .flatMap(
+            userAuth ->
+                userAuth.getLogoutAt() != null
+                    ? Mono.error(new AuthorizationFailedException("ATHR-002", signedOutMessage))
+                    : Mono.just(userAuth));
+  }
+}
@@ -0,0 +1,33 @@
+package com.upgrad.quora.api.reactive.business;
+
+import com.upgrad.quora.api.reactive.dao.UserDao;
+import com.upgrad.quora.api.reactive.snapshot.UserSnapshot;
+import com.upgrad.quora.service.exception.UserNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Service
+public class CommonUserService {
+
+  @Autowired private AuthorizationService authorizationService;
+
+  @Autowired private UserDao userDao;
+
+  /**
+   * Gets the profile of a user.
+   *
+   * @param userId uuid of the user whose profile is to be fetched.
+   * @param accessToken access token of the user asking for the profile.
+   * @return the profile, or else the error AuthorizationFailedException ATHR-001 or ATHR-002 if
+   *     the token is not valid and UserNotFoundException USR-001 if the user doesn't exist.
+   */
+  public Mono<UserSnapshot> getUserById(final String userId, final String accessToken) {
+    return authorizationService
+        .authorize(accessToken, "User is signed out.Sign in first to get user details")
+        .then(userDao.getUserById(userId))
+        .switchIfEmpty(
+            Mono.error(
+                new UserNotFoundException("USR-001", "User with entered uuid does not exist")));
+  }
+}
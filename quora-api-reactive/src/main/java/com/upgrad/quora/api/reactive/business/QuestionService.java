@@ -0,0 +1,58 @@
+package com.upgrad.quora.api.reactive.business;
+
+import com.upgrad.quora.api.reactive.dao.QuestionDao;
+import com.upgrad.quora.api.reactive.dao.UserDao;
+import com.upgrad.quora.api.reactive.snapshot.QuestionSnapshot;
+import com.upgrad.quora.service.exception.UserNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+public class QuestionService {
+
+  @Autowired private AuthorizationService authorizationService;
+
+  @Autowired private QuestionDao questionDao;
+
+  @Autowired private UserDao userDao;
+
+  /**
+   * Gets all the questions once the access token has been checked.
+   *
+   * @param accessToken access token of the user.
+   * @return the questions, read from the DB once subscribed to, or else the error
+   *     AuthorizationFailedException ATHR-001 or ATHR-002 if the token is not valid.
+   */
+  public Mono<Flux<QuestionSnapshot>> getAllQuestions(final String accessToken) {
+    return authorizationService
+        .authorize(accessToken, "User is signed out.Sign in first to get all questions")
+        .map(userAuth -> questionDao.streamAllQuestions());
+  }
+
+  /**
+   * Gets all the questions posted by a user once the access token and the user have been checked.
+   *
+   * @param userId uuid of the user whose questions are to be fetched.
+   * @param accessToken access token of the user asking for the questions.
+   * @return the questions, read from the DB once subscribed to, or else the error
+   *     AuthorizationFailedException ATHR-001 or ATHR-002 if the token is not valid and
+   *     UserNotFoundException USR-001 if the user doesn't exist.
+   */
+  public Mono<Flux<QuestionSnapshot>> getAllQuestionsByUser(
+      final String userId, final String accessToken) {
+    return authorizationService
+        .authorize(
+            accessToken,
+            "User is signed out.Sign in first to get all questions posted by a specific user")
+        .then(userDao.userExists(userId))
+        .filter(exists -> exists)
+        .switchIfEmpty(
+            Mono.error(
+                new UserNotFoundException(
+                    "USR-001",
+                    "User with entered uuid whose question details are to be seen does not exist")))
+        .map(exists -> questionDao.streamAllQuestionsByUser(userId));
+  }
+}
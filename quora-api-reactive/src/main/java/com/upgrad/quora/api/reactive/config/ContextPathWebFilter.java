@@ -0,0 +1,31 @@
+package com.upgrad.quora.api.reactive.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves the endpoints under the same context path as quora-api, so that a proxy can route the
+ * reads of either API to this one without rewriting the paths. WebFlux has no setting of its own
+ * for the context path.
+ */
+@Component
+public class ContextPathWebFilter implements WebFilter {
+
+  @Value("${quora.reactive.context-path:/api}")
+  private String contextPath;
+
+  @Override
+  public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+    ServerHttpRequest request = exchange.getRequest();
+    if (!contextPath.isEmpty() && request.getURI().getPath().startsWith(contextPath + "/")) {
+      return chain.filter(
+          exchange.mutate().request(request.mutate().contextPath(contextPath).build()).build());
+    }
+    return chain.filter(exchange);
+  }
+}
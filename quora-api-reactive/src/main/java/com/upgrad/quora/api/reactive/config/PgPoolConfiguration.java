@@ -0,0 +1,39 @@
+package com.upgrad.quora.api.reactive.config;
+
+import io.vertx.core.Vertx;
+import io.vertx.pgclient.PgBuilder;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.PoolOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Declares the pool of non-blocking Postgres connections. The connections are driven by the event
+ * loop of a Vert.x instance of their own, so no thread is ever blocked waiting for the DB.
+ */
+@Configuration
+public class PgPoolConfiguration {
+
+  @Bean(destroyMethod = "close")
+  public Vertx vertx() {
+    return Vertx.vertx();
+  }
+
+  @Bean(destroyMethod = "close")
+  public Pool pgPool(
+      final Vertx vertx,
+      @Value("${quora.datasource.url:postgresql://localhost:5432/quora}") final String url,
+      @Value("${quora.datasource.username:postgres}") final String username,
+      @Value("${quora.datasource.password:}") final String password,
+      @Value("${quora.datasource.max-pool-size:10}") final int maxPoolSize) {
+    PgConnectOptions connectOptions =
+        PgConnectOptions.fromUri(url).setUser(username).setPassword(password);
+    return PgBuilder.pool()
+        .with(new PoolOptions().setMaxSize(maxPoolSize))
+        .connectingTo(connectOptions)
+        .using(vertx)
+        .build();
+  }
+}
@@ -0,0 +1,55 @@
+package com.upgrad.quora.api.reactive.controller;
+
+import com.upgrad.quora.api.reactive.business.AnswerService;
+import com.upgrad.quora.api.reactive.model.AnswerDetailsResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/")
+public class AnswerController {
+
+  @Autowired private AnswerService answerService;
+
+  @Autowired private JsonListWriter jsonListWriter;
+
+  /**
+   * Get all answers to the question.
+   *
+   * @param accessToken access token to authenticate user.
+   * @param accept Accept header, asking for newline delimited JSON instead of a JSON array if it
+   *     prefers application/x-ndjson.
+   * @param questionId to fetch all the answers for a question.
+   * @return AnswerDetailsResponse of every answer, streamed as they are read from the DB.
+   */
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/answer/all/{questionId}",
+      produces = {MediaType.APPLICATION_JSON_UTF8_VALUE, JsonListWriter.APPLICATION_NDJSON_VALUE})
+  public Mono<ResponseEntity<Flux<DataBuffer>>> getAllAnswersToQuestion(
+      @RequestHeader("authorization") final String accessToken,
+      @RequestHeader(value = "accept", required = false) final String accept,
+      @PathVariable("questionId") final String questionId) {
+    return answerService
+        .getAllAnswersToQuestion(questionId, accessToken)
+        .map(
+            answers ->
+                jsonListWriter.write(
+                    accept,
+                    answers,
+                    answer ->
+                        new AnswerDetailsResponse()
+                            .id(answer.getUuid())
+                            .questionContent(answer.getQuestionContent())
+                            .answerContent(answer.getAnswer())));
+  }
+}
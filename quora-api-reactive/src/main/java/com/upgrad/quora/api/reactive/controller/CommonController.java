@@ -0,0 +1,57 @@
+package com.upgrad.quora.api.reactive.controller;
+
+import com.upgrad.quora.api.reactive.business.CommonUserService;
+import com.upgrad.quora.api.reactive.model.UserDetailsResponse;
+import com.upgrad.quora.api.reactive.snapshot.UserSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/")
+public class CommonController {
+
+  @Autowired private CommonUserService commonUserService;
+
+  /**
+   * Get the user details provided the userId.
+   *
+   * @param accessToken Access token to authenticate the user who is requesting for user details.
+   * @param userId user id of the user whose details has to be fetched.
+   * @return the details of the user.
+   */
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/userprofile/{userId}",
+      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+  public Mono<ResponseEntity<UserDetailsResponse>> getProfile(
+      @RequestHeader("authorization") final String accessToken,
+      @PathVariable("userId") final String userId) {
+    return commonUserService
+        .getUserById(userId, accessToken)
+        .map(
+            user ->
+                new ResponseEntity<UserDetailsResponse>(
+                    toUserDetailsResponse(user), HttpStatus.OK));
+  }
+
+  private UserDetailsResponse toUserDetailsResponse(final UserSnapshot user) {
+    UserDetailsResponse userDetailsResponse = new UserDetailsResponse();
+    userDetailsResponse.setFirstName(user.getFirstName());
+    userDetailsResponse.setLastName(user.getLastName());
+    userDetailsResponse.setUserName(user.getUserName());
+    userDetailsResponse.setEmailAddress(user.getEmail());
+    userDetailsResponse.setDob(user.getDob());
+    userDetailsResponse.setAboutMe(user.getAboutMe());
+    userDetailsResponse.setContactNumber(user.getContactNumber());
+    userDetailsResponse.setCountry(user.getCountry());
+    return userDetailsResponse;
+  }
+}
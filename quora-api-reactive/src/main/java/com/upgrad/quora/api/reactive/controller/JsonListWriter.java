@@ -0,0 +1,122 @@
+package com.upgrad.quora.api.reactive.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Writes list responses as the rows are read from the DB, as a JSON array or, if the client asks
+ * for it, as newline delimited JSON with one object per line, like the writer of quora-api.
+ *
+ * <p>The rows are written {@value #ROWS_PER_BUFFER} at a time. The body is only subscribed to as
+ * fast as the client reads it, and the rows are only fetched from the DB as the body asks for
+ * them, so a slow client slows down the query instead of piling up rows in memory.
+ */
+@Component
+public class JsonListWriter {
+
+  public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+  public static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+  private static final int ROWS_PER_BUFFER = 64;
+
+  private static final byte[] START_ARRAY = {'['};
+
+  private static final byte[] END_ARRAY = {']'};
+
+  private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+  @Autowired private ObjectMapper objectMapper;
+
+  /**
+   * Builds the response streaming the given rows.
+   *
+   * @param accept Accept header of the request, may be null.
+   * @param rows rows to be written.
+   * @param toResponse mapping of a row to the object written for it.
+   * @param <T> type of the rows.
+   * @param <R> type of the objects written.
+   * @return response writing the rows as they are read.
+   */
+  public <T, R> ResponseEntity<Flux<DataBuffer>> write(
+      final String accept, final Flux<T> rows, final Function<T, R> toResponse) {
+    final boolean ndjson = prefersNdjson(accept);
+    Flux<DataBuffer> body =
+        Flux.defer(
+            () -> {
+              final boolean[] first = {true};
+              Flux<DataBuffer> buffers =
+                  rows.buffer(ROWS_PER_BUFFER)
+                      .map(batch -> toBuffer(batch, toResponse, ndjson, first));
+              if (ndjson) {
+                return buffers;
+              }
+              return Flux.concat(
+                  Flux.just(bufferFactory.wrap(START_ARRAY)),
+                  buffers,
+                  Flux.just(bufferFactory.wrap(END_ARRAY)));
+            });
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(ndjson ? APPLICATION_NDJSON : MediaType.APPLICATION_JSON_UTF8);
+    return new ResponseEntity<Flux<DataBuffer>>(body, headers, HttpStatus.OK);
+  }
+
+  // serializes a batch of rows, each one preceded by a comma in an array except the very first.
+  private <T, R> DataBuffer toBuffer(
+      final List<T> batch,
+      final Function<T, R> toResponse,
+      final boolean ndjson,
+      final boolean[] first) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      for (T row : batch) {
+        if (!ndjson && !first[0]) {
+          bytes.write(',');
+        }
+        first[0] = false;
+        byte[] json = objectMapper.writeValueAsBytes(toResponse.apply(row));
+        bytes.write(json, 0, json.length);
+        if (ndjson) {
+          bytes.write('\n');
+        }
+      }
+    } catch (JsonProcessingException e) {
+      throw Exceptions.propagate(e);
+    }
+    return bufferFactory.wrap(bytes.toByteArray());
+  }
+
+  // whether NDJSON is preferred over plain JSON by the Accept header.
+  private static boolean prefersNdjson(final String accept) {
+    if (accept == null || accept.isEmpty()) {
+      return false;
+    }
+    List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+    MediaType.sortBySpecificityAndQuality(mediaTypes);
+    for (MediaType mediaType : mediaTypes) {
+      if (APPLICATION_NDJSON.getType().equals(mediaType.getType())
+          && APPLICATION_NDJSON.getSubtype().equals(mediaType.getSubtype())) {
+        return true;
+      }
+      if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+        return false;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,81 @@
+package com.upgrad.quora.api.reactive.controller;
+
+import com.upgrad.quora.api.reactive.business.QuestionService;
+import com.upgrad.quora.api.reactive.model.QuestionDetailsResponse;
+import com.upgrad.quora.api.reactive.snapshot.QuestionSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.format.DateTimeFormatter;
+
+@RestController
+@RequestMapping("/")
+public class QuestionController {
+
+  @Autowired private QuestionService questionService;
+
+  @Autowired private JsonListWriter jsonListWriter;
+
+  /**
+   * Get all questions posted by any user.
+   *
+   * @param accessToken access token to authenticate user.
+   * @param accept Accept header, asking for newline delimited JSON instead of a JSON array if it
+   *     prefers application/x-ndjson.
+   * @return QuestionDetailsResponse of every question, streamed as they are read from the DB.
+   */
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/question/all",
+      produces = {MediaType.APPLICATION_JSON_UTF8_VALUE, JsonListWriter.APPLICATION_NDJSON_VALUE})
+  public Mono<ResponseEntity<Flux<DataBuffer>>> getAllQuestions(
+      @RequestHeader("authorization") final String accessToken,
+      @RequestHeader(value = "accept", required = false) final String accept) {
+    return questionService
+        .getAllQuestions(accessToken)
+        .map(questions -> jsonListWriter.write(accept, questions, this::toQuestionDetailsResponse));
+  }
+
+  /**
+   * Get all questions posted by a user with given userId.
+   *
+   * @param accessToken access token to authenticate user.
+   * @param accept Accept header, asking for newline delimited JSON instead of a JSON array if it
+   *     prefers application/x-ndjson.
+   * @param userId of the user whose questions are to be fetched.
+   * @return QuestionDetailsResponse of every question, streamed as they are read from the DB.
+   */
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/question/all/{userId}",
+      produces = {MediaType.APPLICATION_JSON_UTF8_VALUE, JsonListWriter.APPLICATION_NDJSON_VALUE})
+  public Mono<ResponseEntity<Flux<DataBuffer>>> getQuestionByUserId(
+      @RequestHeader("authorization") final String accessToken,
+      @RequestHeader(value = "accept", required = false) final String accept,
+      @PathVariable("userId") final String userId) {
+    return questionService
+        .getAllQuestionsByUser(userId, accessToken)
+        .map(questions -> jsonListWriter.write(accept, questions, this::toQuestionDetailsResponse));
+  }
+
+  private QuestionDetailsResponse toQuestionDetailsResponse(final QuestionSnapshot question) {
+    QuestionDetailsResponse questionDetailResponse = new QuestionDetailsResponse();
+    questionDetailResponse.setId(question.getUuid());
+    questionDetailResponse.setContent(question.getContent());
+    questionDetailResponse.setAnswerCount(question.getAnswerCount());
+    if (question.getLastActivityAt() != null) {
+      questionDetailResponse.setLastActivityAt(
+          question.getLastActivityAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+    }
+    return questionDetailResponse;
+  }
+}
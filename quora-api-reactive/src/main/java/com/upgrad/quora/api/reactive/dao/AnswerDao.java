@@ -0,0 +1,51 @@
+package com.upgrad.quora.api.reactive.dao;
+
+import com.upgrad.quora.api.reactive.snapshot.AnswerSnapshot;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Tuple;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Repository
+public class AnswerDao {
+
+  // slack between the time a question was posted and the time of its answers, as the clocks of the
+  // nodes posting them may disagree.
+  private static final Duration ANSWER_TIME_TOLERANCE = Duration.ofDays(1);
+
+  private static final String ANSWERS_TO_QUESTION =
+      "select a.uuid, a.ans, q.content from answer a"
+          + " join question q on q.id = a.question_id join users u on u.id = a.user_id"
+          + " where q.uuid = $1 and a.date >= $2 and u.deleted_at is null";
+
+  @Autowired private Pool pool;
+
+  @Value("${quora.datasource.fetch-size:64}")
+  private int fetchSize;
+
+  /**
+   * Stream all the answers to the question. As an answer cannot be posted before its question, the
+   * partitions of the answers posted more than a day before the question are skipped; the day
+   * leaves room for the clock of the node posting an answer lagging behind.
+   *
+   * @param questionId uuid of the question.
+   * @param questionDate time the question was posted.
+   * @return the answers, read from the DB as they are requested.
+   */
+  public Flux<AnswerSnapshot> streamAllAnswersToQuestion(
+      final String questionId, final LocalDateTime questionDate) {
+    return PgQueries.stream(
+        pool,
+        ANSWERS_TO_QUESTION,
+        Tuple.of(questionId, questionDate.minus(ANSWER_TIME_TOLERANCE)),
+        fetchSize,
+        row ->
+            new AnswerSnapshot(
+                row.getString("uuid"), row.getString("ans"), row.getString("content")));
+  }
+}
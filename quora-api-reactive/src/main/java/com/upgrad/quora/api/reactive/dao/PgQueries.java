@@ -0,0 +1,144 @@
+package com.upgrad.quora.api.reactive.dao;
+
+import io.vertx.core.Future;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowIterator;
+import io.vertx.sqlclient.RowStream;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Transaction;
+import io.vertx.sqlclient.Tuple;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.function.Function;
+
+/** Runs queries on the non-blocking Postgres client and exposes their results as Reactor types. */
+final class PgQueries {
+
+  private PgQueries() {}
+
+  /**
+   * Runs a query expected to return at most one row.
+   *
+   * @param pool pool of connections.
+   * @param sql query, with $1, $2... placeholders.
+   * @param parameters values of the placeholders.
+   * @param mapper mapping of the row.
+   * @param <T> type of the result.
+   * @return the mapped first row, or empty if the query returned none.
+   */
+  static <T> Mono<T> one(
+      final Pool pool, final String sql, final Tuple parameters, final Function<Row, T> mapper) {
+    return Mono.create(
+        sink ->
+            pool.preparedQuery(sql)
+                .execute(parameters)
+                .onComplete(
+                    result -> {
+                      if (result.failed()) {
+                        sink.error(result.cause());
+                        return;
+                      }
+                      RowIterator<Row> rows = result.result().iterator();
+                      if (rows.hasNext()) {
+                        sink.success(mapper.apply(rows.next()));
+                      } else {
+                        sink.success();
+                      }
+                    }));
+  }
+
+  /**
+   * Streams the rows of a query through a cursor, with backpressure: rows are only fetched from the
+   * DB as the subscriber requests them, so a slow client holds at most a few fetches in memory
+   * rather than the whole result. The cursor is read in a transaction of its own, on a connection
+   * held until the stream completes or is cancelled.
+   *
+   * @param pool pool of connections.
+   * @param sql query, with $1, $2... placeholders.
+   * @param parameters values of the placeholders.
+   * @param fetchSize number of rows fetched from the DB per round trip.
+   * @param mapper mapping of every row.
+   * @param <T> type of the results.
+   * @return the mapped rows, the query runs once they are subscribed to.
+   */
+  static <T> Flux<T> stream(
+      final Pool pool,
+      final String sql,
+      final Tuple parameters,
+      final int fetchSize,
+      final Function<Row, T> mapper) {
+    return Flux.create(
+        sink ->
+            pool.getConnection()
+                .onComplete(
+                    connected -> {
+                      if (connected.failed()) {
+                        sink.error(connected.cause());
+                        return;
+                      }
+                      SqlConnection connection = connected.result();
+                      Future<Transaction> begun = connection.begin();
+                      begun
+                          .compose(transaction -> connection.prepare(sql))
+                          .onComplete(
+                              prepared -> {
+                                if (prepared.failed()) {
+                                  connection.close();
+                                  sink.error(prepared.cause());
+                                  return;
+                                }
+                                RowStream<Row> rows =
+                                    prepared.result().createStream(fetchSize, parameters);
+                                forward(rows, begun.result(), connection, mapper, sink);
+                              });
+                    }));
+  }
+
+  /**
+   * Converts a timestamp column, which carries no time zone, the way Hibernate does in quora-api.
+   *
+   * @param timestamp value of the column, may be null.
+   * @return the timestamp in the default time zone, or null.
+   */
+  static ZonedDateTime zoned(final LocalDateTime timestamp) {
+    return timestamp == null ? null : timestamp.atZone(ZoneId.systemDefault());
+  }
+
+  // Emits the rows as they are requested, and ends the transaction once they are all emitted.
+  private static <T> void forward(
+      final RowStream<Row> rows,
+      final Transaction transaction,
+      final SqlConnection connection,
+      final Function<Row, T> mapper,
+      final FluxSink<T> sink) {
+    rows.pause();
+    rows.exceptionHandler(
+        e -> {
+          connection.close();
+          sink.error(e);
+        });
+    rows.endHandler(
+        end ->
+            transaction
+                .commit()
+                .onComplete(
+                    committed -> {
+                      connection.close();
+                      if (committed.failed()) {
+                        sink.error(committed.cause());
+                      } else {
+                        sink.complete();
+                      }
+                    }));
+    rows.handler(row -> sink.next(mapper.apply(row)));
+    // Closing the connection rolls back the transaction and releases the cursor.
+    sink.onCancel(() -> rows.close().onComplete(closed -> connection.close()));
+    sink.onRequest(rows::fetch);
+  }
+}
@@ -0,0 +1,70 @@
+package com.upgrad.quora.api.reactive.dao;
+
+import com.upgrad.quora.api.reactive.snapshot.QuestionSnapshot;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@Repository
+public class QuestionDao {
+
+  private static final String QUESTIONS =
+      "select q.uuid, q.content, q.answer_count, q.last_activity_at"
+          + " from question q join users u on u.id = q.user_id where u.deleted_at is null";
+
+  private static final String QUESTIONS_BY_USER = QUESTIONS + " and u.uuid = $1";
+
+  private static final String QUESTION_DATE = "select date from question where uuid = $1";
+
+  @Autowired private Pool pool;
+
+  @Value("${quora.datasource.fetch-size:64}")
+  private int fetchSize;
+
+  /**
+   * Stream all the questions of the users who have not been deleted.
+   *
+   * @return the questions, read from the DB as they are requested.
+   */
+  public Flux<QuestionSnapshot> streamAllQuestions() {
+    return PgQueries.stream(
+        pool, QUESTIONS, Tuple.tuple(), fetchSize, QuestionDao::toQuestionSnapshot);
+  }
+
+  /**
+   * Stream all the questions posted by a user.
+   *
+   * @param userId uuid of the user.
+   * @return the questions, read from the DB as they are requested.
+   */
+  public Flux<QuestionSnapshot> streamAllQuestionsByUser(final String userId) {
+    return PgQueries.stream(
+        pool, QUESTIONS_BY_USER, Tuple.of(userId), fetchSize, QuestionDao::toQuestionSnapshot);
+  }
+
+  /**
+   * Get the time a question was posted, which bounds the partitions of its answers.
+   *
+   * @param questionId uuid of the question.
+   * @return the time the question was posted, or empty if the question does not exist.
+   */
+  public Mono<LocalDateTime> getQuestionDate(final String questionId) {
+    return PgQueries.one(
+        pool, QUESTION_DATE, Tuple.of(questionId), row -> row.getLocalDateTime("date"));
+  }
+
+  private static QuestionSnapshot toQuestionSnapshot(final Row row) {
+    return new QuestionSnapshot(
+        row.getString("uuid"),
+        row.getString("content"),
+        row.getInteger("answer_count"),
+        PgQueries.zoned(row.getLocalDateTime("last_activity_at")));
+  }
+}
@@ -0,0 +1,78 @@
+package com.upgrad.quora.api.reactive.dao;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.upgrad.quora.api.reactive.snapshot.UserAuthSnapshot;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+@Repository
+public class UserAuthDao {
+
+  private static final String SESSION_BY_TOKEN =
+      "select u.uuid, a.logout_at from user_auth a join users u on u.id = a.user_id"
+          + " where a.access_token = $1 and u.deleted_at is null";
+
+  private static final String SESSION_BY_TOKEN_LOGGED_IN_BETWEEN =
+      SESSION_BY_TOKEN + " and a.login_at between $2 and $3";
+
+  // slack between the issue time of a token and the login time of its session.
+  private static final Duration LOGIN_TIME_TOLERANCE = Duration.ofDays(1);
+
+  // tokens issued before the issue time was written in seconds carry a time in January 1970.
+  private static final Instant EARLIEST_ISSUED_AT = Instant.parse("2000-01-01T00:00:00Z");
+
+  @Autowired private Pool pool;
+
+  /**
+   * Gets the session of the access token. As in quora-api, only the partitions around the time the
+   * token was issued at are searched when the token carries that time.
+   *
+   * @param accessToken access token of the session.
+   * @return the session, or empty if there is no such session.
+   */
+  public Mono<UserAuthSnapshot> getUserAuthByToken(final String accessToken) {
+    final LocalDateTime issuedAt = getIssuedAt(accessToken);
+    if (issuedAt == null) {
+      return PgQueries.one(
+          pool, SESSION_BY_TOKEN, Tuple.of(accessToken), UserAuthDao::toUserAuthSnapshot);
+    }
+    return PgQueries.one(
+        pool,
+        SESSION_BY_TOKEN_LOGGED_IN_BETWEEN,
+        Tuple.of(
+            accessToken,
+            issuedAt.minus(LOGIN_TIME_TOLERANCE),
+            issuedAt.plus(LOGIN_TIME_TOLERANCE)),
+        UserAuthDao::toUserAuthSnapshot);
+  }
+
+  private static UserAuthSnapshot toUserAuthSnapshot(final Row row) {
+    return new UserAuthSnapshot(
+        row.getString("uuid"), PgQueries.zoned(row.getLocalDateTime("logout_at")));
+  }
+
+  // time the token was issued at, or null if it is not a JWT issued with a plausible time.
+  private static LocalDateTime getIssuedAt(final String accessToken) {
+    final Date issuedAt;
+    try {
+      issuedAt = JWT.decode(accessToken).getIssuedAt();
+    } catch (JWTDecodeException e) {
+      return null;
+    }
+    if (issuedAt == null || issuedAt.toInstant().isBefore(EARLIEST_ISSUED_AT)) {
+      return null;
+    }
+    return LocalDateTime.ofInstant(issuedAt.toInstant(), ZoneId.systemDefault());
+  }
+}
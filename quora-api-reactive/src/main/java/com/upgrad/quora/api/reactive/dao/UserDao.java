@@ -0,0 +1,55 @@
+package com.upgrad.quora.api.reactive.dao;
+
+import com.upgrad.quora.api.reactive.snapshot.UserSnapshot;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Tuple;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public class UserDao {
+
+  private static final String USER_BY_UUID =
+      "select firstname, lastname, username, email, country, aboutme, dob, contactnumber"
+          + " from users where uuid = $1 and deleted_at is null";
+
+  private static final String USER_EXISTS =
+      "select 1 from users where uuid = $1 and deleted_at is null";
+
+  @Autowired private Pool pool;
+
+  /**
+   * Fetch the profile of a user.
+   *
+   * @param userId uuid of the user.
+   * @return the profile, or empty if the user does not exist.
+   */
+  public Mono<UserSnapshot> getUserById(final String userId) {
+    return PgQueries.one(
+        pool,
+        USER_BY_UUID,
+        Tuple.of(userId),
+        row ->
+            new UserSnapshot(
+                row.getString("firstname"),
+                row.getString("lastname"),
+                row.getString("username"),
+                row.getString("email"),
+                row.getString("country"),
+                row.getString("aboutme"),
+                row.getString("dob"),
+                row.getString("contactnumber")));
+  }
+
+  /**
+   * Checks whether a user exists without fetching it.
+   *
+   * @param userId uuid of the user.
+   * @return whether the user exists.
+   */
+  public Mono<Boolean> userExists(final String userId) {
+    return PgQueries.one(pool, USER_EXISTS, Tuple.of(userId), row -> Boolean.TRUE)
+        .defaultIfEmpty(Boolean.FALSE);
+  }
+}
@@ -0,0 +1,29 @@
+package com.upgrad.quora.api.reactive.snapshot;
+
+/** What is shown of an answer in the list of answers to a question. */
+public class AnswerSnapshot {
+
+  private final String uuid;
+
+  private final String answer;
+
+  private final String questionContent;
+
+  public AnswerSnapshot(final String uuid, final String answer, final String questionContent) {
+    this.uuid = uuid;
+    this.answer = answer;
+    this.questionContent = questionContent;
+  }
+
+  public String getUuid() {
+    return uuid;
+  }
+
+  public String getAnswer() {
+    return answer;
+  }
+
+  public String getQuestionContent() {
+    return questionContent;
+  }
+}
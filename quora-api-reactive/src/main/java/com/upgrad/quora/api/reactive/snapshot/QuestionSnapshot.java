@@ -0,0 +1,42 @@
+package com.upgrad.quora.api.reactive.snapshot;
+
+import java.time.ZonedDateTime;
+
+/** What is shown of a question in the lists of questions. */
+public class QuestionSnapshot {
+
+  private final String uuid;
+
+  private final String content;
+
+  private final Integer answerCount;
+
+  private final ZonedDateTime lastActivityAt;
+
+  public QuestionSnapshot(
+      final String uuid,
+      final String content,
+      final Integer answerCount,
+      final ZonedDateTime lastActivityAt) {
+    this.uuid = uuid;
+    this.content = content;
+    this.answerCount = answerCount;
+    this.lastActivityAt = lastActivityAt;
+  }
+
+  public String getUuid() {
+    return uuid;
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  public Integer getAnswerCount() {
+    return answerCount;
+  }
+
+  public ZonedDateTime getLastActivityAt() {
+    return lastActivityAt;
+  }
+}
@@ -0,0 +1,24 @@
+package com.upgrad.quora.api.reactive.snapshot;
+
+import java.time.ZonedDateTime;
+
+/** The login session an access token was issued for. */
+public class UserAuthSnapshot {
+
+  private final String userUuid;
+
+  private final ZonedDateTime logoutAt;
+
+  public UserAuthSnapshot(final String userUuid, final ZonedDateTime logoutAt) {
+    this.userUuid = userUuid;
+    this.logoutAt = logoutAt;
+  }
+
+  public String getUserUuid() {
+    return userUuid;
+  }
+
+  public ZonedDateTime getLogoutAt() {
+    return logoutAt;
+  }
+}
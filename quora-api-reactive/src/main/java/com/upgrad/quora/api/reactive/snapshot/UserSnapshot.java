@@ -0,0 +1,72 @@
+package com.upgrad.quora.api.reactive.snapshot;
+
+/** The profile of a user, without the credentials. */
+public class UserSnapshot {
+
+  private final String firstName;
+
+  private final String lastName;
+
+  private final String userName;
+
+  private final String email;
+
+  private final String country;
+
+  private final String aboutMe;
+
+  private final String dob;
+
+  private final String contactNumber;
+
+  public UserSnapshot(
+      final String firstName,
+      final String lastName,
+      final String userName,
+      final String email,
+      final String country,
+      final String aboutMe,
+      final String dob,
+      final String contactNumber) {
+    this.firstName = firstName;
+    this.lastName = lastName;
+    this.userName = userName;
+    this.email = email;
+    this.country = country;
+    this.aboutMe = aboutMe;
+    this.dob = dob;
+    this.contactNumber = contactNumber;
+  }
+
+  public String getFirstName() {
+    return firstName;
+  }
+
+  public String getLastName() {
+    return lastName;
+  }
+
+  public String getUserName() {
+    return userName;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public String getCountry() {
+    return country;
+  }
+
+  public String getAboutMe() {
+    return aboutMe;
+  }
+
+  public String getDob() {
+    return dob;
+  }
+
+  public String getContactNumber() {
+    return contactNumber;
+  }
+}
@@ -0,0 +1,51 @@
+package com.upgrad.quora.api.reactive.controller;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureWebTestClient
+public class AnswerControllerTest {
+
+  @Autowired private WebTestClient webTestClient;
+
+  // This test case passes when you try to get all the answers to a question and the JWT token
+  // entered exists in the database and the user corresponding to that JWT token is signed in.
+  @Test
+  public void getAllAnswersToQuestion() {
+    webTestClient
+        .get()
+        .uri("/api/answer/all/database_question_uuid")
+        .header("authorization", "database_accesstoken1")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$[?(@.id == 'database_answer_uuid')]")
+        .exists()
+        .jsonPath("$[0].questionContent")
+        .isEqualTo("database_question_content");
+  }
+
+  // This test case passes when you try to get all the answers to a question which does not exist
+  // in the database.
+  @Test
+  public void getAllAnswersToNonExistingQuestion() {
+    webTestClient
+        .get()
+        .uri("/api/answer/all/non_existing_question_uuid")
+        .header("authorization", "database_accesstoken1")
+        .exchange()
+        .expectStatus()
+        .isNotFound()
+        .expectBody()
+        .jsonPath("code")
+        .isEqualTo("QUES-001");
+  }
+}
@@ -0,0 +1,65 @@
+package com.upgrad.quora.api.reactive.controller;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureWebTestClient
+public class CommonControllerTest {
+
+  @Autowired private WebTestClient webTestClient;
+
+  // This test case passes when you try to get the details of the existing user and the JWT token
+  // entered exists in the database and the user corresponding to that JWT token is signed in.
+  @Test
+  public void details() {
+    webTestClient
+        .get()
+        .uri("/api/userprofile/database_uuid1")
+        .header("authorization", "database_accesstoken")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("user_name")
+        .isEqualTo("database_username1");
+  }
+
+  // This test case passes when you try to get the details of the existing user but the JWT token
+  // entered does not exist in the database.
+  @Test
+  public void detailsUsingNonExistingAccessToken() {
+    webTestClient
+        .get()
+        .uri("/api/userprofile/database_uuid1")
+        .header("authorization", "non_existing_access_token")
+        .exchange()
+        .expectStatus()
+        .isForbidden()
+        .expectBody()
+        .jsonPath("code")
+        .isEqualTo("ATHR-001");
+  }
+
+  // This test case passes when you try to get the details of the user which does not exist in the
+  // database.
+  @Test
+  public void detailsOfNonExistingUser() {
+    webTestClient
+        .get()
+        .uri("/api/userprofile/non_existing_user")
+        .header("authorization", "database_accesstoken")
+        .exchange()
+        .expectStatus()
+        .isNotFound()
+        .expectBody()
+        .jsonPath("code")
+        .isEqualTo("USR-001");
+  }
+}
@@ -0,0 +1,122 @@
+package com.upgrad.quora.api.reactive.controller;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureWebTestClient
+public class QuestionControllerTest {
+
+  @Autowired private WebTestClient webTestClient;
+
+  // This test case passes when you try to get the detail of all the questions and the JWT token
+  // entered exists in the database and the user corresponding to that JWT token is signed in.
+  @Test
+  public void getAllQuestions() {
+    webTestClient
+        .get()
+        .uri("/api/question/all")
+        .header("authorization", "database_accesstoken1")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$[?(@.id == 'database_question_uuid')]")
+        .exists();
+  }
+
+  // This test case passes when you ask for the questions as newline delimited JSON and get one
+  // question per line.
+  @Test
+  public void getAllQuestionsAsNdjson() {
+    String body =
+        webTestClient
+            .get()
+            .uri("/api/question/all")
+            .header("authorization", "database_accesstoken1")
+            .accept(JsonListWriter.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentType(JsonListWriter.APPLICATION_NDJSON)
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+    assertThat(body, containsString("\"id\":\"database_question_uuid\""));
+  }
+
+  // This test case passes when you try to get the detail of all the questions but the JWT token
+  // entered does not exist in the database.
+  @Test
+  public void getAllQuestionsWithNonExistingAccessToken() {
+    webTestClient
+        .get()
+        .uri("/api/question/all")
+        .header("authorization", "non_existing_access_token")
+        .exchange()
+        .expectStatus()
+        .isForbidden()
+        .expectBody()
+        .jsonPath("code")
+        .isEqualTo("ATHR-001");
+  }
+
+  // This test case passes when you try to get the detail of all the questions and the JWT token
+  // entered exists in the database but the user corresponding to that JWT token is signed out.
+  @Test
+  public void getAllQuestionsWithSignedOutUser() {
+    webTestClient
+        .get()
+        .uri("/api/question/all")
+        .header("authorization", "database_accesstoken3")
+        .exchange()
+        .expectStatus()
+        .isForbidden()
+        .expectBody()
+        .jsonPath("code")
+        .isEqualTo("ATHR-002");
+  }
+
+  // This test case passes when you try to get all the questions posted by a specific user and the
+  // JWT token entered exists in the database and the user corresponding to that JWT token is
+  // signed in.
+  @Test
+  public void getAllQuestionsByUser() {
+    webTestClient
+        .get()
+        .uri("/api/question/all/database_uuid1")
+        .header("authorization", "database_accesstoken1")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$[?(@.id == 'database_question_uuid')]")
+        .exists();
+  }
+
+  // This test case passes when you try to get all the questions posted by a specific user which
+  // does not exist in the database.
+  @Test
+  public void getAllQuestionsByNonExistingUser() {
+    webTestClient
+        .get()
+        .uri("/api/question/all/non_existing_user_uuid")
+        .header("authorization", "database_accesstoken1")
+        .exchange()
+        .expectStatus()
+        .isNotFound()
+        .expectBody()
+        .jsonPath("code")
+        .isEqualTo("USR-001");
+  }
+}
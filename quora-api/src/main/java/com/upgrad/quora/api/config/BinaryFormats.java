@@ -0,0 +1,50 @@
+package com.upgrad.quora.api.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Mappers of the binary encodings the endpoints offer besides JSON, to clients asking for them in
+ * their Accept header: CBOR and Smile. They are set up by the same builder as the JSON mapper, so
+ * they share its settings and modules, and write the same fields as JSON in a more compact form.
+ */
+@Component
+public class BinaryFormats {
+
+  public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+
+  public static final MediaType APPLICATION_CBOR = MediaType.valueOf(APPLICATION_CBOR_VALUE);
+
+  public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+  public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+  @Autowired private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+  private ObjectMapper cborMapper;
+
+  private ObjectMapper smileMapper;
+
+  @PostConstruct
+  public void init() {
+    cborMapper = new ObjectMapper(new CBORFactory());
+    objectMapperBuilder.configure(cborMapper);
+    smileMapper = new ObjectMapper(new SmileFactory());
+    objectMapperBuilder.configure(smileMapper);
+  }
+
+  public ObjectMapper getCborMapper() {
+    return cborMapper;
+  }
+
+  public ObjectMapper getSmileMapper() {
+    return smileMapper;
+  }
+}
@@ -0,0 +1,60 @@
+package com.upgrad.quora.api.config;
+
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * Lets clients upgrade plain-text connections of the embedded Tomcat to HTTP/2 (h2c), so that a
+ * client or proxy talking to the server without TLS can multiplex requests over one connection.
+ * HTTP/2 streams are compressed by Tomcat separately from HTTP/1.1 responses, so the {@code
+ * server.compression} settings are applied to them as well.
+ *
+ * <p>With {@code quora.executors.virtual-threads}, the connectors run every request on a virtual
+ * thread of its own instead of the pool of {@code server.tomcat.max-threads}; the number of
+ * requests is still bounded by {@code server.tomcat.max-connections}.
+ */
+@Configuration
+public class ServerConfiguration {
+
+  @Bean
+  @ConditionalOnProperty(name = "quora.server.h2c", havingValue = "true", matchIfMissing = true)
+  public WebServerFactoryCustomizer<TomcatServletWebServerFactory> h2cCustomizer(
+      final ServerProperties serverProperties) {
+    return factory ->
+        factory.addConnectorCustomizers(
+            connector -> {
+              Http2Protocol http2Protocol = new Http2Protocol();
+              Compression compression = serverProperties.getCompression();
+              if (compression.getEnabled()) {
+                http2Protocol.setCompression("on");
+                http2Protocol.setCompressibleMimeType(
+                    StringUtils.arrayToCommaDelimitedString(compression.getMimeTypes()));
+                http2Protocol.setCompressionMinSize(compression.getMinResponseSize());
+              }
+              connector.addUpgradeProtocol(http2Protocol);
+            });
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "quora.executors.virtual-threads", havingValue = "true")
+  public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadCustomizer() {
+    return factory ->
+        factory.addConnectorCustomizers(
+            connector -> {
+              ProtocolHandler protocolHandler = connector.getProtocolHandler();
+              if (protocolHandler instanceof AbstractProtocol) {
+                ((AbstractProtocol<?>) protocolHandler)
+                    .setExecutor(VirtualThreadTaskExecutor.unbounded("http-"));
+              }
+            });
+  }
+}
@@ -0,0 +1,173 @@
+package com.upgrad.quora.api.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor starting a virtual thread for every task, for the workloads to be run on virtual threads
+ * instead of a fixed pool of platform threads.
+ *
+ * <p>Virtual threads are cheap enough that the number of threads no longer bounds the concurrency,
+ * so two semaphores do: one per workload, holding as many permits as the workload had threads, and
+ * one shared by every workload, holding as many permits as there are DB connections, since nearly
+ * every task needs a connection and would otherwise just wait for one inside the connection pool.
+ * A task waits for its permits on its own virtual thread, which unlike a platform thread costs next
+ * to nothing while parked. Semaphores rather than {@code synchronized} blocks are used so that the
+ * waiting threads never pin their carrier thread. At most {@code maxWaiting} tasks wait for their
+ * permits; further tasks are rejected.
+ *
+ * <p>Virtual threads need Java 21. As the application is built for Java 8, they are created through
+ * reflection.
+ */
+class VirtualThreadTaskExecutor implements AsyncTaskExecutor {
+
+  private final String name;
+
+  private final ThreadFactory threadFactory;
+
+  private final Semaphore workloadPermits;
+
+  private final Semaphore connectionPermits;
+
+  private final int maxWaiting;
+
+  private final AtomicInteger waiting = new AtomicInteger();
+
+  private final AtomicInteger active = new AtomicInteger();
+
+  private final Counter rejected;
+
+  /**
+   * Creates the executor and registers its metrics, named as those of the platform thread pools.
+   *
+   * @param name name of the workload.
+   * @param concurrency number of tasks of the workload allowed to run at once.
+   * @param maxWaiting number of tasks allowed to wait for a permit before new ones are rejected.
+   * @param connectionPermits permits shared by every workload, one per DB connection.
+   * @param meterRegistry registry of the metrics.
+   */
+  VirtualThreadTaskExecutor(
+      final String name,
+      final int concurrency,
+      final int maxWaiting,
+      final Semaphore connectionPermits,
+      final MeterRegistry meterRegistry) {
+    this.name = name;
+    this.threadFactory = virtualThreadFactory(name + "-");
+    this.workloadPermits = new Semaphore(concurrency, true);
+    this.connectionPermits = connectionPermits;
+    this.maxWaiting = maxWaiting;
+    Tags tags = Tags.of("name", name);
+    meterRegistry.gauge("executor.queued", tags, waiting);
+    meterRegistry.gauge("executor.active", tags, active);
+    this.rejected = meterRegistry.counter("executor.rejected", tags);
+  }
+
+  /**
+   * Creates an executor starting a virtual thread for every task, with no limit, for work bounded
+   * elsewhere, e.g. the Tomcat request threads bounded by the maximum number of connections.
+   *
+   * @param prefix prefix of the names of the threads.
+   * @return the executor.
+   */
+  static Executor unbounded(final String prefix) {
+    final ThreadFactory threadFactory = virtualThreadFactory(prefix);
+    return task -> threadFactory.newThread(task).start();
+  }
+
+  /**
+   * Checks whether the running JVM supports virtual threads.
+   *
+   * @return whether virtual threads can be created.
+   */
+  static boolean isSupported() {
+    try {
+      Thread.class.getMethod("ofVirtual");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void execute(final Runnable task) {
+    if (waiting.incrementAndGet() > maxWaiting) {
+      waiting.decrementAndGet();
+      rejected.increment();
+      throw new TaskRejectedException("The " + name + " executor is saturated");
+    }
+    threadFactory.newThread(() -> runWithPermits(task)).start();
+  }
+
+  @Override
+  public void execute(final Runnable task, final long startTimeout) {
+    execute(task);
+  }
+
+  @Override
+  public Future<?> submit(final Runnable task) {
+    FutureTask<Object> future = new FutureTask<>(task, null);
+    execute(future);
+    return future;
+  }
+
+  @Override
+  public <T> Future<T> submit(final Callable<T> task) {
+    FutureTask<T> future = new FutureTask<>(task);
+    execute(future);
+    return future;
+  }
+
+  private void runWithPermits(final Runnable task) {
+    boolean workloadPermit = false;
+    boolean connectionPermit = false;
+    try {
+      workloadPermits.acquire();
+      workloadPermit = true;
+      connectionPermits.acquire();
+      connectionPermit = true;
+      waiting.decrementAndGet();
+      active.incrementAndGet();
+      try {
+        task.run();
+      } finally {
+        active.decrementAndGet();
+      }
+    } catch (InterruptedException e) {
+      waiting.decrementAndGet();
+      Thread.currentThread().interrupt();
+    } finally {
+      if (connectionPermit) {
+        connectionPermits.release();
+      }
+      if (workloadPermit) {
+        workloadPermits.release();
+      }
+    }
+  }
+
+  // Thread.ofVirtual().name(prefix, 0).factory()
+  private static ThreadFactory virtualThreadFactory(final String prefix) {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Method nameMethod = builderClass.getMethod("name", String.class, long.class);
+      builder = nameMethod.invoke(builder, prefix, 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Virtual threads are not supported by this JVM", e);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.upgrad.quora.api.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Runs the streamed response bodies on a bounded pool of threads instead of the default executor,
+ * which starts a new thread for every response. With {@code quora.executors.virtual-threads}, they
+ * run on virtual threads, as many at once as the pool would have threads, sharing the DB
+ * connection permits of the workloads, see {@link WorkloadExecutors}.
+ *
+ * <p>Responses, error bodies included, are also written in CBOR or Smile to the clients asking for
+ * them, see {@link BinaryFormats}. Their converters come after the JSON one, so JSON remains the
+ * default for clients accepting anything. Every mapper serializes through the accessors generated
+ * by Afterburner rather than through reflection.
+ */
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+  @Autowired private BinaryFormats binaryFormats;
+
+  @Autowired private WorkloadExecutors workloadExecutors;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Value("${quora.streaming.threads:16}")
+  private int streamingThreads;
+
+  @Value("${quora.streaming.queue-capacity:100}")
+  private int streamingQueueCapacity;
+
+  @Value("${quora.streaming.timeout-ms:60000}")
+  private long streamingTimeoutMillis;
+
+  @Bean
+  public AsyncTaskExecutor streamingExecutor() {
+    if (workloadExecutors.getConnectionPermits() != null) {
+      return new VirtualThreadTaskExecutor(
+          "streaming",
+          streamingThreads,
+          streamingQueueCapacity,
+          workloadExecutors.getConnectionPermits(),
+          meterRegistry);
+    }
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(streamingThreads);
+    executor.setMaxPoolSize(streamingThreads);
+    executor.setQueueCapacity(streamingQueueCapacity);
+    executor.setThreadNamePrefix("streaming-");
+    return executor;
+  }
+
+  // Static, as the mappers of BinaryFormats injected here are built with it.
+  @Bean
+  public static Module afterburnerModule() {
+    return new AfterburnerModule();
+  }
+
+  @Override
+  public void extendMessageConverters(final List<HttpMessageConverter<?>> converters) {
+    MappingJackson2CborHttpMessageConverter cborConverter =
+        new MappingJackson2CborHttpMessageConverter(binaryFormats.getCborMapper());
+    MappingJackson2SmileHttpMessageConverter smileConverter =
+        new MappingJackson2SmileHttpMessageConverter(binaryFormats.getSmileMapper());
+    // A charset means nothing to binary types.
+    cborConverter.setDefaultCharset(null);
+    smileConverter.setDefaultCharset(null);
+    // In place of the ones Spring MVC adds on its own, which ignore the settings of the JSON mapper
+    converters.removeIf(
+        converter ->
+            converter instanceof MappingJackson2CborHttpMessageConverter
+                || converter instanceof MappingJackson2SmileHttpMessageConverter);
+    converters.add(cborConverter);
+    converters.add(smileConverter);
+  }
+
+  @Override
+  public void configureAsyncSupport(final AsyncSupportConfigurer configurer) {
+    configurer.setTaskExecutor(streamingExecutor());
+    configurer.setDefaultTimeout(streamingTimeoutMillis);
+  }
+}
@@ -0,0 +1,240 @@
+package com.upgrad.quora.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounded thread pools the controllers hand their work over to, one per class of workload, so that
+ * the Tomcat worker threads are released while a request is being processed and a burst of one
+ * workload cannot hold up the others:
+ *
+ * <ul>
+ *   <li>auth: signup, signin and signout, dominated by password hashing and session lookups.
+ *   <li>reads: lookups of users and questions.
+ *   <li>writes: creation, edition and deletion of questions, answers and users.
+ * </ul>
+ *
+ * A request finding the threads and the queue of its workload full is rejected with a {@link
+ * RejectedExecutionException}, answered with 503, rather than waiting. The queue length, active
+ * threads and completed tasks of every pool are exported as the {@code executor.*} metrics and the
+ * rejections as {@code executor.rejected}, all tagged with the name of the pool.
+ *
+ * <p>With {@code quora.executors.virtual-threads} enabled, which needs Java 21, every task runs on
+ * a virtual thread of its own instead, see {@link VirtualThreadTaskExecutor}. The threads of a
+ * workload then become the number of its tasks allowed to run at once, its queue capacity the
+ * number of tasks allowed to wait, and every workload shares one more limit: the number of
+ * connections of the DB pool, unless {@code quora.executors.connection-permits} sets it. The
+ * streamed responses and the Tomcat request threads then run on virtual threads too, see {@link
+ * WebConfiguration} and {@link ServerConfiguration}.
+ */
+@Component
+public class WorkloadExecutors {
+
+  private static final Logger LOG = LoggerFactory.getLogger(WorkloadExecutors.class);
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Autowired private DataSource dataSource;
+
+  @Value("${quora.executors.virtual-threads:false}")
+  private boolean virtualThreads;
+
+  @Value("${quora.executors.connection-permits:0}")
+  private int connectionPermits;
+
+  @Value("${quora.executors.auth.threads:8}")
+  private int authThreads;
+
+  @Value("${quora.executors.auth.queue-capacity:50}")
+  private int authQueueCapacity;
+
+  @Value("${quora.executors.reads.threads:32}")
+  private int readThreads;
+
+  @Value("${quora.executors.reads.queue-capacity:200}")
+  private int readQueueCapacity;
+
+  @Value("${quora.executors.writes.threads:16}")
+  private int writeThreads;
+
+  @Value("${quora.executors.writes.queue-capacity:100}")
+  private int writeQueueCapacity;
+
+  private AsyncTaskExecutor authExecutor;
+
+  private AsyncTaskExecutor readExecutor;
+
+  private AsyncTaskExecutor writeExecutor;
+
+  private Semaphore connections;
+
+  @PostConstruct
+  public void init() {
+    if (virtualThreads) {
+      if (!VirtualThreadTaskExecutor.isSupported()) {
+        throw new IllegalStateException(
+            "quora.executors.virtual-threads requires Java 21, running on "
+                + System.getProperty("java.version"));
+      }
+      connections = new Semaphore(connectionPermits(), true);
+      LOG.info(
+          "Running the workloads on virtual threads, {} at once", connections.availablePermits());
+      authExecutor =
+          new VirtualThreadTaskExecutor(
+              "auth", authThreads, authQueueCapacity, connections, meterRegistry);
+      readExecutor =
+          new VirtualThreadTaskExecutor(
+              "reads", readThreads, readQueueCapacity, connections, meterRegistry);
+      writeExecutor =
+          new VirtualThreadTaskExecutor(
+              "writes", writeThreads, writeQueueCapacity, connections, meterRegistry);
+    } else {
+      authExecutor = executor("auth", authThreads, authQueueCapacity);
+      readExecutor = executor("reads", readThreads, readQueueCapacity);
+      writeExecutor = executor("writes", writeThreads, writeQueueCapacity);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    for (AsyncTaskExecutor executor :
+        new AsyncTaskExecutor[] {authExecutor, readExecutor, writeExecutor}) {
+      if (executor instanceof ThreadPoolTaskExecutor) {
+        ((ThreadPoolTaskExecutor) executor).shutdown();
+      }
+    }
+  }
+
+  /**
+   * Runs the work of an authentication request on the auth pool.
+   *
+   * @param callable work producing the response.
+   * @param <T> type of the response.
+   * @return task to be returned by the controller.
+   */
+  public <T> WebAsyncTask<T> auth(final Callable<T> callable) {
+    return new WebAsyncTask<T>(null, authExecutor, callable);
+  }
+
+  /**
+   * Runs the work of a read request on the reads pool.
+   *
+   * @param callable work producing the response.
+   * @param <T> type of the response.
+   * @return task to be returned by the controller.
+   */
+  public <T> WebAsyncTask<T> read(final Callable<T> callable) {
+    return new WebAsyncTask<T>(null, readExecutor, callable);
+  }
+
+  /**
+   * Runs the work of a write request on the writes pool.
+   *
+   * @param callable work producing the response.
+   * @param <T> type of the response.
+   * @return task to be returned by the controller.
+   */
+  public <T> WebAsyncTask<T> write(final Callable<T> callable) {
+    return new WebAsyncTask<T>(null, writeExecutor, callable);
+  }
+
+  /**
+   * Gets the executor of the auth workload, for work not handed over through a {@link
+   * WebAsyncTask}, e.g. the calls of the gRPC services.
+   *
+   * @return the executor.
+   */
+  public AsyncTaskExecutor getAuthExecutor() {
+    return authExecutor;
+  }
+
+  /**
+   * Gets the executor of the reads workload, for work not handed over through a {@link
+   * WebAsyncTask}.
+   *
+   * @return the executor.
+   */
+  public AsyncTaskExecutor getReadExecutor() {
+    return readExecutor;
+  }
+
+  /**
+   * Gets the executor of the writes workload, for work not handed over through a {@link
+   * WebAsyncTask}.
+   *
+   * @return the executor.
+   */
+  public AsyncTaskExecutor getWriteExecutor() {
+    return writeExecutor;
+  }
+
+  /**
+   * Gets the permits shared by every workload on virtual threads, for other executors on virtual
+   * threads needing DB connections to share them too.
+   *
+   * @return the permits, or null unless the workloads run on virtual threads.
+   */
+  Semaphore getConnectionPermits() {
+    return connections;
+  }
+
+  /**
+   * Gets the number of tasks allowed to run at once over every workload on virtual threads.
+   *
+   * @return the configured number or else the maximum size of the DB connection pool.
+   */
+  private int connectionPermits() {
+    if (connectionPermits > 0) {
+      return connectionPermits;
+    }
+    if (dataSource instanceof HikariDataSource) {
+      return ((HikariDataSource) dataSource).getMaximumPoolSize();
+    }
+    throw new IllegalStateException(
+        "quora.executors.connection-permits must be set for " + dataSource.getClass().getName());
+  }
+
+  /**
+   * Builds a bounded pool whose size, queue and rejections are exported as metrics.
+   *
+   * @param name name of the pool, used as the metrics tag and the thread name prefix.
+   * @param threads number of threads.
+   * @param queueCapacity number of tasks waiting for a thread before new ones are rejected.
+   * @return the initialized pool.
+   */
+  ThreadPoolTaskExecutor executor(final String name, final int threads, final int queueCapacity) {
+    final Counter rejected = meterRegistry.counter("executor.rejected", "name", name);
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(threads);
+    executor.setMaxPoolSize(threads);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix(name + "-");
+    executor.setRejectedExecutionHandler(
+        (task, pool) -> {
+          rejected.increment();
+          throw new RejectedExecutionException("The " + name + " executor is saturated");
+        });
+    executor.initialize();
+    new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), name, Tags.empty())
+        .bindTo(meterRegistry);
+    return executor;
+  }
+}
@@ -1,5 +1,7 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.config.BinaryFormats;
+import com.upgrad.quora.api.config.WorkloadExecutors;
 import com.upgrad.quora.api.model.UserDeleteResponse;
 import com.upgrad.quora.service.business.AdminService;
 import com.upgrad.quora.service.entity.UserEntity;
@@ -10,6 +12,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 @RestController
 @RequestMapping("/")
@@ -17,6 +20,8 @@ public class AdminController {
 
   @Autowired private AdminService adminService;
 
+  @Autowired private WorkloadExecutors workloadExecutors;
+
   /**
    * Get the user details provided the userId.
    *
@@ -30,17 +35,22 @@ public class AdminController {
   @RequestMapping(
       method = RequestMethod.DELETE,
       path = "/admin/user/{userId}",
-      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-  public ResponseEntity<UserDeleteResponse> deleteUser(
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<UserDeleteResponse>> deleteUser(
       @RequestHeader("authorization") final String accessToken,
-      @PathVariable("userId") String userId)
-      throws AuthorizationFailedException, UserNotFoundException {
-
-    UserEntity userEntity = adminService.deleteUser(userId, accessToken);
+      @PathVariable("userId") String userId) {
+    return workloadExecutors.write(
+        () -> {
+          UserEntity userEntity = adminService.deleteUser(userId, accessToken);
 
-    UserDeleteResponse userDeleteResponse =
-        new UserDeleteResponse().id(userEntity.getUuid()).status("USER SUCCESSFULLY DELETED");
+          UserDeleteResponse userDeleteResponse =
+              new UserDeleteResponse().id(userEntity.getUuid()).status("USER SUCCESSFULLY DELETED");
 
-    return new ResponseEntity<UserDeleteResponse>(userDeleteResponse, HttpStatus.OK);
+          return new ResponseEntity<UserDeleteResponse>(userDeleteResponse, HttpStatus.OK);
+        });
   }
 }
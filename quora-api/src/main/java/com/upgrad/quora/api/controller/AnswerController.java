@@ -1,19 +1,24 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.config.BinaryFormats;
+import com.upgrad.quora.api.config.WorkloadExecutors;
+import com.upgrad.quora.api.exception.IdempotencyKeyConflictException;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.AnswerService;
+import com.upgrad.quora.service.common.ResultStreamer;
+import com.upgrad.quora.service.common.Versioned;
 import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.snapshot.AnswerSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.ArrayList;
-import java.util.List;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/")
@@ -21,33 +26,55 @@ public class AnswerController {
 
   @Autowired private AnswerService answerService;
 
+  @Autowired private JsonListWriter jsonListWriter;
+
+  @Autowired private WorkloadExecutors workloadExecutors;
+
+  @Autowired private IdempotentRequests idempotentRequests;
+
   /**
    * This API creates an answer in the database.
    *
    * @param accessToken To authenticate the user who is trying to create an answer.
    * @param questionId Id of the question for which the answer is being created.
+   * @param idempotencyKey Key of the request, a retry with the same key gets the same response.
    * @param answerRequest Contains the answer content.
    * @return
    * @throws AuthorizationFailedException ATHR-001 If the user has not signed in and ATHR-002 If the
    *     user is already signed out
    * @throws InvalidQuestionException QUES-001 if the question doesn't exist in database.
+   * @throws IdempotencyKeyConflictException IDM-002 if the key was used for another answer.
    */
   @RequestMapping(
       method = RequestMethod.POST,
       path = "/question/{questionId}/answer/create",
-      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-  public ResponseEntity<AnswerResponse> createAnswer(
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<AnswerResponse>> createAnswer(
       @RequestHeader("authorization") final String accessToken,
       @PathVariable("questionId") final String questionId,
-      AnswerRequest answerRequest)
-      throws AuthorizationFailedException, InvalidQuestionException {
-    AnswerEntity answerEntity = new AnswerEntity();
-    answerEntity.setAnswer(answerRequest.getAnswer());
-    answerEntity = answerService.createAnswer(answerEntity, accessToken, questionId);
-    AnswerResponse answerResponse = new AnswerResponse();
-    answerResponse.setId(answerEntity.getUuid());
-    answerResponse.setStatus("ANSWER CREATED");
-    return new ResponseEntity<AnswerResponse>(answerResponse, HttpStatus.CREATED);
+      @RequestHeader(value = IdempotentRequests.IDEMPOTENCY_KEY, required = false)
+          final String idempotencyKey,
+      AnswerRequest answerRequest) {
+    return workloadExecutors.write(
+        () ->
+            idempotentRequests.execute(
+                idempotencyKey,
+                "question/" + questionId + "/answer/create",
+                accessToken,
+                answerRequest,
+                () -> {
+                  AnswerEntity answerEntity = new AnswerEntity();
+                  answerEntity.setAnswer(answerRequest.getAnswer());
+                  answerEntity = answerService.createAnswer(answerEntity, accessToken, questionId);
+                  AnswerResponse answerResponse = new AnswerResponse();
+                  answerResponse.setId(answerEntity.getUuid());
+                  answerResponse.setStatus("ANSWER CREATED");
+                  return new ResponseEntity<AnswerResponse>(answerResponse, HttpStatus.CREATED);
+                }));
   }
 
   /**
@@ -64,18 +91,24 @@ public class AnswerController {
   @RequestMapping(
       method = RequestMethod.PUT,
       path = "/answer/edit/{answerId}",
-      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-  public ResponseEntity<AnswerEditResponse> editAnswer(
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<AnswerEditResponse>> editAnswer(
       @RequestHeader("authorization") final String accessToken,
       @PathVariable("answerId") final String answerId,
-      AnswerEditRequest answerEditRequest)
-      throws AuthorizationFailedException, AnswerNotFoundException {
-    AnswerEditResponse answerEditResponse = new AnswerEditResponse();
-    AnswerEntity answerEntity =
-        answerService.editAnswer(accessToken, answerId, answerEditRequest.getContent());
-    answerEditResponse.setId(answerEntity.getUuid());
-    answerEditResponse.setStatus("ANSWER EDITED");
-    return new ResponseEntity<AnswerEditResponse>(answerEditResponse, HttpStatus.OK);
+      AnswerEditRequest answerEditRequest) {
+    return workloadExecutors.write(
+        () -> {
+          AnswerEditResponse answerEditResponse = new AnswerEditResponse();
+          AnswerEntity answerEntity =
+              answerService.editAnswer(accessToken, answerId, answerEditRequest.getContent());
+          answerEditResponse.setId(answerEntity.getUuid());
+          answerEditResponse.setStatus("ANSWER EDITED");
+          return new ResponseEntity<AnswerEditResponse>(answerEditResponse, HttpStatus.OK);
+        });
   }
 
   /**
@@ -90,15 +123,21 @@ public class AnswerController {
   @RequestMapping(
       method = RequestMethod.DELETE,
       path = "/answer/delete/{answerId}",
-      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-  public ResponseEntity<AnswerDeleteResponse> deleteAnswer(
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<AnswerDeleteResponse>> deleteAnswer(
       @RequestHeader("authorization") final String accessToken,
-      @PathVariable("answerId") String answerId)
-      throws AuthorizationFailedException, AnswerNotFoundException {
-    AnswerEntity answerEntity = answerService.deleteAnswer(answerId, accessToken);
-    AnswerDeleteResponse answerDeleteResponse =
-        new AnswerDeleteResponse().id(answerEntity.getUuid()).status("ANSWER DELETED");
-    return new ResponseEntity<AnswerDeleteResponse>(answerDeleteResponse, HttpStatus.OK);
+      @PathVariable("answerId") String answerId) {
+    return workloadExecutors.write(
+        () -> {
+          AnswerEntity answerEntity = answerService.deleteAnswer(answerId, accessToken);
+          AnswerDeleteResponse answerDeleteResponse =
+              new AnswerDeleteResponse().id(answerEntity.getUuid()).status("ANSWER DELETED");
+          return new ResponseEntity<AnswerDeleteResponse>(answerDeleteResponse, HttpStatus.OK);
+        });
   }
 
   /**
@@ -106,7 +145,13 @@ public class AnswerController {
    *
    * @param questionId to fetch all the answers for a question.
    * @param accessToken access token to authenticate user.
-   * @return List of AnswerDetailsResponse
+   * @param accept Accept header, asking for newline delimited JSON instead of a JSON array if it
+   *     prefers application/x-ndjson.
+   * @param acceptEncoding Accept-Encoding header, the list being sent gzipped from the cache if it
+   *     lists gzip.
+   * @param ifNoneMatch ETags of the versions of the list the client has.
+   * @return AnswerDetailsResponse of every answer, streamed as they are read from the DB or from
+   *     the cache, or 304 if the list has not changed.
    * @throws AuthorizationFailedException ATHR-001 - if User has not signed in. ATHR-002 if the User
    *     is signed out.
    * @throws InvalidQuestionException The question with entered uuid whose details are to be seen
@@ -115,20 +160,33 @@ public class AnswerController {
   @RequestMapping(
       method = RequestMethod.GET,
       path = "/answer/all/{questionId}",
-      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-  public ResponseEntity<List<AnswerDetailsResponse>> getAllAnswersToQuestion(
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        JsonListWriter.APPLICATION_NDJSON_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<StreamingResponseBody>> getAllAnswersToQuestion(
       @RequestHeader("authorization") final String accessToken,
-      @PathVariable("questionId") String questionId)
-      throws AuthorizationFailedException, InvalidQuestionException {
-    List<AnswerEntity> answers = answerService.getAllAnswersToQuestion(questionId, accessToken);
-    List<AnswerDetailsResponse> answerDetailsResponses = new ArrayList<>();
-    for (AnswerEntity answerEntity : answers) {
-      AnswerDetailsResponse answerDetailsResponse = new AnswerDetailsResponse();
-      answerDetailsResponse.setId(answerEntity.getUuid());
-      answerDetailsResponse.setQuestionContent(answerEntity.getQuestionEntity().getContent());
-      answerDetailsResponse.setAnswerContent(answerEntity.getAnswer());
-      answerDetailsResponses.add(answerDetailsResponse);
-    }
-    return new ResponseEntity<List<AnswerDetailsResponse>>(answerDetailsResponses, HttpStatus.OK);
+      @RequestHeader(value = "accept", required = false) final String accept,
+      @RequestHeader(value = "accept-encoding", required = false) final String acceptEncoding,
+      @RequestHeader(value = "if-none-match", required = false) final String ifNoneMatch,
+      @PathVariable("questionId") String questionId) {
+    return workloadExecutors.read(
+        () -> {
+          Versioned<ResultStreamer<AnswerSnapshot>> answers =
+              answerService.getAllAnswersToQuestion(
+                  questionId, accessToken, jsonListWriter.representation(accept), ifNoneMatch);
+          return jsonListWriter.write(
+              "/answer/all/" + questionId,
+              accept,
+              acceptEncoding,
+              answers,
+              answer ->
+                  new AnswerDetailsResponse()
+                      .id(answer.getUuid())
+                      .questionContent(answer.getQuestionContent())
+                      .answerContent(answer.getAnswer()));
+        });
   }
 }
@@ -1,15 +1,27 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.config.BinaryFormats;
+import com.upgrad.quora.api.config.WorkloadExecutors;
+import com.upgrad.quora.api.model.UserDetailsBatchResponse;
 import com.upgrad.quora.api.model.UserDetailsResponse;
 import com.upgrad.quora.service.business.CommonUserService;
-import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidRequestException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.snapshot.UserProfile;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/")
@@ -17,6 +29,8 @@ public class CommonController {
 
   @Autowired CommonUserService commonUserService;
 
+  @Autowired private WorkloadExecutors workloadExecutors;
+
   /**
    * Get the user details provided the userId.
    *
@@ -29,22 +43,77 @@ public class CommonController {
   @RequestMapping(
       method = RequestMethod.GET,
       path = "/userprofile/{userId}",
-      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-  public ResponseEntity<UserDetailsResponse> getProfile(
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<UserDetailsResponse>> getProfile(
+      @RequestHeader("authorization") final String accessToken,
+      @PathVariable("userId") final String userId) {
+    return workloadExecutors.read(
+        () -> {
+          commonUserService.checkIfTokenIsValid(accessToken);
+          UserProfile userProfile = commonUserService.getUserProfile(userId);
+          return new ResponseEntity<UserDetailsResponse>(
+              toUserDetailsResponse(userProfile), HttpStatus.OK);
+        });
+  }
+
+  /**
+   * Get the details of several users at once, e.g. of the authors of a page of answers, with a
+   * single token check and a single query.
+   *
+   * @param accessToken Access token to authenticate the user who is requesting for user details.
+   * @param userIds user ids of the users whose details have to be fetched.
+   * @return details of the users found keyed by their user id, and the user ids not found.
+   * @throws AuthorizationFailedException - if the access token is invalid or already logged out.
+   * @throws InvalidRequestException - if no ids or too many ids are given.
+   */
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/userprofile/batch",
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<UserDetailsBatchResponse>> getProfiles(
       @RequestHeader("authorization") final String accessToken,
-      @PathVariable("userId") final String userId)
-      throws AuthorizationFailedException, UserNotFoundException {
-    commonUserService.checkIfTokenIsValid(accessToken);
-    UserEntity userEntity = commonUserService.getUserById(userId);
+      @RequestParam("ids") final List<String> userIds) {
+    return workloadExecutors.read(
+        () -> {
+          commonUserService.checkIfTokenIsValid(accessToken);
+          Set<String> uniqueUserIds = new LinkedHashSet<>(userIds);
+          Map<String, UserProfile> userProfiles =
+              commonUserService.getUserProfilesByIds(uniqueUserIds);
+          UserDetailsBatchResponse userDetailsBatchResponse =
+              new UserDetailsBatchResponse()
+                  .users(new LinkedHashMap<>())
+                  .missingIds(new ArrayList<>());
+          for (String userId : uniqueUserIds) {
+            UserProfile userProfile = userProfiles.get(userId);
+            if (userProfile == null) {
+              userDetailsBatchResponse.addMissingIdsItem(userId);
+            } else {
+              userDetailsBatchResponse.putUsersItem(userId, toUserDetailsResponse(userProfile));
+            }
+          }
+          return new ResponseEntity<UserDetailsBatchResponse>(
+              userDetailsBatchResponse, HttpStatus.OK);
+        });
+  }
+
+  private UserDetailsResponse toUserDetailsResponse(final UserProfile userProfile) {
     UserDetailsResponse userDetailsResponse = new UserDetailsResponse();
-    userDetailsResponse.setFirstName(userEntity.getFirstName());
-    userDetailsResponse.setLastName(userEntity.getLastName());
-    userDetailsResponse.setUserName(userEntity.getUserName());
-    userDetailsResponse.setEmailAddress(userEntity.getEmail());
-    userDetailsResponse.setDob(userEntity.getDob());
-    userDetailsResponse.setAboutMe(userEntity.getAboutMe());
-    userDetailsResponse.setContactNumber(userEntity.getContactNumber());
-    userDetailsResponse.setCountry(userEntity.getCountry());
-    return new ResponseEntity<UserDetailsResponse>(userDetailsResponse, HttpStatus.OK);
+    userDetailsResponse.setFirstName(userProfile.getFirstName());
+    userDetailsResponse.setLastName(userProfile.getLastName());
+    userDetailsResponse.setUserName(userProfile.getUserName());
+    userDetailsResponse.setEmailAddress(userProfile.getEmail());
+    userDetailsResponse.setDob(userProfile.getDob());
+    userDetailsResponse.setAboutMe(userProfile.getAboutMe());
+    userDetailsResponse.setContactNumber(userProfile.getContactNumber());
+    userDetailsResponse.setCountry(userProfile.getCountry());
+    return userDetailsResponse;
   }
 }
@@ -0,0 +1,205 @@
+package com.upgrad.quora.api.controller;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.upgrad.quora.api.exception.IdempotencyKeyConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Deduplicates the create requests sent with an {@value #IDEMPOTENCY_KEY} header, so a client
+ * retrying a request whose response it did not get does not create the same question, answer or
+ * user twice. The response of the first request with a key is kept for {@code
+ * quora.idempotency.ttl-ms} and returned as is, with an {@value #REPLAYED} header, to the requests
+ * sending the key again, without running them. A request sent again while the first one is still
+ * running is answered IDM-001 at once, to be retried later, rather than holding a thread of the
+ * writes pool until the first one completes.
+ *
+ * <p>Keys are scoped to the endpoint and the access token of the caller; the keys of anonymous
+ * callers are scoped to the request itself, so that anonymous clients do not share a key space.
+ * Reusing a key for a different request is rejected with IDM-002. Neither the access tokens nor
+ * the requests, which may carry a password, are kept: only their HMAC-SHA256 under a secret drawn
+ * at random by every node when it starts. Failed requests are not kept, so they can be retried
+ * with the same key. At most {@code quora.idempotency.max-entries}
+ * responses are kept, the oldest being dropped first; the replays are counted in the {@code
+ * idempotency.replayed} metric.
+ *
+ * <p>The responses are kept in the memory of each node: a retry landing on another node than the
+ * first request, or sent after a restart, runs the request again.
+ */
+@Component
+public class IdempotentRequests {
+
+  public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+  public static final String REPLAYED = "Idempotent-Replayed";
+
+  private static final String HMAC = "HmacSHA256";
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  @Value("${quora.idempotency.max-entries:10000}")
+  private int maxEntries;
+
+  @Value("${quora.idempotency.ttl-ms:86400000}")
+  private long ttlMillis;
+
+  private Map<String, Entry> entries;
+
+  private Counter replayed;
+
+  // Writes the requests with their properties in a fixed order, to digest them.
+  private ObjectWriter canonicalWriter;
+
+  private SecretKeySpec secret;
+
+  @PostConstruct
+  public void init() {
+    final byte[] secretBytes = new byte[32];
+    new SecureRandom().nextBytes(secretBytes);
+    secret = new SecretKeySpec(secretBytes, HMAC);
+    canonicalWriter =
+        objectMapper
+            .copy()
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .writer(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    entries =
+        new LinkedHashMap<String, Entry>() {
+          @Override
+          protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+          }
+        };
+    replayed = meterRegistry.counter("idempotency.replayed");
+  }
+
+  /**
+   * Runs a create request, unless a request with the same idempotency key has already been run.
+   *
+   * @param idempotencyKey value of the Idempotency-Key header, null to always run the request.
+   * @param endpoint name of the endpoint, scoping the key.
+   * @param caller access token of the caller, scoping the key, or null for anonymous endpoints, in
+   *     which case the key is scoped to the request.
+   * @param request parameters of the request, which must be the same whenever the key is sent.
+   * @param callable work producing the response.
+   * @param <T> type of the response.
+   * @return the response of the request, or of the first request sent with the key.
+   * @throws IdempotencyKeyConflictException IDM-001 if the first request with the key is still
+   *     running, IDM-002 if the key was sent with a different request.
+   * @throws Exception any exception of the callable.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> ResponseEntity<T> execute(
+      final String idempotencyKey,
+      final String endpoint,
+      final String caller,
+      final Object request,
+      final Callable<ResponseEntity<T>> callable)
+      throws Exception {
+    if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+      return callable.call();
+    }
+    final String digest = hmac(canonicalWriter.writeValueAsBytes(request));
+    final String key =
+        endpoint
+            + '\n'
+            + (caller != null ? hmac(caller.getBytes(StandardCharsets.UTF_8)) : digest)
+            + '\n'
+            + idempotencyKey;
+    final Entry entry = new Entry(digest);
+    final Entry existing;
+    synchronized (entries) {
+      Entry current = entries.get(key);
+      if (current != null && current.expiresAt < System.currentTimeMillis()) {
+        entries.remove(key);
+        current = null;
+      }
+      existing = current;
+      if (existing == null) {
+        entries.put(key, entry);
+      }
+    }
+    if (existing == null) {
+      try {
+        ResponseEntity<T> response = callable.call();
+        entry.expiresAt = System.currentTimeMillis() + ttlMillis;
+        entry.response.complete(response);
+        return response;
+      } catch (Exception | Error e) {
+        synchronized (entries) {
+          entries.remove(key, entry);
+        }
+        entry.response.completeExceptionally(e);
+        throw e;
+      }
+    }
+    if (!existing.requestDigest.equals(digest)) {
+      throw new IdempotencyKeyConflictException(
+          "IDM-002", "The idempotency key was already used for a different request");
+    }
+    if (!existing.response.isDone()) {
+      throw new IdempotencyKeyConflictException(
+          "IDM-001", "A request with the same idempotency key is still being processed");
+    }
+    final ResponseEntity<?> response;
+    try {
+      response = existing.response.join();
+    } catch (CompletionException e) {
+      // the first request failed after this one found it.
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw (Error) e.getCause();
+    }
+    replayed.increment();
+    HttpHeaders headers = new HttpHeaders();
+    headers.putAll(response.getHeaders());
+    headers.set(REPLAYED, "true");
+    return new ResponseEntity<T>((T) response.getBody(), headers, response.getStatusCode());
+  }
+
+  private String hmac(final byte[] bytes) {
+    try {
+      final Mac mac = Mac.getInstance(HMAC);
+      mac.init(secret);
+      return Base64.getEncoder().encodeToString(mac.doFinal(bytes));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Entry {
+
+    private final String requestDigest;
+
+    private final CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+
+    private volatile long expiresAt = Long.MAX_VALUE;
+
+    private Entry(final String requestDigest) {
+      this.requestDigest = requestDigest;
+    }
+  }
+}
@@ -0,0 +1,309 @@
+package com.upgrad.quora.api.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.upgrad.quora.api.config.BinaryFormats;
+import com.upgrad.quora.service.common.ResultStreamer;
+import com.upgrad.quora.service.common.Versioned;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Writes list responses row by row as they are read from the DB, instead of collecting the whole
+ * list first. The response is a JSON array or, if the client asks for it, newline delimited JSON
+ * with one object per line, or an array in one of the {@link BinaryFormats}. The output is flushed
+ * after the first row and then every {@value #FLUSH_EVERY} rows, so the client starts receiving
+ * the list while the query is still running and no more than a few rows are held in memory at any
+ * time.
+ *
+ * <p>Versioned lists small enough are also kept as written in the {@link ResponseCache}, and sent
+ * from there as long as their version does not change, gzipped for the clients accepting it.
+ */
+@Component
+public class JsonListWriter {
+
+  public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+  public static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+  private static final int FLUSH_EVERY = 64;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  @Autowired private BinaryFormats binaryFormats;
+
+  @Autowired private ResponseCache responseCache;
+
+  private final Map<Format, ObjectWriter> rowWriters = new EnumMap<>(Format.class);
+
+  @PostConstruct
+  public void init() {
+    rowWriters.put(Format.JSON, rowWriter(objectMapper));
+    rowWriters.put(Format.NDJSON, rowWriter(objectMapper));
+    rowWriters.put(Format.CBOR, rowWriter(binaryFormats.getCborMapper()));
+    rowWriters.put(Format.SMILE, rowWriter(binaryFormats.getSmileMapper()));
+  }
+
+  /**
+   * Gets the name of the representation a list is written in for the given Accept header, to tell
+   * the ETags of the representations apart.
+   *
+   * @param accept Accept header of the request, may be null.
+   * @return name of the representation.
+   */
+  public String representation(final String accept) {
+    return format(accept).name().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Builds the response streaming the given version of the rows, or an empty 304 response if the
+   * client already has that version. Clients are asked to revalidate their copy on every use. The
+   * body written is cached for the version, and the next responses for the same version are sent
+   * from the cache. Clients accepting gzip get a weak ETag, the body they get being gzipped.
+   *
+   * @param cacheKey endpoint and parameters of the request, identifying the list.
+   * @param accept Accept header of the request, may be null.
+   * @param acceptEncoding Accept-Encoding header of the request, may be null.
+   * @param rows rows to be written along with their ETag.
+   * @param toResponse mapping of a row to the object written for it.
+   * @param <T> type of the rows.
+   * @param <R> type of the objects written.
+   * @return response writing the rows once the body is written.
+   */
+  public <T, R> ResponseEntity<StreamingResponseBody> write(
+      final String cacheKey,
+      final String accept,
+      final String acceptEncoding,
+      final Versioned<ResultStreamer<T>> rows,
+      final Function<T, R> toResponse) {
+    final Format format = format(accept);
+    HttpHeaders headers = new HttpHeaders();
+    // Gzipped, from the cache or by the server, the body is not the one the strong ETag stands
+    // for; If-None-Match compares the ETags weakly, so the weak one still matches on revalidation.
+    if (acceptsGzip(acceptEncoding) && responseCache.isCompressible(format.mediaType)) {
+      headers.setETag("W/" + rows.getETag());
+    } else {
+      headers.setETag(rows.getETag());
+    }
+    headers.setCacheControl("private, no-cache");
+    headers.setVary(Arrays.asList(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING));
+    if (!rows.isModified()) {
+      return new ResponseEntity<StreamingResponseBody>(headers, HttpStatus.NOT_MODIFIED);
+    }
+    final String key = cacheKey + ' ' + format.name();
+    final ResponseCache.Entry cached = responseCache.get(key, rows.getETag());
+    if (cached != null) {
+      final byte[] body;
+      if (cached.getGzippedBody() != null && acceptsGzip(acceptEncoding)) {
+        body = cached.getGzippedBody();
+        headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+      } else {
+        body = cached.getBody();
+      }
+      headers.setContentType(cached.getContentType());
+      headers.setContentLength(body.length);
+      return new ResponseEntity<StreamingResponseBody>(
+          outputStream -> outputStream.write(body), headers, HttpStatus.OK);
+    }
+    final StreamingResponseBody body = body(format, rows.getContent(), toResponse);
+    headers.setContentType(format.mediaType);
+    return new ResponseEntity<StreamingResponseBody>(
+        outputStream -> {
+          CapturingOutputStream capture =
+              new CapturingOutputStream(outputStream, responseCache.getMaxEntryBytes());
+          body.writeTo(capture);
+          if (capture.isComplete()) {
+            responseCache.put(key, rows.getETag(), format.mediaType, capture.toByteArray());
+          }
+        },
+        headers,
+        HttpStatus.OK);
+  }
+
+  /**
+   * Builds the response streaming the given rows.
+   *
+   * @param accept Accept header of the request, may be null.
+   * @param rows rows to be written.
+   * @param toResponse mapping of a row to the object written for it.
+   * @param <T> type of the rows.
+   * @param <R> type of the objects written.
+   * @return response writing the rows once the body is written.
+   */
+  public <T, R> ResponseEntity<StreamingResponseBody> write(
+      final String accept, final ResultStreamer<T> rows, final Function<T, R> toResponse) {
+    final Format format = format(accept);
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(format.mediaType);
+    return new ResponseEntity<StreamingResponseBody>(
+        body(format, rows, toResponse), headers, HttpStatus.OK);
+  }
+
+  private <T, R> StreamingResponseBody body(
+      final Format format, final ResultStreamer<T> rows, final Function<T, R> toResponse) {
+    final ObjectWriter rowWriter = rowWriters.get(format);
+    return outputStream -> {
+      try (JsonGenerator generator = rowWriter.getFactory().createGenerator(outputStream)) {
+        if (format == Format.NDJSON) {
+          generator.setRootValueSeparator(null);
+        } else {
+          generator.writeStartArray();
+        }
+        final int[] written = {0};
+        rows.forEach(
+            row -> {
+              try {
+                rowWriter.writeValue(generator, toResponse.apply(row));
+                if (format == Format.NDJSON) {
+                  generator.writeRaw('\n');
+                }
+                if (++written[0] % FLUSH_EVERY == 1) {
+                  generator.flush();
+                }
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+        if (format != Format.NDJSON) {
+          generator.writeEndArray();
+        }
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    };
+  }
+
+  private static ObjectWriter rowWriter(final ObjectMapper mapper) {
+    return mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  // the format preferred by the Accept header, JSON unless another one is preferred to it.
+  private static Format format(final String accept) {
+    if (accept == null || accept.isEmpty()) {
+      return Format.JSON;
+    }
+    List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+    MediaType.sortBySpecificityAndQuality(mediaTypes);
+    for (MediaType mediaType : mediaTypes) {
+      for (Format format : Format.values()) {
+        if (format != Format.JSON && isType(mediaType, format.mediaType)) {
+          return format;
+        }
+      }
+      if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+        return Format.JSON;
+      }
+    }
+    return Format.JSON;
+  }
+
+  // whether the Accept-Encoding header lists gzip, or any encoding, without q=0.
+  private static boolean acceptsGzip(final String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String candidate : acceptEncoding.split(",")) {
+      String[] parameters = candidate.trim().split(";");
+      String coding = parameters[0].trim();
+      if (coding.equalsIgnoreCase("gzip") || coding.equals("*")) {
+        for (int i = 1; i < parameters.length; i++) {
+          if (parameters[i].trim().matches("q=0(\\.0*)?")) {
+            return false;
+          }
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isType(final MediaType mediaType, final MediaType type) {
+    return type.getType().equals(mediaType.getType())
+        && type.getSubtype().equals(mediaType.getSubtype());
+  }
+
+  /**
+   * Passes the body on to the client while keeping a copy of it, as long as it is not larger than
+   * the limit.
+   */
+  private static final class CapturingOutputStream extends FilterOutputStream {
+
+    private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+    private final int limit;
+
+    private boolean overflowed;
+
+    private CapturingOutputStream(final OutputStream out, final int limit) {
+      super(out);
+      this.limit = limit;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      out.write(b);
+      capture(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      out.write(b, off, len);
+      capture(b, off, len);
+    }
+
+    // whether the whole body was copied.
+    private boolean isComplete() {
+      return !overflowed;
+    }
+
+    private byte[] toByteArray() {
+      return copy.toByteArray();
+    }
+
+    private void capture(final byte[] b, final int off, final int len) {
+      if (overflowed) {
+        return;
+      }
+      if (copy.size() + len > limit) {
+        overflowed = true;
+        copy.reset();
+        return;
+      }
+      copy.write(b, off, len);
+    }
+  }
+
+  /** Formats a list can be written in. */
+  private enum Format {
+    JSON(MediaType.APPLICATION_JSON_UTF8),
+    NDJSON(APPLICATION_NDJSON),
+    CBOR(BinaryFormats.APPLICATION_CBOR),
+    SMILE(BinaryFormats.APPLICATION_SMILE);
+
+    private final MediaType mediaType;
+
+    Format(final MediaType mediaType) {
+      this.mediaType = mediaType;
+    }
+  }
+}
@@ -1,19 +1,37 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.config.BinaryFormats;
+import com.upgrad.quora.api.config.WorkloadExecutors;
+import com.upgrad.quora.api.exception.IdempotencyKeyConflictException;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.QuestionService;
+import com.upgrad.quora.service.common.ResultStreamer;
+import com.upgrad.quora.service.common.Versioned;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.DuplicateQuestionException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.InvalidRequestException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.snapshot.AnswerSnapshot;
+import com.upgrad.quora.service.snapshot.AuthorSnapshot;
+import com.upgrad.quora.service.snapshot.QuestionSnapshot;
+import com.upgrad.quora.service.snapshot.QuestionThread;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/")
@@ -21,54 +39,205 @@ public class QuestionController {
 
   @Autowired private QuestionService questionService;
 
+  @Autowired private JsonListWriter jsonListWriter;
+
+  @Autowired private WorkloadExecutors workloadExecutors;
+
+  @Autowired private IdempotentRequests idempotentRequests;
+
   /**
    * Create a question
    *
    * @param questionRequest This object has the content i.e the question.
    * @param accessToken access token to authenticate user.
-   * @return UUID of the question created in DB.
+   * @param idempotencyKey key of the request, a retry with the same key gets the same response.
+   * @return UUID of the question created in DB along with the uuids of similar existing questions.
    * @throws AuthorizationFailedException In case the access token is invalid.
+   * @throws DuplicateQuestionException In case a similar question exists and duplicates are
+   *     rejected.
+   * @throws IdempotencyKeyConflictException In case the key was used for another question.
    */
   @RequestMapping(
       method = RequestMethod.POST,
       path = "/question/create",
-      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-  public ResponseEntity<QuestionResponse> createQuestion(
-      @RequestHeader("authorization") final String accessToken, QuestionRequest questionRequest)
-      throws AuthorizationFailedException {
-    QuestionEntity questionEntity = new QuestionEntity();
-    questionEntity.setContent(questionRequest.getContent());
-    questionEntity = questionService.createQuestion(questionEntity, accessToken);
-    QuestionResponse questionResponse = new QuestionResponse();
-    questionResponse.setId(questionEntity.getUuid());
-    questionResponse.setStatus("QUESTION CREATED");
-    return new ResponseEntity<QuestionResponse>(questionResponse, HttpStatus.CREATED);
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<QuestionResponse>> createQuestion(
+      @RequestHeader("authorization") final String accessToken,
+      @RequestHeader(value = IdempotentRequests.IDEMPOTENCY_KEY, required = false)
+          final String idempotencyKey,
+      QuestionRequest questionRequest) {
+    return workloadExecutors.write(
+        () ->
+            idempotentRequests.execute(
+                idempotencyKey,
+                "question/create",
+                accessToken,
+                questionRequest,
+                () -> {
+                  QuestionEntity questionEntity = new QuestionEntity();
+                  questionEntity.setContent(questionRequest.getContent());
+                  questionEntity = questionService.createQuestion(questionEntity, accessToken);
+                  QuestionResponse questionResponse = new QuestionResponse();
+                  questionResponse.setId(questionEntity.getUuid());
+                  questionResponse.setStatus("QUESTION CREATED");
+                  questionResponse.setSimilarQuestions(questionEntity.getSimilarQuestionUuids());
+                  return new ResponseEntity<QuestionResponse>(
+                      questionResponse, HttpStatus.CREATED);
+                }));
   }
 
   /**
    * Get all questions posted by any user.
    *
    * @param accessToken access token to authenticate user.
-   * @return List of QuestionDetailsResponse
+   * @param accept Accept header, asking for newline delimited JSON instead of a JSON array if it
+   *     prefers application/x-ndjson.
+   * @param acceptEncoding Accept-Encoding header, the list being sent gzipped from the cache if it
+   *     lists gzip.
+   * @param ifNoneMatch ETags of the versions of the list the client has.
+   * @return QuestionDetailsResponse of every question, streamed as they are read from the DB or
+   *     from the cache, or 304 if the list has not changed.
    * @throws AuthorizationFailedException In case the access token is invalid.
    */
   @RequestMapping(
       method = RequestMethod.GET,
       path = "/question/all",
-      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-  public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestions(
-      @RequestHeader("authorization") final String accessToken)
-      throws AuthorizationFailedException {
-    List<QuestionEntity> questions = questionService.getAllQuestions(accessToken);
-    List<QuestionDetailsResponse> questionDetailResponses = new ArrayList<>();
-    for (QuestionEntity questionEntity : questions) {
-      QuestionDetailsResponse questionDetailResponse = new QuestionDetailsResponse();
-      questionDetailResponse.setId(questionEntity.getUuid());
-      questionDetailResponse.setContent(questionEntity.getContent());
-      questionDetailResponses.add(questionDetailResponse);
-    }
-    return new ResponseEntity<List<QuestionDetailsResponse>>(
-        questionDetailResponses, HttpStatus.OK);
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        JsonListWriter.APPLICATION_NDJSON_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<StreamingResponseBody>> getAllQuestions(
+      @RequestHeader("authorization") final String accessToken,
+      @RequestHeader(value = "accept", required = false) final String accept,
+      @RequestHeader(value = "accept-encoding", required = false) final String acceptEncoding,
+      @RequestHeader(value = "if-none-match", required = false) final String ifNoneMatch) {
+    return workloadExecutors.read(
+        () -> {
+          Versioned<ResultStreamer<QuestionSnapshot>> questions =
+              questionService.getAllQuestions(
+                  accessToken, jsonListWriter.representation(accept), ifNoneMatch);
+          return jsonListWriter.write(
+              "/question/all", accept, acceptEncoding, questions, this::toQuestionDetailsResponse);
+        });
+  }
+
+  /**
+   * Get several questions at once with a single token check and a single query.
+   *
+   * @param accessToken access token to authenticate user.
+   * @param questionIds ids of the questions to be fetched.
+   * @return QuestionDetailsResponse of the questions found keyed by their id, and the ids not
+   *     found.
+   * @throws AuthorizationFailedException In case the access token is invalid.
+   * @throws InvalidRequestException In case no ids or too many ids are given.
+   */
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/question/batch",
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<QuestionDetailsBatchResponse>> getQuestions(
+      @RequestHeader("authorization") final String accessToken,
+      @RequestParam("ids") final List<String> questionIds) {
+    return workloadExecutors.read(
+        () -> {
+          Set<String> uniqueQuestionIds = new LinkedHashSet<>(questionIds);
+          Map<String, QuestionSnapshot> questions =
+              questionService.getQuestionsByIds(accessToken, uniqueQuestionIds);
+          QuestionDetailsBatchResponse questionDetailsBatchResponse =
+              new QuestionDetailsBatchResponse()
+                  .questions(new LinkedHashMap<>())
+                  .missingIds(new ArrayList<>());
+          for (String questionId : uniqueQuestionIds) {
+            QuestionSnapshot question = questions.get(questionId);
+            if (question == null) {
+              questionDetailsBatchResponse.addMissingIdsItem(questionId);
+            } else {
+              questionDetailsBatchResponse.putQuestionsItem(
+                  questionId, toQuestionDetailsResponse(question));
+            }
+          }
+          return new ResponseEntity<QuestionDetailsBatchResponse>(
+              questionDetailsBatchResponse, HttpStatus.OK);
+        });
+  }
+
+  /**
+   * Get a question along with a page of its answers and their authors, in place of fetching the
+   * question, its answers and the profile of every author separately.
+   *
+   * @param accessToken access token to authenticate user.
+   * @param questionId id of the question.
+   * @param page zero based index of the page of answers.
+   * @param size number of answers per page.
+   * @return the question, the answers on the page, oldest first, and each of their authors once.
+   * @throws AuthorizationFailedException In case the access token is invalid.
+   * @throws InvalidQuestionException if question with questionId doesn't exist.
+   * @throws InvalidRequestException In case the page or the size is out of range.
+   */
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/question/{questionId}/thread",
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<QuestionThreadResponse>> getQuestionThread(
+      @RequestHeader("authorization") final String accessToken,
+      @PathVariable("questionId") final String questionId,
+      @RequestParam(value = "page", defaultValue = "0") final int page,
+      @RequestParam(value = "size", defaultValue = "20") final int size) {
+    return workloadExecutors.read(
+        () -> {
+          QuestionThread thread =
+              questionService.getQuestionThread(accessToken, questionId, page, size);
+          QuestionSnapshot question = thread.getQuestion();
+          QuestionThreadQuestion threadQuestion =
+              new QuestionThreadQuestion()
+                  .id(question.getUuid())
+                  .content(question.getContent())
+                  .authorId(question.getAuthorUuid())
+                  .answerCount(question.getAnswerCount());
+          if (question.getLastActivityAt() != null) {
+            threadQuestion.setLastActivityAt(
+                question.getLastActivityAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+          }
+          QuestionThreadResponse questionThreadResponse =
+              new QuestionThreadResponse()
+                  .question(threadQuestion)
+                  .answers(new ArrayList<>())
+                  .authors(new LinkedHashMap<>())
+                  .page(page)
+                  .size(size);
+          for (AnswerSnapshot answer : thread.getAnswers()) {
+            questionThreadResponse.addAnswersItem(
+                new QuestionThreadAnswer()
+                    .id(answer.getUuid())
+                    .content(answer.getAnswer())
+                    .authorId(answer.getAuthorUuid())
+                    .date(answer.getDate().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)));
+          }
+          for (AuthorSnapshot author : thread.getAuthors().values()) {
+            questionThreadResponse.putAuthorsItem(
+                author.getUuid(),
+                new AuthorSummary()
+                    .id(author.getUuid())
+                    .userName(author.getUserName())
+                    .firstName(author.getFirstName())
+                    .lastName(author.getLastName()));
+          }
+          return new ResponseEntity<QuestionThreadResponse>(questionThreadResponse, HttpStatus.OK);
+        });
   }
 
   /**
@@ -84,18 +253,25 @@ public class QuestionController {
   @RequestMapping(
       method = RequestMethod.PUT,
       path = "/question/edit/{questionId}",
-      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-  public ResponseEntity<QuestionEditResponse> editQuestion(
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<QuestionEditResponse>> editQuestion(
       @RequestHeader("authorization") final String accessToken,
       @PathVariable("questionId") final String questionId,
-      QuestionEditRequest questionEditRequest)
-      throws AuthorizationFailedException, InvalidQuestionException {
-    QuestionEntity questionEntity =
-        questionService.editQuestion(accessToken, questionId, questionEditRequest.getContent());
-    QuestionEditResponse questionEditResponse = new QuestionEditResponse();
-    questionEditResponse.setId(questionEntity.getUuid());
-    questionEditResponse.setStatus("QUESTION EDITED");
-    return new ResponseEntity<QuestionEditResponse>(questionEditResponse, HttpStatus.OK);
+      QuestionEditRequest questionEditRequest) {
+    return workloadExecutors.write(
+        () -> {
+          QuestionEntity questionEntity =
+              questionService.editQuestion(
+                  accessToken, questionId, questionEditRequest.getContent());
+          QuestionEditResponse questionEditResponse = new QuestionEditResponse();
+          questionEditResponse.setId(questionEntity.getUuid());
+          questionEditResponse.setStatus("QUESTION EDITED");
+          return new ResponseEntity<QuestionEditResponse>(questionEditResponse, HttpStatus.OK);
+        });
   }
 
   /**
@@ -108,16 +284,17 @@ public class QuestionController {
    * @throws InvalidQuestionException if question with questionId doesn't exist.
    */
   @RequestMapping(method = RequestMethod.DELETE, path = "/question/delete/{questionId}")
-  public ResponseEntity<QuestionDeleteResponse> deleteQuestion(
+  public WebAsyncTask<ResponseEntity<QuestionDeleteResponse>> deleteQuestion(
       @RequestHeader("authorization") final String accessToken,
-      @PathVariable("questionId") final String questionId)
-      throws AuthorizationFailedException, InvalidQuestionException {
-
-    QuestionEntity questionEntity = questionService.deleteQuestion(accessToken, questionId);
-    QuestionDeleteResponse questionDeleteResponse = new QuestionDeleteResponse();
-    questionDeleteResponse.setId(questionEntity.getUuid());
-    questionDeleteResponse.setStatus("QUESTION DELETED");
-    return new ResponseEntity<QuestionDeleteResponse>(questionDeleteResponse, HttpStatus.OK);
+      @PathVariable("questionId") final String questionId) {
+    return workloadExecutors.write(
+        () -> {
+          QuestionEntity questionEntity = questionService.deleteQuestion(accessToken, questionId);
+          QuestionDeleteResponse questionDeleteResponse = new QuestionDeleteResponse();
+          questionDeleteResponse.setId(questionEntity.getUuid());
+          questionDeleteResponse.setStatus("QUESTION DELETED");
+          return new ResponseEntity<QuestionDeleteResponse>(questionDeleteResponse, HttpStatus.OK);
+        });
   }
 
   /**
@@ -125,27 +302,41 @@ public class QuestionController {
    *
    * @param userId of the user for whom we want to see the questions asked by him
    * @param accessToken access token to authenticate user.
-   * @return List of QuestionDetailsResponse
+   * @param accept Accept header, asking for newline delimited JSON instead of a JSON array if it
+   *     prefers application/x-ndjson.
+   * @return QuestionDetailsResponse of every question, streamed as they are read from the DB.
    * @throws AuthorizationFailedException In case the access token is invalid.
    */
   @RequestMapping(
       method = RequestMethod.GET,
       path = "question/all/{userId}",
-      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-  public ResponseEntity<List<QuestionDetailsResponse>> getQuestionByUserId(
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        JsonListWriter.APPLICATION_NDJSON_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<StreamingResponseBody>> getQuestionByUserId(
       @RequestHeader("authorization") final String accessToken,
-      @PathVariable("userId") String userId)
-      throws AuthorizationFailedException, UserNotFoundException {
+      @RequestHeader(value = "accept", required = false) final String accept,
+      @PathVariable("userId") String userId) {
+    return workloadExecutors.read(
+        () -> {
+          ResultStreamer<QuestionSnapshot> questions =
+              questionService.getAllQuestionsByUser(userId, accessToken);
+          return jsonListWriter.write(accept, questions, this::toQuestionDetailsResponse);
+        });
+  }
 
-    List<QuestionEntity> questions = questionService.getAllQuestionsByUser(userId, accessToken);
-    List<QuestionDetailsResponse> questionDetailResponses = new ArrayList<>();
-    for (QuestionEntity questionEntity : questions) {
-      QuestionDetailsResponse questionDetailResponse = new QuestionDetailsResponse();
-      questionDetailResponse.setId(questionEntity.getUuid());
-      questionDetailResponse.setContent(questionEntity.getContent());
-      questionDetailResponses.add(questionDetailResponse);
+  private QuestionDetailsResponse toQuestionDetailsResponse(final QuestionSnapshot question) {
+    QuestionDetailsResponse questionDetailResponse = new QuestionDetailsResponse();
+    questionDetailResponse.setId(question.getUuid());
+    questionDetailResponse.setContent(question.getContent());
+    questionDetailResponse.setAnswerCount(question.getAnswerCount());
+    if (question.getLastActivityAt() != null) {
+      questionDetailResponse.setLastActivityAt(
+          question.getLastActivityAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
     }
-    return new ResponseEntity<List<QuestionDetailsResponse>>(
-        questionDetailResponses, HttpStatus.OK);
+    return questionDetailResponse;
   }
 }
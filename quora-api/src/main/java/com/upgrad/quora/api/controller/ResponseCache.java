@@ -0,0 +1,227 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.service.common.ContentVersions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of the bodies of list responses as written to the client, keyed by endpoint, parameters
+ * and representation, so that a list which has not changed is sent again without reading the DB,
+ * mapping the rows or encoding them. A body is only valid for the ETag it was written for: once a
+ * mutation bumps the version of the list, the next request for it misses and replaces the body. A
+ * body written for an older version than the one cached, by a request which read the list before
+ * the mutation but finished writing after, does not replace it.
+ *
+ * <p>Memory is bounded in bytes: at most {@code quora.cache.responses.max-bytes} are held, the
+ * least recently used bodies being dropped first, and bodies larger than {@code
+ * quora.cache.responses.max-entry-bytes} are not cached. Bodies eligible to the {@code
+ * server.compression} settings are also kept gzipped, counting both copies, so that they are not
+ * compressed again for every client accepting gzip. Lookups are counted in the {@code cache.gets}
+ * metric tagged with {@code name=responses}; {@code cache.size} is the number of bodies and {@code
+ * cache.bytes} their size.
+ */
+@Component
+public class ResponseCache {
+
+  private static final String NAME = "responses";
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Autowired private ServerProperties serverProperties;
+
+  @Value("${quora.cache.responses.max-bytes:33554432}")
+  private long maxBytes;
+
+  @Value("${quora.cache.responses.max-entry-bytes:1048576}")
+  private int maxEntryBytes;
+
+  private final Object lock = new Object();
+
+  // key -> body, in the order they were last used.
+  private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long bytes;
+
+  private Counter hits;
+
+  private Counter misses;
+
+  @PostConstruct
+  public void init() {
+    hits = meterRegistry.counter("cache.gets", "name", NAME, "result", "hit");
+    misses = meterRegistry.counter("cache.gets", "name", NAME, "result", "miss");
+    meterRegistry.gauge("cache.size", Tags.of("name", NAME), this, ResponseCache::size);
+    meterRegistry.gauge("cache.bytes", Tags.of("name", NAME), this, ResponseCache::bytes);
+  }
+
+  /**
+   * Gets the size of the largest body cached.
+   *
+   * @return maximum number of bytes of a body.
+   */
+  public int getMaxEntryBytes() {
+    return maxEntryBytes;
+  }
+
+  /**
+   * Gets the body cached for a list, if it was written for the current version of the list.
+   *
+   * @param key endpoint, parameters and representation of the list.
+   * @param eTag current ETag of the list.
+   * @return the body, or null if none is cached for the current version.
+   */
+  public Entry get(final String key, final String eTag) {
+    synchronized (lock) {
+      Entry entry = entries.get(key);
+      if (entry != null && entry.eTag.equals(eTag)) {
+        hits.increment();
+        return entry;
+      }
+    }
+    misses.increment();
+    return null;
+  }
+
+  /**
+   * Caches the body of a list, replacing the body of an older version, unless a newer version is
+   * cached already.
+   *
+   * @param key endpoint, parameters and representation of the list.
+   * @param eTag ETag of the version of the list the body was written for.
+   * @param contentType content type of the body.
+   * @param body the body, at most {@link #getMaxEntryBytes()} bytes long.
+   */
+  public void put(
+      final String key, final String eTag, final MediaType contentType, final byte[] body) {
+    final Entry entry = new Entry(eTag, contentType, body, gzip(contentType, body));
+    synchronized (lock) {
+      Entry cached = entries.get(key);
+      if (cached != null && ContentVersions.isOlder(eTag, cached.eTag)) {
+        return;
+      }
+      Entry replaced = entries.put(key, entry);
+      if (replaced != null) {
+        bytes -= replaced.size();
+      }
+      bytes += entry.size();
+      Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+      while (bytes > maxBytes && leastRecentlyUsed.hasNext()) {
+        bytes -= leastRecentlyUsed.next().size();
+        leastRecentlyUsed.remove();
+      }
+    }
+  }
+
+  /**
+   * Gets the number of bodies cached.
+   *
+   * @return the number of bodies.
+   */
+  public int size() {
+    synchronized (lock) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Gets the memory held by the bodies cached.
+   *
+   * @return the number of bytes of the bodies, counting the gzipped ones.
+   */
+  public long bytes() {
+    synchronized (lock) {
+      return bytes;
+    }
+  }
+
+  /**
+   * Tells whether bodies of a content type may be sent gzipped, by this cache or by the server
+   * compressing the response, under the {@code server.compression} settings.
+   *
+   * @param contentType content type of the body.
+   * @return whether the body is sent gzipped to clients accepting gzip, unless it is too short.
+   */
+  public boolean isCompressible(final MediaType contentType) {
+    final Compression compression = serverProperties.getCompression();
+    if (!compression.getEnabled()) {
+      return false;
+    }
+    for (String mimeType : compression.getMimeTypes()) {
+      if (MediaType.parseMediaType(mimeType).includes(contentType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // the body gzipped if it is eligible to compression and shrinks, null otherwise.
+  private byte[] gzip(final MediaType contentType, final byte[] body) {
+    if (body.length < serverProperties.getCompression().getMinResponseSize()
+        || !isCompressible(contentType)) {
+      return null;
+    }
+    final ByteArrayOutputStream gzipped = new ByteArrayOutputStream(body.length / 4);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+      gzip.write(body);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return gzipped.size() < body.length ? gzipped.toByteArray() : null;
+  }
+
+  /** Body of a list response, ready to be written. */
+  public static final class Entry {
+
+    private final String eTag;
+
+    private final MediaType contentType;
+
+    private final byte[] body;
+
+    private final byte[] gzippedBody;
+
+    private Entry(
+        final String eTag,
+        final MediaType contentType,
+        final byte[] body,
+        final byte[] gzippedBody) {
+      this.eTag = eTag;
+      this.contentType = contentType;
+      this.body = body;
+      this.gzippedBody = gzippedBody;
+    }
+
+    public MediaType getContentType() {
+      return contentType;
+    }
+
+    public byte[] getBody() {
+      return body;
+    }
+
+    /** @return the body gzipped, or null if it is not worth compressing. */
+    public byte[] getGzippedBody() {
+      return gzippedBody;
+    }
+
+    private long size() {
+      return body.length + (gzippedBody == null ? 0 : gzippedBody.length);
+    }
+  }
+}
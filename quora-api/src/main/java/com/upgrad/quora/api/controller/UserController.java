@@ -1,13 +1,19 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.config.BinaryFormats;
+import com.upgrad.quora.api.config.WorkloadExecutors;
+import com.upgrad.quora.api.exception.IdempotencyKeyConflictException;
 import com.upgrad.quora.api.model.SigninResponse;
 import com.upgrad.quora.api.model.SignoutResponse;
 import com.upgrad.quora.api.model.SignupUserRequest;
 import com.upgrad.quora.api.model.SignupUserResponse;
+import com.upgrad.quora.api.model.UserSuggestionResponse;
+import com.upgrad.quora.service.business.CommonUserService;
 import com.upgrad.quora.service.business.UserAuthenticationService;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthenticationFailedException;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.SignOutRestrictedException;
 import com.upgrad.quora.service.exception.SignUpRestrictedException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,9 +24,14 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/")
@@ -28,39 +39,61 @@ public class UserController {
 
   @Autowired private UserAuthenticationService userAuthService;
 
+  @Autowired private CommonUserService commonUserService;
+
+  @Autowired private WorkloadExecutors workloadExecutors;
+
+  @Autowired private IdempotentRequests idempotentRequests;
+
   /**
    * This method is for user signup. This method receives the object of SignupUserRequest type with
    * its attributes being set.
    *
+   * @param idempotencyKey - key of the request, a retry with the same key gets the same response.
    * @return SignupUserResponse - UUID of the user created.
    * @throws SignUpRestrictedException - if the username or email already exist in the database.
+   * @throws IdempotencyKeyConflictException - if the key was used for another signup.
    */
   @RequestMapping(
       method = RequestMethod.POST,
       path = "/user/signup",
       consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
-      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-  public ResponseEntity<SignupUserResponse> signup(SignupUserRequest signupUserRequest)
-      throws SignUpRestrictedException {
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<SignupUserResponse>> signup(
+      @RequestHeader(value = IdempotentRequests.IDEMPOTENCY_KEY, required = false)
+          final String idempotencyKey,
+      SignupUserRequest signupUserRequest) {
+    return workloadExecutors.auth(
+        () ->
+            idempotentRequests.execute(
+                idempotencyKey,
+                "user/signup",
+                null,
+                signupUserRequest,
+                () -> {
+                  UserEntity userEntity = new UserEntity();
+                  userEntity.setFirstName(signupUserRequest.getFirstName());
+                  userEntity.setLastName(signupUserRequest.getLastName());
+                  userEntity.setUserName(signupUserRequest.getUserName());
+                  userEntity.setEmail(signupUserRequest.getEmailAddress());
+                  userEntity.setPassword(signupUserRequest.getPassword());
+                  userEntity.setCountry(signupUserRequest.getCountry());
+                  userEntity.setAboutMe(signupUserRequest.getAboutMe());
+                  userEntity.setDob(signupUserRequest.getDob());
+                  userEntity.setRole("nonadmin");
+                  userEntity.setContactNumber(signupUserRequest.getContactNumber());
 
-    UserEntity userEntity = new UserEntity();
-    userEntity.setFirstName(signupUserRequest.getFirstName());
-    userEntity.setLastName(signupUserRequest.getLastName());
-    userEntity.setUserName(signupUserRequest.getUserName());
-    userEntity.setEmail(signupUserRequest.getEmailAddress());
-    userEntity.setPassword(signupUserRequest.getPassword());
-    userEntity.setCountry(signupUserRequest.getCountry());
-    userEntity.setAboutMe(signupUserRequest.getAboutMe());
-    userEntity.setDob(signupUserRequest.getDob());
-    userEntity.setRole("nonadmin");
-    userEntity.setContactNumber(signupUserRequest.getContactNumber());
-
-    UserEntity createdUserEntity = userAuthService.signup(userEntity);
-    SignupUserResponse userResponse =
-        new SignupUserResponse()
-            .id(createdUserEntity.getUuid())
-            .status("USER SUCCESSFULLY REGISTERED");
-    return new ResponseEntity<SignupUserResponse>(userResponse, HttpStatus.CREATED);
+                  UserEntity createdUserEntity = userAuthService.signup(userEntity);
+                  SignupUserResponse userResponse =
+                      new SignupUserResponse()
+                          .id(createdUserEntity.getUuid())
+                          .status("USER SUCCESSFULLY REGISTERED");
+                  return new ResponseEntity<SignupUserResponse>(userResponse, HttpStatus.CREATED);
+                }));
   }
 
   /**
@@ -75,24 +108,29 @@ public class UserController {
   @RequestMapping(
       method = RequestMethod.POST,
       path = "/user/signin",
-      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-  public ResponseEntity<SigninResponse> signin(
-      @RequestHeader("authorization") final String authorization)
-      throws AuthenticationFailedException {
-
-    byte[] decode = Base64.getDecoder().decode(authorization.split("Basic ")[1]);
-    String decodedText = new String(decode);
-    String[] decodedArray = decodedText.split(":");
-    UserAuthEntity userAuthEntity = userAuthService.signin(decodedArray[0], decodedArray[1]);
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<SigninResponse>> signin(
+      @RequestHeader("authorization") final String authorization) {
+    return workloadExecutors.auth(
+        () -> {
+          byte[] decode = Base64.getDecoder().decode(authorization.split("Basic ")[1]);
+          String decodedText = new String(decode);
+          String[] decodedArray = decodedText.split(":");
+          UserAuthEntity userAuthEntity = userAuthService.signin(decodedArray[0], decodedArray[1]);
 
-    HttpHeaders headers = new HttpHeaders();
-    headers.add("access-token", userAuthEntity.getAccessToken());
+          HttpHeaders headers = new HttpHeaders();
+          headers.add("access-token", userAuthEntity.getAccessToken());
 
-    SigninResponse signinResponse = new SigninResponse();
-    signinResponse.setId(userAuthEntity.getUserEntity().getUuid());
-    signinResponse.setMessage("SIGNED IN SUCCESSFULLY");
+          SigninResponse signinResponse = new SigninResponse();
+          signinResponse.setId(userAuthEntity.getUserEntity().getUuid());
+          signinResponse.setMessage("SIGNED IN SUCCESSFULLY");
 
-    return new ResponseEntity<SigninResponse>(signinResponse, headers, HttpStatus.OK);
+          return new ResponseEntity<SigninResponse>(signinResponse, headers, HttpStatus.OK);
+        });
   }
 
   /**
@@ -105,12 +143,58 @@ public class UserController {
   @RequestMapping(
       method = RequestMethod.POST,
       path = "/user/signout",
-      produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-  public ResponseEntity<SignoutResponse> signout(
-      @RequestHeader("authorization") final String accessToken) throws SignOutRestrictedException {
-    UserEntity userEntity = userAuthService.signout(accessToken);
-    SignoutResponse signoutResponse =
-        new SignoutResponse().id(userEntity.getUuid()).message("SIGNED OUT SUCCESSFULLY");
-    return new ResponseEntity<SignoutResponse>(signoutResponse, HttpStatus.OK);
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<SignoutResponse>> signout(
+      @RequestHeader("authorization") final String accessToken) {
+    return workloadExecutors.auth(
+        () -> {
+          UserEntity userEntity = userAuthService.signout(accessToken);
+          SignoutResponse signoutResponse =
+              new SignoutResponse().id(userEntity.getUuid()).message("SIGNED OUT SUCCESSFULLY");
+          return new ResponseEntity<SignoutResponse>(signoutResponse, HttpStatus.OK);
+        });
+  }
+
+  /**
+   * This method is used to get the users whose username starts with the given prefix, e.g. to
+   * autocomplete a mention.
+   *
+   * @param accessToken Token used for authenticating the user.
+   * @param prefix prefix the usernames should start with.
+   * @param limit maximum number of users to be returned.
+   * @return List of UserSuggestionResponse in lexicographic order of the username.
+   * @throws AuthorizationFailedException ATHR-001 if the token doesn't exist in the DB, ATHR-002 if
+   *     the user has already logged out using the token.
+   */
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/user/suggest",
+      produces = {
+        MediaType.APPLICATION_JSON_UTF8_VALUE,
+        BinaryFormats.APPLICATION_CBOR_VALUE,
+        BinaryFormats.APPLICATION_SMILE_VALUE
+      })
+  public WebAsyncTask<ResponseEntity<List<UserSuggestionResponse>>> suggestUsers(
+      @RequestHeader("authorization") final String accessToken,
+      @RequestParam("prefix") final String prefix,
+      @RequestParam(value = "limit", defaultValue = "10") final int limit) {
+    return workloadExecutors.read(
+        () -> {
+          commonUserService.checkIfTokenIsValid(accessToken);
+          Map<String, String> suggestions = commonUserService.getUserNameSuggestions(prefix, limit);
+          List<UserSuggestionResponse> userSuggestionResponses = new ArrayList<>();
+          for (Map.Entry<String, String> suggestion : suggestions.entrySet()) {
+            userSuggestionResponses.add(
+                new UserSuggestionResponse()
+                    .id(suggestion.getValue())
+                    .userName(suggestion.getKey()));
+          }
+          return new ResponseEntity<List<UserSuggestionResponse>>(
+              userSuggestionResponses, HttpStatus.OK);
+        });
   }
 }
@@ -0,0 +1,42 @@
+package com.upgrad.quora.api.exception;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+/**
+ * IdempotencyKeyConflictException is thrown when an Idempotency-Key is reused for a different
+ * request, or while the first request sent with it is still being processed.
+ */
+public class IdempotencyKeyConflictException extends Exception {
+  private final String code;
+  private final String errorMessage;
+
+  public IdempotencyKeyConflictException(final String code, final String errorMessage) {
+    super(null, null, false, false);
+    this.code = code;
+    this.errorMessage = errorMessage;
+  }
+
+  @Override
+  public void printStackTrace() {
+    super.printStackTrace();
+  }
+
+  @Override
+  public void printStackTrace(PrintStream s) {
+    super.printStackTrace(s);
+  }
+
+  @Override
+  public void printStackTrace(PrintWriter s) {
+    super.printStackTrace(s);
+  }
+
+  public String getCode() {
+    return code;
+  }
+
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+}
@@ -2,12 +2,15 @@ package com.upgrad.quora.api.exception;
 
 import com.upgrad.quora.api.model.ErrorResponse;
 import com.upgrad.quora.service.exception.*;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @ControllerAdvice
 public class RestExceptionHandler {
 
@@ -66,4 +69,45 @@ public class RestExceptionHandler {
         new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()),
         HttpStatus.NOT_FOUND);
   }
+
+  @ExceptionHandler(DuplicateQuestionException.class)
+  public ResponseEntity<ErrorResponse> duplicateQuestionException(
+      DuplicateQuestionException exception, WebRequest request) {
+    return new ResponseEntity<ErrorResponse>(
+        new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()),
+        HttpStatus.CONFLICT);
+  }
+
+  @ExceptionHandler(InvalidRequestException.class)
+  public ResponseEntity<ErrorResponse> invalidRequestException(
+      InvalidRequestException exception, WebRequest request) {
+    return new ResponseEntity<ErrorResponse>(
+        new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()),
+        HttpStatus.BAD_REQUEST);
+  }
+
+  @ExceptionHandler(IdempotencyKeyConflictException.class)
+  public ResponseEntity<ErrorResponse> idempotencyKeyConflictException(
+      IdempotencyKeyConflictException exception, WebRequest request) {
+    HttpHeaders headers = new HttpHeaders();
+    if (exception.getCode().equals("IDM-001")) {
+      // the first request with the key is still running: its response can be replayed soon.
+      headers.set(HttpHeaders.RETRY_AFTER, "1");
+    }
+    return new ResponseEntity<ErrorResponse>(
+        new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()),
+        headers,
+        HttpStatus.CONFLICT);
+  }
+
+  @ExceptionHandler(RejectedExecutionException.class)
+  public ResponseEntity<ErrorResponse> rejectedExecutionException(
+      RejectedExecutionException exception, WebRequest request) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, "1");
+    return new ResponseEntity<ErrorResponse>(
+        new ErrorResponse().code("SRV-001").message("Server is busy, try again later"),
+        headers,
+        HttpStatus.SERVICE_UNAVAILABLE);
+  }
 }
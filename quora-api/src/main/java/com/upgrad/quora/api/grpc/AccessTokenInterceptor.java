@@ -0,0 +1,41 @@
+package com.upgrad.quora.api.grpc;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Makes the access token sent in the "authorization" metadata of a call available to the service
+ * methods, as the REST endpoints get it from the header of the same name. The token is only
+ * passed on: it is checked by the business services, exactly as for the REST endpoints.
+ */
+@Component
+public class AccessTokenInterceptor implements ServerInterceptor {
+
+  static final Metadata.Key<String> AUTHORIZATION =
+      Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER);
+
+  private static final Context.Key<String> ACCESS_TOKEN = Context.key("access-token");
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      final ServerCall<ReqT, RespT> call,
+      final Metadata headers,
+      final ServerCallHandler<ReqT, RespT> next) {
+    Context context = Context.current().withValue(ACCESS_TOKEN, headers.get(AUTHORIZATION));
+    return Contexts.interceptCall(context, call, headers, next);
+  }
+
+  /**
+   * Gets the access token of the call being handled by the current thread.
+   *
+   * @return the access token, null if the call has none.
+   */
+  static String currentAccessToken() {
+    return ACCESS_TOKEN.get();
+  }
+}
@@ -0,0 +1,95 @@
+package com.upgrad.quora.api.grpc;
+
+import com.upgrad.quora.api.grpc.proto.Answer;
+import com.upgrad.quora.api.grpc.proto.AnswerServiceGrpc;
+import com.upgrad.quora.api.grpc.proto.CreateAnswerRequest;
+import com.upgrad.quora.api.grpc.proto.CreateAnswerResponse;
+import com.upgrad.quora.api.grpc.proto.DeleteAnswerRequest;
+import com.upgrad.quora.api.grpc.proto.DeleteAnswerResponse;
+import com.upgrad.quora.api.grpc.proto.EditAnswerRequest;
+import com.upgrad.quora.api.grpc.proto.EditAnswerResponse;
+import com.upgrad.quora.api.grpc.proto.ListAnswersRequest;
+import com.upgrad.quora.service.business.AnswerService;
+import com.upgrad.quora.service.entity.AnswerEntity;
+import io.grpc.stub.StreamObserver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/** gRPC counterpart of the answer endpoints, streaming the answers to a question. */
+@Component
+public class AnswerGrpcService extends AnswerServiceGrpc.AnswerServiceImplBase {
+
+  @Autowired private AnswerService answerService;
+
+  @Autowired private GrpcCalls grpcCalls;
+
+  @Override
+  public void createAnswer(
+      final CreateAnswerRequest request,
+      final StreamObserver<CreateAnswerResponse> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.write(
+        responseObserver,
+        () -> {
+          AnswerEntity answerEntity = new AnswerEntity();
+          answerEntity.setAnswer(request.getAnswer());
+          answerEntity =
+              answerService.createAnswer(answerEntity, accessToken, request.getQuestionId());
+          return CreateAnswerResponse.newBuilder()
+              .setId(answerEntity.getUuid())
+              .setStatus("ANSWER CREATED")
+              .build();
+        });
+  }
+
+  @Override
+  public void listAnswers(
+      final ListAnswersRequest request, final StreamObserver<Answer> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.stream(
+        responseObserver,
+        () ->
+            answerService
+                .getAllAnswersToQuestion(request.getQuestionId(), accessToken, "grpc", null)
+                .getContent(),
+        answer ->
+            Answer.newBuilder()
+                .setId(answer.getUuid())
+                .setQuestionContent(answer.getQuestionContent())
+                .setAnswerContent(answer.getAnswer())
+                .build());
+  }
+
+  @Override
+  public void editAnswer(
+      final EditAnswerRequest request, final StreamObserver<EditAnswerResponse> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.write(
+        responseObserver,
+        () -> {
+          AnswerEntity answerEntity =
+              answerService.editAnswer(accessToken, request.getAnswerId(), request.getContent());
+          return EditAnswerResponse.newBuilder()
+              .setId(answerEntity.getUuid())
+              .setStatus("ANSWER EDITED")
+              .build();
+        });
+  }
+
+  @Override
+  public void deleteAnswer(
+      final DeleteAnswerRequest request,
+      final StreamObserver<DeleteAnswerResponse> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.write(
+        responseObserver,
+        () -> {
+          AnswerEntity answerEntity =
+              answerService.deleteAnswer(request.getAnswerId(), accessToken);
+          return DeleteAnswerResponse.newBuilder()
+              .setId(answerEntity.getUuid())
+              .setStatus("ANSWER DELETED")
+              .build();
+        });
+  }
+}
@@ -0,0 +1,270 @@
+package com.upgrad.quora.api.grpc;
+
+import com.upgrad.quora.api.config.WorkloadExecutors;
+import com.upgrad.quora.service.common.ResultStreamer;
+import com.upgrad.quora.service.exception.AnswerNotFoundException;
+import com.upgrad.quora.service.exception.AuthenticationFailedException;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.DuplicateQuestionException;
+import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.InvalidRequestException;
+import com.upgrad.quora.service.exception.SignOutRestrictedException;
+import com.upgrad.quora.service.exception.SignUpRestrictedException;
+import com.upgrad.quora.service.exception.UserNotFoundException;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Runs the calls of the gRPC services on the same bounded executors as the REST endpoints, so that
+ * both APIs share one budget of threads per workload, and turns the business exceptions into the
+ * status a gRPC client expects. The error code of the REST API is sent along in the {@code
+ * error-code} trailer and its message as the status description.
+ */
+@Component
+public class GrpcCalls {
+
+  static final Metadata.Key<String> ERROR_CODE =
+      Metadata.Key.of("error-code", Metadata.ASCII_STRING_MARSHALLER);
+
+  private static final Logger LOG = LoggerFactory.getLogger(GrpcCalls.class);
+
+  @Autowired private WorkloadExecutors workloadExecutors;
+
+  @Autowired private AsyncTaskExecutor streamingExecutor;
+
+  @Value("${quora.streaming.timeout-ms:60000}")
+  private long streamingTimeoutMillis;
+
+  /**
+   * Answers a call of the auth workload.
+   *
+   * @param responseObserver observer of the call.
+   * @param callable work producing the response.
+   * @param <T> type of the response.
+   */
+  public <T> void auth(final StreamObserver<T> responseObserver, final Callable<T> callable) {
+    unary(workloadExecutors.getAuthExecutor(), responseObserver, callable);
+  }
+
+  /**
+   * Answers a call of the reads workload.
+   *
+   * @param responseObserver observer of the call.
+   * @param callable work producing the response.
+   * @param <T> type of the response.
+   */
+  public <T> void read(final StreamObserver<T> responseObserver, final Callable<T> callable) {
+    unary(workloadExecutors.getReadExecutor(), responseObserver, callable);
+  }
+
+  /**
+   * Answers a call of the writes workload.
+   *
+   * @param responseObserver observer of the call.
+   * @param callable work producing the response.
+   * @param <T> type of the response.
+   */
+  public <T> void write(final StreamObserver<T> responseObserver, final Callable<T> callable) {
+    unary(workloadExecutors.getWriteExecutor(), responseObserver, callable);
+  }
+
+  /**
+   * Streams the rows of a list as they are read from the DB, one message per row, on the threads
+   * of the streamed REST responses. A row is only sent once the client is ready to receive it, so
+   * a slow client holds the DB cursor back instead of piling up messages in memory.
+   *
+   * @param responseObserver observer of the call.
+   * @param query lookup of the rows, authorizing the call.
+   * @param toMessage mapping of a row to its message.
+   * @param <T> type of the rows.
+   * @param <R> type of the messages.
+   */
+  public <T, R> void stream(
+      final StreamObserver<R> responseObserver,
+      final Callable<ResultStreamer<T>> query,
+      final Function<T, R> toMessage) {
+    final ServerCallStreamObserver<R> observer = (ServerCallStreamObserver<R>) responseObserver;
+    // The handlers have to be set before the service method returns.
+    final FlowControl flowControl = new FlowControl(observer);
+    submit(
+        streamingExecutor,
+        observer,
+        () -> {
+          ResultStreamer<T> rows = query.call();
+          rows.forEach(
+              row -> {
+                flowControl.awaitReady();
+                observer.onNext(toMessage.apply(row));
+              });
+          return null;
+        },
+        false);
+  }
+
+  private <T> void unary(
+      final AsyncTaskExecutor executor,
+      final StreamObserver<T> responseObserver,
+      final Callable<T> callable) {
+    submit(executor, responseObserver, callable, true);
+  }
+
+  private <T> void submit(
+      final AsyncTaskExecutor executor,
+      final StreamObserver<T> responseObserver,
+      final Callable<T> callable,
+      final boolean sendResult) {
+    try {
+      executor.execute(
+          () -> {
+            T result;
+            try {
+              result = callable.call();
+            } catch (Exception e) {
+              fail(responseObserver, e);
+              return;
+            }
+            if (sendResult) {
+              responseObserver.onNext(result);
+            }
+            responseObserver.onCompleted();
+          });
+    } catch (RejectedExecutionException e) {
+      fail(responseObserver, e);
+    }
+  }
+
+  private static void fail(final StreamObserver<?> responseObserver, final Exception e) {
+    if (responseObserver instanceof ServerCallStreamObserver
+        && ((ServerCallStreamObserver<?>) responseObserver).isCancelled()) {
+      return;
+    }
+    responseObserver.onError(toStatusException(e));
+  }
+
+  /**
+   * Maps an exception to the status of the call, with the same distinctions as the REST API.
+   *
+   * @param e exception thrown while handling the call.
+   * @return the status, along with the error code of the REST API for business errors.
+   */
+  static StatusRuntimeException toStatusException(final Exception e) {
+    if (e instanceof StatusRuntimeException) {
+      return (StatusRuntimeException) e;
+    } else if (e instanceof AuthorizationFailedException) {
+      AuthorizationFailedException exception = (AuthorizationFailedException) e;
+      return statusException(
+          Status.PERMISSION_DENIED, exception.getCode(), exception.getErrorMessage());
+    } else if (e instanceof UserNotFoundException) {
+      UserNotFoundException exception = (UserNotFoundException) e;
+      return statusException(Status.NOT_FOUND, exception.getCode(), exception.getErrorMessage());
+    } else if (e instanceof InvalidQuestionException) {
+      InvalidQuestionException exception = (InvalidQuestionException) e;
+      return statusException(Status.NOT_FOUND, exception.getCode(), exception.getErrorMessage());
+    } else if (e instanceof AnswerNotFoundException) {
+      AnswerNotFoundException exception = (AnswerNotFoundException) e;
+      return statusException(Status.NOT_FOUND, exception.getCode(), exception.getErrorMessage());
+    } else if (e instanceof SignUpRestrictedException) {
+      SignUpRestrictedException exception = (SignUpRestrictedException) e;
+      return statusException(
+          Status.ALREADY_EXISTS, exception.getCode(), exception.getErrorMessage());
+    } else if (e instanceof DuplicateQuestionException) {
+      DuplicateQuestionException exception = (DuplicateQuestionException) e;
+      return statusException(
+          Status.ALREADY_EXISTS, exception.getCode(), exception.getErrorMessage());
+    } else if (e instanceof AuthenticationFailedException) {
+      AuthenticationFailedException exception = (AuthenticationFailedException) e;
+      return statusException(
+          Status.UNAUTHENTICATED, exception.getCode(), exception.getErrorMessage());
+    } else if (e instanceof SignOutRestrictedException) {
+      SignOutRestrictedException exception = (SignOutRestrictedException) e;
+      return statusException(
+          Status.UNAUTHENTICATED, exception.getCode(), exception.getErrorMessage());
+    } else if (e instanceof InvalidRequestException) {
+      InvalidRequestException exception = (InvalidRequestException) e;
+      return statusException(
+          Status.INVALID_ARGUMENT, exception.getCode(), exception.getErrorMessage());
+    } else if (e instanceof RejectedExecutionException) {
+      return Status.RESOURCE_EXHAUSTED
+          .withDescription("The server is busy, try again later")
+          .asRuntimeException();
+    }
+    LOG.error("gRPC call failed", e);
+    return Status.INTERNAL.withDescription("Internal error").asRuntimeException();
+  }
+
+  private static StatusRuntimeException statusException(
+      final Status status, final String code, final String message) {
+    Metadata trailers = new Metadata();
+    trailers.put(ERROR_CODE, code);
+    return status.withDescription(message).asRuntimeException(trailers);
+  }
+
+  /**
+   * Blocks the thread reading the rows of a stream until the client is ready for one more message.
+   * The call signals its readiness and its cancellation on its own threads.
+   */
+  private final class FlowControl {
+
+    private final ServerCallStreamObserver<?> observer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition changed = lock.newCondition();
+
+    private FlowControl(final ServerCallStreamObserver<?> observer) {
+      this.observer = observer;
+      observer.setOnReadyHandler(this::signal);
+      observer.setOnCancelHandler(this::signal);
+    }
+
+    private void signal() {
+      lock.lock();
+      try {
+        changed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    // Throws a StatusRuntimeException, ending the query, if the call is cancelled or the client
+    // does not take any message for the streaming timeout.
+    private void awaitReady() {
+      lock.lock();
+      try {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(streamingTimeoutMillis);
+        while (!observer.isReady()) {
+          if (observer.isCancelled()) {
+            throw Status.CANCELLED.withDescription("Call cancelled").asRuntimeException();
+          }
+          if (nanos <= 0) {
+            throw Status.DEADLINE_EXCEEDED
+                .withDescription("The client did not read the stream in time")
+                .asRuntimeException();
+          }
+          nanos = changed.awaitNanos(nanos);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw Status.CANCELLED.withDescription("Interrupted").asRuntimeException();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.upgrad.quora.api.grpc;
+
+import io.grpc.BindableService;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * gRPC server exposing the operations of the REST API as the services of {@code quora.proto}, for
+ * internal consumers which prefer compact binary messages and streamed lists to JSON. It listens
+ * on its own port next to Tomcat; the service methods only dispatch the calls, which run on the
+ * executors of the REST API, see {@link GrpcCalls}.
+ */
+@Component
+public class GrpcServer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GrpcServer.class);
+
+  @Autowired private List<BindableService> services;
+
+  @Autowired private AccessTokenInterceptor accessTokenInterceptor;
+
+  @Value("${quora.grpc.enabled:true}")
+  private boolean enabled;
+
+  @Value("${quora.grpc.port:9090}")
+  private int port;
+
+  @Value("${quora.grpc.shutdown-grace-ms:5000}")
+  private long shutdownGraceMillis;
+
+  private Server server;
+
+  @PostConstruct
+  public void start() throws IOException {
+    if (!enabled) {
+      return;
+    }
+    NettyServerBuilder builder = NettyServerBuilder.forPort(port);
+    for (BindableService service : services) {
+      builder.addService(ServerInterceptors.intercept(service, accessTokenInterceptor));
+    }
+    server = builder.build().start();
+    LOG.info("gRPC server listening on port {}", server.getPort());
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    if (server != null) {
+      server.shutdown();
+      if (!server.awaitTermination(shutdownGraceMillis, TimeUnit.MILLISECONDS)) {
+        server.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Gets the port the server listens on, e.g. when it was started on a random one.
+   *
+   * @return the port, -1 if the server is disabled.
+   */
+  public int getPort() {
+    return server == null ? -1 : server.getPort();
+  }
+}
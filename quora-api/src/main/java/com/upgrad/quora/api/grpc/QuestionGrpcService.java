@@ -0,0 +1,207 @@
+package com.upgrad.quora.api.grpc;
+
+import com.upgrad.quora.api.grpc.proto.CreateQuestionRequest;
+import com.upgrad.quora.api.grpc.proto.CreateQuestionResponse;
+import com.upgrad.quora.api.grpc.proto.DeleteQuestionRequest;
+import com.upgrad.quora.api.grpc.proto.DeleteQuestionResponse;
+import com.upgrad.quora.api.grpc.proto.EditQuestionRequest;
+import com.upgrad.quora.api.grpc.proto.EditQuestionResponse;
+import com.upgrad.quora.api.grpc.proto.GetQuestionThreadRequest;
+import com.upgrad.quora.api.grpc.proto.GetQuestionsRequest;
+import com.upgrad.quora.api.grpc.proto.GetQuestionsResponse;
+import com.upgrad.quora.api.grpc.proto.ListQuestionsByUserRequest;
+import com.upgrad.quora.api.grpc.proto.ListQuestionsRequest;
+import com.upgrad.quora.api.grpc.proto.Question;
+import com.upgrad.quora.api.grpc.proto.QuestionServiceGrpc;
+import com.upgrad.quora.api.grpc.proto.QuestionThread;
+import com.upgrad.quora.service.business.QuestionService;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.snapshot.AnswerSnapshot;
+import com.upgrad.quora.service.snapshot.AuthorSnapshot;
+import com.upgrad.quora.service.snapshot.QuestionSnapshot;
+import io.grpc.stub.StreamObserver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * gRPC counterpart of the question endpoints. The lists of questions are streamed one message per
+ * question; unlike the REST lists they are not versioned, as gRPC has no conditional requests.
+ */
+@Component
+public class QuestionGrpcService extends QuestionServiceGrpc.QuestionServiceImplBase {
+
+  private static final int DEFAULT_PAGE_SIZE = 20;
+
+  @Autowired private QuestionService questionService;
+
+  @Autowired private GrpcCalls grpcCalls;
+
+  @Override
+  public void createQuestion(
+      final CreateQuestionRequest request,
+      final StreamObserver<CreateQuestionResponse> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.write(
+        responseObserver,
+        () -> {
+          QuestionEntity questionEntity = new QuestionEntity();
+          questionEntity.setContent(request.getContent());
+          questionEntity = questionService.createQuestion(questionEntity, accessToken);
+          CreateQuestionResponse.Builder response =
+              CreateQuestionResponse.newBuilder()
+                  .setId(questionEntity.getUuid())
+                  .setStatus("QUESTION CREATED");
+          if (questionEntity.getSimilarQuestionUuids() != null) {
+            response.addAllSimilarQuestions(questionEntity.getSimilarQuestionUuids());
+          }
+          return response.build();
+        });
+  }
+
+  @Override
+  public void listQuestions(
+      final ListQuestionsRequest request, final StreamObserver<Question> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.stream(
+        responseObserver,
+        () -> questionService.getAllQuestions(accessToken, "grpc", null).getContent(),
+        QuestionGrpcService::toQuestion);
+  }
+
+  @Override
+  public void listQuestionsByUser(
+      final ListQuestionsByUserRequest request, final StreamObserver<Question> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.stream(
+        responseObserver,
+        () -> questionService.getAllQuestionsByUser(request.getUserId(), accessToken),
+        QuestionGrpcService::toQuestion);
+  }
+
+  @Override
+  public void getQuestions(
+      final GetQuestionsRequest request,
+      final StreamObserver<GetQuestionsResponse> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.read(
+        responseObserver,
+        () -> {
+          Set<String> uniqueQuestionIds = new LinkedHashSet<>(request.getQuestionIdsList());
+          Map<String, QuestionSnapshot> questions =
+              questionService.getQuestionsByIds(accessToken, uniqueQuestionIds);
+          GetQuestionsResponse.Builder response = GetQuestionsResponse.newBuilder();
+          for (String questionId : uniqueQuestionIds) {
+            QuestionSnapshot question = questions.get(questionId);
+            if (question == null) {
+              response.addMissingIds(questionId);
+            } else {
+              response.putQuestions(questionId, toQuestion(question));
+            }
+          }
+          return response.build();
+        });
+  }
+
+  @Override
+  public void getQuestionThread(
+      final GetQuestionThreadRequest request,
+      final StreamObserver<QuestionThread> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.read(
+        responseObserver,
+        () -> {
+          int size = request.getSize() > 0 ? request.getSize() : DEFAULT_PAGE_SIZE;
+          com.upgrad.quora.service.snapshot.QuestionThread thread =
+              questionService.getQuestionThread(
+                  accessToken, request.getQuestionId(), request.getPage(), size);
+          QuestionSnapshot question = thread.getQuestion();
+          QuestionThread.ThreadQuestion.Builder threadQuestion =
+              QuestionThread.ThreadQuestion.newBuilder()
+                  .setId(question.getUuid())
+                  .setContent(question.getContent())
+                  .setAuthorId(question.getAuthorUuid())
+                  .setAnswerCount(question.getAnswerCount());
+          if (question.getLastActivityAt() != null) {
+            threadQuestion.setLastActivityAt(
+                question.getLastActivityAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+          }
+          QuestionThread.Builder response =
+              QuestionThread.newBuilder()
+                  .setQuestion(threadQuestion)
+                  .setPage(request.getPage())
+                  .setSize(size);
+          for (AnswerSnapshot answer : thread.getAnswers()) {
+            response.addAnswers(
+                QuestionThread.ThreadAnswer.newBuilder()
+                    .setId(answer.getUuid())
+                    .setContent(answer.getAnswer())
+                    .setAuthorId(answer.getAuthorUuid())
+                    .setDate(answer.getDate().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)));
+          }
+          for (AuthorSnapshot author : thread.getAuthors().values()) {
+            response.putAuthors(
+                author.getUuid(),
+                QuestionThread.Author.newBuilder()
+                    .setId(author.getUuid())
+                    .setUserName(author.getUserName())
+                    .setFirstName(author.getFirstName())
+                    .setLastName(author.getLastName())
+                    .build());
+          }
+          return response.build();
+        });
+  }
+
+  @Override
+  public void editQuestion(
+      final EditQuestionRequest request,
+      final StreamObserver<EditQuestionResponse> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.write(
+        responseObserver,
+        () -> {
+          QuestionEntity questionEntity =
+              questionService.editQuestion(
+                  accessToken, request.getQuestionId(), request.getContent());
+          return EditQuestionResponse.newBuilder()
+              .setId(questionEntity.getUuid())
+              .setStatus("QUESTION EDITED")
+              .build();
+        });
+  }
+
+  @Override
+  public void deleteQuestion(
+      final DeleteQuestionRequest request,
+      final StreamObserver<DeleteQuestionResponse> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.write(
+        responseObserver,
+        () -> {
+          QuestionEntity questionEntity =
+              questionService.deleteQuestion(accessToken, request.getQuestionId());
+          return DeleteQuestionResponse.newBuilder()
+              .setId(questionEntity.getUuid())
+              .setStatus("QUESTION DELETED")
+              .build();
+        });
+  }
+
+  private static Question toQuestion(final QuestionSnapshot question) {
+    Question.Builder message =
+        Question.newBuilder()
+            .setId(question.getUuid())
+            .setContent(question.getContent())
+            .setAnswerCount(question.getAnswerCount());
+    if (question.getLastActivityAt() != null) {
+      message.setLastActivityAt(
+          question.getLastActivityAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+    }
+    return message.build();
+  }
+}
@@ -0,0 +1,210 @@
+package com.upgrad.quora.api.grpc;
+
+import com.upgrad.quora.api.grpc.proto.DeleteUserRequest;
+import com.upgrad.quora.api.grpc.proto.DeleteUserResponse;
+import com.upgrad.quora.api.grpc.proto.GetUserProfileRequest;
+import com.upgrad.quora.api.grpc.proto.GetUserProfilesRequest;
+import com.upgrad.quora.api.grpc.proto.GetUserProfilesResponse;
+import com.upgrad.quora.api.grpc.proto.SigninRequest;
+import com.upgrad.quora.api.grpc.proto.SigninResponse;
+import com.upgrad.quora.api.grpc.proto.SignoutRequest;
+import com.upgrad.quora.api.grpc.proto.SignoutResponse;
+import com.upgrad.quora.api.grpc.proto.SignupRequest;
+import com.upgrad.quora.api.grpc.proto.SignupResponse;
+import com.upgrad.quora.api.grpc.proto.SuggestUsersRequest;
+import com.upgrad.quora.api.grpc.proto.SuggestUsersResponse;
+import com.upgrad.quora.api.grpc.proto.UserProfile;
+import com.upgrad.quora.api.grpc.proto.UserServiceGrpc;
+import com.upgrad.quora.service.business.AdminService;
+import com.upgrad.quora.service.business.CommonUserService;
+import com.upgrad.quora.service.business.UserAuthenticationService;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import io.grpc.stub.StreamObserver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * gRPC counterpart of the user, profile and admin endpoints. Signin takes the username and
+ * password as fields of the request instead of a Basic authorization, and returns the access token
+ * in the response instead of a header.
+ */
+@Component
+public class UserGrpcService extends UserServiceGrpc.UserServiceImplBase {
+
+  private static final int DEFAULT_SUGGESTIONS = 10;
+
+  @Autowired private UserAuthenticationService userAuthService;
+
+  @Autowired private CommonUserService commonUserService;
+
+  @Autowired private AdminService adminService;
+
+  @Autowired private GrpcCalls grpcCalls;
+
+  @Override
+  public void signup(
+      final SignupRequest request, final StreamObserver<SignupResponse> responseObserver) {
+    grpcCalls.auth(
+        responseObserver,
+        () -> {
+          UserEntity userEntity = new UserEntity();
+          userEntity.setFirstName(request.getFirstName());
+          userEntity.setLastName(request.getLastName());
+          userEntity.setUserName(request.getUserName());
+          userEntity.setEmail(request.getEmailAddress());
+          userEntity.setPassword(request.getPassword());
+          userEntity.setCountry(request.getCountry());
+          userEntity.setAboutMe(request.getAboutMe());
+          userEntity.setDob(request.getDob());
+          userEntity.setRole("nonadmin");
+          userEntity.setContactNumber(request.getContactNumber());
+          UserEntity createdUserEntity = userAuthService.signup(userEntity);
+          return SignupResponse.newBuilder()
+              .setId(createdUserEntity.getUuid())
+              .setStatus("USER SUCCESSFULLY REGISTERED")
+              .build();
+        });
+  }
+
+  @Override
+  public void signin(
+      final SigninRequest request, final StreamObserver<SigninResponse> responseObserver) {
+    grpcCalls.auth(
+        responseObserver,
+        () -> {
+          UserAuthEntity userAuthEntity =
+              userAuthService.signin(request.getUserName(), request.getPassword());
+          return SigninResponse.newBuilder()
+              .setId(userAuthEntity.getUserEntity().getUuid())
+              .setMessage("SIGNED IN SUCCESSFULLY")
+              .setAccessToken(userAuthEntity.getAccessToken())
+              .build();
+        });
+  }
+
+  @Override
+  public void signout(
+      final SignoutRequest request, final StreamObserver<SignoutResponse> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.auth(
+        responseObserver,
+        () -> {
+          UserEntity userEntity = userAuthService.signout(accessToken);
+          return SignoutResponse.newBuilder()
+              .setId(userEntity.getUuid())
+              .setMessage("SIGNED OUT SUCCESSFULLY")
+              .build();
+        });
+  }
+
+  @Override
+  public void getUserProfile(
+      final GetUserProfileRequest request, final StreamObserver<UserProfile> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.read(
+        responseObserver,
+        () -> {
+          commonUserService.checkIfTokenIsValid(accessToken);
+          return toUserProfile(commonUserService.getUserProfile(request.getUserId()));
+        });
+  }
+
+  @Override
+  public void getUserProfiles(
+      final GetUserProfilesRequest request,
+      final StreamObserver<GetUserProfilesResponse> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.read(
+        responseObserver,
+        () -> {
+          commonUserService.checkIfTokenIsValid(accessToken);
+          Set<String> uniqueUserIds = new LinkedHashSet<>(request.getUserIdsList());
+          Map<String, com.upgrad.quora.service.snapshot.UserProfile> profiles =
+              commonUserService.getUserProfilesByIds(uniqueUserIds);
+          GetUserProfilesResponse.Builder response = GetUserProfilesResponse.newBuilder();
+          for (String userId : uniqueUserIds) {
+            com.upgrad.quora.service.snapshot.UserProfile profile = profiles.get(userId);
+            if (profile == null) {
+              response.addMissingIds(userId);
+            } else {
+              response.putUsers(userId, toUserProfile(profile));
+            }
+          }
+          return response.build();
+        });
+  }
+
+  @Override
+  public void suggestUsers(
+      final SuggestUsersRequest request,
+      final StreamObserver<SuggestUsersResponse> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.read(
+        responseObserver,
+        () -> {
+          commonUserService.checkIfTokenIsValid(accessToken);
+          int limit = request.getLimit() > 0 ? request.getLimit() : DEFAULT_SUGGESTIONS;
+          Map<String, String> suggestions =
+              commonUserService.getUserNameSuggestions(request.getPrefix(), limit);
+          SuggestUsersResponse.Builder response = SuggestUsersResponse.newBuilder();
+          for (Map.Entry<String, String> suggestion : suggestions.entrySet()) {
+            response.addSuggestions(
+                SuggestUsersResponse.Suggestion.newBuilder()
+                    .setId(suggestion.getValue())
+                    .setUserName(suggestion.getKey()));
+          }
+          return response.build();
+        });
+  }
+
+  @Override
+  public void deleteUser(
+      final DeleteUserRequest request, final StreamObserver<DeleteUserResponse> responseObserver) {
+    final String accessToken = AccessTokenInterceptor.currentAccessToken();
+    grpcCalls.write(
+        responseObserver,
+        () -> {
+          UserEntity userEntity = adminService.deleteUser(request.getUserId(), accessToken);
+          return DeleteUserResponse.newBuilder()
+              .setId(userEntity.getUuid())
+              .setStatus("USER SUCCESSFULLY DELETED")
+              .build();
+        });
+  }
+
+  // Fields left out of the profile are sent as empty strings, the proto3 default.
+  private static UserProfile toUserProfile(
+      final com.upgrad.quora.service.snapshot.UserProfile profile) {
+    UserProfile.Builder userProfile = UserProfile.newBuilder();
+    if (profile.getFirstName() != null) {
+      userProfile.setFirstName(profile.getFirstName());
+    }
+    if (profile.getLastName() != null) {
+      userProfile.setLastName(profile.getLastName());
+    }
+    if (profile.getUserName() != null) {
+      userProfile.setUserName(profile.getUserName());
+    }
+    if (profile.getEmail() != null) {
+      userProfile.setEmailAddress(profile.getEmail());
+    }
+    if (profile.getCountry() != null) {
+      userProfile.setCountry(profile.getCountry());
+    }
+    if (profile.getAboutMe() != null) {
+      userProfile.setAboutMe(profile.getAboutMe());
+    }
+    if (profile.getDob() != null) {
+      userProfile.setDob(profile.getDob());
+    }
+    if (profile.getContactNumber() != null) {
+      userProfile.setContactNumber(profile.getContactNumber());
+    }
+    return userProfile.build();
+  }
+}
@@ -1,15 +1,26 @@
 package com.upgrad.quora.api.controller;
 
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.service.job.UserPurgeJob;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -17,7 +28,21 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc
 public class AdminControllerTest {
 
-  @Autowired private MockMvc mvc;
+  @Autowired private MockMvc mockMvc;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private UserPurgeJob userPurgeJob;
+
+  private AsyncMockMvc mvc;
+
+  private TestContent testContent;
+
+  @Before
+  public void setUp() {
+    mvc = new AsyncMockMvc(mockMvc);
+    testContent = new TestContent(mvc);
+  }
 
   // This test case passes when you try to delete the user but the JWT token entered does not exist
   // in the database.
@@ -50,4 +75,213 @@ public class AdminControllerTest {
         .andExpect(status().isNotFound())
         .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
   }
+
+  // This test case passes when you look up the profile of a user twice, the second time from the
+  // profile cache, and the profile is no longer found once the user is deleted by an admin.
+  @Test
+  public void detailsOfDeletedUser() throws Exception {
+    // The deleted user is kept until it is purged, so its name is unique per run.
+    String userName = "deleted_" + System.nanoTime();
+    String userId = testContent.signup(userName);
+    for (int i = 0; i < 2; i++) {
+      mvc.perform(
+              MockMvcRequestBuilders.get("/userprofile/" + userId)
+                  .header("authorization", "database_accesstoken1"))
+          .andExpect(status().isOk())
+          .andExpect(MockMvcResultMatchers.jsonPath("user_name").value(userName));
+    }
+    mockMvc
+        .perform(
+            MockMvcRequestBuilders.get("/actuator/metrics/cache.gets")
+                .param("tag", "name:user-profiles")
+                .param("tag", "result:hit"))
+        .andExpect(status().isOk())
+        .andExpect(
+            MockMvcResultMatchers.jsonPath("measurements[0].value")
+                .value(greaterThanOrEqualTo(1.0)));
+    mvc.perform(
+            MockMvcRequestBuilders.delete("/admin/user/" + userId)
+                .header("authorization", "database_accesstoken"))
+        .andExpect(status().isOk());
+    mvc.perform(
+            MockMvcRequestBuilders.get("/userprofile/" + userId)
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isNotFound())
+        .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
+  }
+
+  // This test case passes when a user deleted by an admin can no longer use their access token and
+  // their questions and answers are hidden from the other users right away.
+  @Test
+  public void contentOfDeletedUser() throws Exception {
+    String userName = "hidden_" + System.nanoTime();
+    String userId = testContent.signup(userName);
+    String accessToken = testContent.signin(userName);
+    String questionId = testContent.createQuestion("Question of a deleted user", accessToken);
+    String answerId =
+        testContent.createAnswer("database_question_uuid", "deleted_user_answer", accessToken);
+    mvc.perform(
+            MockMvcRequestBuilders.delete("/admin/user/" + userId)
+                .header("authorization", "database_accesstoken"))
+        .andExpect(status().isOk());
+
+    mvc.perform(
+            MockMvcRequestBuilders.post("/question/create?content=after_deletion")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .header("authorization", accessToken))
+        .andExpect(status().isForbidden())
+        .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+    mvc.perform(
+            MockMvcRequestBuilders.get("/question/all")
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[*].id").value(not(hasItem(questionId))));
+    mvc.perform(
+            MockMvcRequestBuilders.get("/answer/all/" + questionId)
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isNotFound())
+        .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    mvc.perform(
+            MockMvcRequestBuilders.get("/answer/all/database_question_uuid")
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[*].id").value(not(hasItem(answerId))));
+  }
+
+  // This test case passes when the purge of a deleted user removes their rows in batches, stops
+  // part-way when interrupted and removes the remaining rows on the next run.
+  @Test
+  public void purgeDeletedUserInBatches() throws Exception {
+    // The scheduled purge is off in the tests, only the runs below use the settings changed here.
+    final Object batchSize = ReflectionTestUtils.getField(userPurgeJob, "batchSize");
+    final Object pauseMillis = ReflectionTestUtils.getField(userPurgeJob, "pauseMillis");
+    try {
+      // Purge the users deleted earlier first, so that the purge below starts with this one.
+      ReflectionTestUtils.setField(userPurgeJob, "pauseMillis", 0L);
+      userPurgeJob.purgeDeletedUsers();
+
+      String userName = "purged_" + System.nanoTime();
+      String userId = testContent.signup(userName);
+      String accessToken = testContent.signin(userName);
+      String questionId = testContent.createQuestion("Question of a deleted user", accessToken);
+      for (int i = 0; i < 3; i++) {
+        testContent.createAnswer(questionId, "deleted_user_answer", accessToken);
+      }
+      testContent.createAnswer(questionId, "deleted_user_answer", "database_accesstoken1");
+      mvc.perform(
+              MockMvcRequestBuilders.delete("/admin/user/" + userId)
+                  .header("authorization", "database_accesstoken"))
+          .andExpect(status().isOk());
+      final double purgedRows = metric("user.purge.rows");
+
+      // Two answers go in the first batch, then the purge pauses and is interrupted.
+      ReflectionTestUtils.setField(userPurgeJob, "batchSize", 2);
+      ReflectionTestUtils.setField(userPurgeJob, "pauseMillis", 10000L);
+      Thread purge = new Thread(userPurgeJob::purgeDeletedUsers);
+      purge.start();
+      final long deadline = System.currentTimeMillis() + 10000;
+      while (countAnswersByUser(userId) > 1 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      purge.interrupt();
+      purge.join();
+      assertThat(countAnswersByUser(userId), is(1));
+      assertThat(countRows("users", userId), is(1));
+
+      ReflectionTestUtils.setField(userPurgeJob, "pauseMillis", 0L);
+      userPurgeJob.purgeDeletedUsers();
+      assertThat(countRows("users", userId), is(0));
+      assertThat(countRows("question", questionId), is(0));
+      assertThat(
+          jdbcTemplate.queryForObject(
+              "select count(*) from user_auth where access_token = ?", Integer.class, accessToken),
+          is(0));
+      // 4 answers, the question, the session and the user.
+      assertThat(metric("user.purge.rows") - purgedRows, is(7.0));
+      assertThat(metric("user.purge.pending"), is(0.0));
+    } finally {
+      ReflectionTestUtils.setField(userPurgeJob, "batchSize", batchSize);
+      ReflectionTestUtils.setField(userPurgeJob, "pauseMillis", pauseMillis);
+    }
+  }
+
+  // This test case passes when the purge of a deleted user takes their answers off the answer count
+  // and last activity of the questions of other users, batch by batch.
+  @Test
+  public void purgeDeletedUserAnswerStats() throws Exception {
+    final Object batchSize = ReflectionTestUtils.getField(userPurgeJob, "batchSize");
+    final Object pauseMillis = ReflectionTestUtils.getField(userPurgeJob, "pauseMillis");
+    try {
+      ReflectionTestUtils.setField(userPurgeJob, "pauseMillis", 0L);
+      String questionId =
+          testContent.createQuestion("Answered by a deleted user", "database_accesstoken1");
+      testContent.createAnswer(questionId, "remaining_answer", "database_accesstoken2");
+      String userName = "answerer_" + System.nanoTime();
+      String userId = testContent.signup(userName);
+      String accessToken = testContent.signin(userName);
+      for (int i = 0; i < 3; i++) {
+        testContent.createAnswer(questionId, "deleted_user_answer", accessToken);
+      }
+      mvc.perform(
+              MockMvcRequestBuilders.delete("/admin/user/" + userId)
+                  .header("authorization", "database_accesstoken"))
+          .andExpect(status().isOk());
+      // The answers are hidden at once, but counted until they are purged.
+      mvc.perform(
+              MockMvcRequestBuilders.get("/question/all/database_uuid1")
+                  .header("authorization", "database_accesstoken1"))
+          .andExpect(status().isOk())
+          .andExpect(
+              MockMvcResultMatchers.jsonPath("$[?(@.id == '" + questionId + "')].answer_count")
+                  .value(hasItem(4)));
+
+      // One answer per batch.
+      ReflectionTestUtils.setField(userPurgeJob, "batchSize", 1);
+      userPurgeJob.purgeDeletedUsers();
+      assertThat(countAnswersByUser(userId), is(0));
+      assertThat(
+          jdbcTemplate.queryForObject(
+              "select q.answer_count = 1 and q.last_activity_at ="
+                  + " (select a.date from answer a where a.question_id = q.id)"
+                  + " from question q where q.uuid = ?",
+              Boolean.class,
+              questionId),
+          is(true));
+      mvc.perform(
+              MockMvcRequestBuilders.get("/question/all/database_uuid1")
+                  .header("authorization", "database_accesstoken1"))
+          .andExpect(status().isOk())
+          .andExpect(
+              MockMvcResultMatchers.jsonPath("$[?(@.id == '" + questionId + "')].answer_count")
+                  .value(hasItem(1)));
+    } finally {
+      ReflectionTestUtils.setField(userPurgeJob, "batchSize", batchSize);
+      ReflectionTestUtils.setField(userPurgeJob, "pauseMillis", pauseMillis);
+    }
+  }
+
+  private int countAnswersByUser(final String userId) {
+    return jdbcTemplate.queryForObject(
+        "select count(*) from answer a join users u on u.id = a.user_id where u.uuid = ?",
+        Integer.class,
+        userId);
+  }
+
+  private int countRows(final String table, final String uuid) {
+    return jdbcTemplate.queryForObject(
+        "select count(*) from " + table + " where uuid = ?", Integer.class, uuid);
+  }
+
+  private double metric(final String name) throws Exception {
+    return ((Number)
+            JsonPath.read(
+                mockMvc
+                    .perform(MockMvcRequestBuilders.get("/actuator/metrics/" + name))
+                    .andExpect(status().isOk())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString(),
+                "measurements[0].value"))
+        .doubleValue();
+  }
 }
@@ -1,24 +1,54 @@
 package com.upgrad.quora.api.controller;
 
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "quora.grpc.port=0")
 @AutoConfigureMockMvc
 public class AnswerControllerTest {
 
-  @Autowired private MockMvc mvc;
+  @Autowired private MockMvc mockMvc;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private AsyncMockMvc mvc;
+
+  private TestContent testContent;
+
+  @Before
+  public void setUp() {
+    mvc = new AsyncMockMvc(mockMvc);
+    testContent = new TestContent(mvc);
+  }
 
   // This test case passes when you try to create the answer but the JWT token entered does not
   // exist in the database.
@@ -185,4 +215,204 @@ public class AnswerControllerTest {
         .andExpect(status().isNotFound())
         .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
   }
+
+  // This test case passes when you create an answer and then edit and delete it as its owner.
+  @Test
+  public void editAndDeleteOwnAnswer() throws Exception {
+    String answerId =
+        JsonPath.read(
+            mvc.perform(
+                    MockMvcRequestBuilders.post(
+                            "/question/database_question_uuid/answer/create?answer=my_answer")
+                        .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                        .header("authorization", "database_accesstoken2"))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(),
+            "id");
+    mvc.perform(
+            MockMvcRequestBuilders.put("/answer/edit/" + answerId + "?content=edited_answer")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .header("authorization", "database_accesstoken2"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("id").value(answerId));
+    mvc.perform(
+            MockMvcRequestBuilders.delete("/answer/delete/" + answerId)
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .header("authorization", "database_accesstoken2"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("id").value(answerId));
+    mvc.perform(
+            MockMvcRequestBuilders.delete("/answer/delete/" + answerId)
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .header("authorization", "database_accesstoken2"))
+        .andExpect(status().isNotFound())
+        .andExpect(MockMvcResultMatchers.jsonPath("code").value("ANS-001"));
+  }
+
+  // This test case passes when several users get the answers to a question at the same time, every
+  // one of them is authorized on their own, every authorized call is counted either by the
+  // coalescing metrics or as a hit of the response cache, and fewer queries than calls are run.
+  @Test
+  public void getAllAnswersToQuestionConcurrently() throws Exception {
+    double callsBefore = singleFlightCallsAndResponseCacheHits();
+    double leadersBefore = metric("singleflight.calls", "name:answers", "result:leader");
+    String[] accessTokens = {
+      "database_accesstoken",
+      "database_accesstoken1",
+      "database_accesstoken2",
+      "database_accesstoken3"
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Integer>> statuses = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        final String accessToken = accessTokens[i % accessTokens.length];
+        statuses.add(
+            executor.submit(
+                (Callable<Integer>)
+                    () ->
+                        mvc.perform(
+                                MockMvcRequestBuilders.get("/answer/all/database_question_uuid")
+                                    .header("authorization", accessToken))
+                            .andReturn()
+                            .getResponse()
+                            .getStatus()));
+      }
+      for (int i = 0; i < statuses.size(); i++) {
+        // database_accesstoken3 belongs to a signed out user.
+        int expected = i % accessTokens.length == 3 ? 403 : 200;
+        assertThat(statuses.get(i).get(), is(expected));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(singleFlightCallsAndResponseCacheHits() - callsBefore, is(12.0));
+    assertThat(
+        metric("singleflight.calls", "name:answers", "result:leader") - leadersBefore,
+        lessThan(12.0));
+  }
+
+  private double singleFlightCallsAndResponseCacheHits() throws Exception {
+    return metric("singleflight.calls", "name:answers")
+        + metric("cache.gets", "name:responses", "result:hit");
+  }
+
+  private double metric(final String name, final String... tags) throws Exception {
+    return JsonPath.read(
+        mockMvc
+            .perform(MockMvcRequestBuilders.get("/actuator/metrics/" + name).param("tag", tags))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString(),
+        "measurements[0].value");
+  }
+
+  // This test case passes when you get the answers to a question which does not exist with an
+  // If-None-Match header matching any version and get QUES-001 rather than 304.
+  @Test
+  public void getAllAnswersToNonExistingQuestionIfNoneMatch() throws Exception {
+    mvc.perform(
+            MockMvcRequestBuilders.get("/answer/all/non_existing_question_uuid")
+                .header("authorization", "database_accesstoken1")
+                .header(HttpHeaders.IF_NONE_MATCH, "*"))
+        .andExpect(status().isNotFound())
+        .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+  }
+
+  // This test case passes when you get the answers to a question again with the ETag of the last
+  // response and get 304 until an answer to the question is created.
+  @Test
+  public void getAllAnswersToQuestionNotModifiedUntilAnswered() throws Exception {
+    String eTag =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/answer/all/database_question_uuid")
+                    .header("authorization", "database_accesstoken1"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+    assertThat(eTag, notNullValue());
+    mvc.perform(
+            MockMvcRequestBuilders.get("/answer/all/database_question_uuid")
+                .header("authorization", "database_accesstoken1")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, eTag));
+    String answerId =
+        JsonPath.read(
+            mvc.perform(
+                    MockMvcRequestBuilders.post(
+                            "/question/database_question_uuid/answer/create?answer=new_answer")
+                        .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                        .header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(),
+            "id");
+    mvc.perform(
+            MockMvcRequestBuilders.get("/answer/all/database_question_uuid")
+                .header("authorization", "database_accesstoken1")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+        .andExpect(MockMvcResultMatchers.jsonPath("$[*].id").value(hasItem(answerId)));
+    mvc.perform(
+            MockMvcRequestBuilders.delete("/answer/delete/" + answerId)
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isOk());
+  }
+
+  // This test case passes when you answer a question, edit it and delete it, and it can no longer
+  // be answered once deleted although it was looked up when answered.
+  @Test
+  public void createAnswerToDeletedQuestion() throws Exception {
+    String questionId = testContent.createQuestion("Short lived question", "database_accesstoken1");
+    testContent.createAnswer(questionId, "first", "database_accesstoken1");
+    mvc.perform(
+            MockMvcRequestBuilders.put(
+                    "/question/edit/" + questionId + "?content=Edited short lived question")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isOk());
+    testContent.createAnswer(questionId, "second", "database_accesstoken1");
+    mvc.perform(
+            MockMvcRequestBuilders.delete("/question/delete/" + questionId)
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isOk());
+    mvc.perform(
+            MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create?answer=third")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isNotFound())
+        .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    mvc.perform(
+            MockMvcRequestBuilders.get("/answer/all/" + questionId)
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isNotFound())
+        .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+  }
+
+  // This test case passes when an answer is dated a little before its question, as posted by a node
+  // whose clock lags behind, and it is still listed with the answers to the question.
+  @Test
+  public void getAllAnswersToQuestionWithLaggingClock() throws Exception {
+    String questionId = testContent.createQuestion("Question ahead", "database_accesstoken1");
+    String answerId =
+        testContent.createAnswer(questionId, "answer_behind", "database_accesstoken2");
+    jdbcTemplate.update(
+        "update answer set date = (select date from question where uuid = ?) - interval '1 minute'"
+            + " where uuid = ?",
+        questionId,
+        answerId);
+    mvc.perform(
+            MockMvcRequestBuilders.get("/answer/all/" + questionId)
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[*].id").value(hasItem(answerId)));
+  }
 }
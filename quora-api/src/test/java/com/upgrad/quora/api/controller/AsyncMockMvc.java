@@ -0,0 +1,55 @@
+package com.upgrad.quora.api.controller;
+
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.ResultHandler;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+
+/**
+ * Performs requests through MockMvc up to their final response. The controllers hand their work
+ * over to an executor, so the first dispatch of a request only starts it; the request is dispatched
+ * again once the result is ready, as the servlet container would do.
+ */
+final class AsyncMockMvc {
+
+  private final MockMvc mvc;
+
+  AsyncMockMvc(final MockMvc mvc) {
+    this.mvc = mvc;
+  }
+
+  ResultActions perform(final RequestBuilder request) throws Exception {
+    final MvcResult result = mvc.perform(request).andReturn();
+    if (result.getRequest().isAsyncStarted()) {
+      ResultActions dispatched = mvc.perform(asyncDispatch(result));
+      // A list is streamed from a second async step, started by the dispatch of the first.
+      while (dispatched.andReturn().getRequest().isAsyncStarted()) {
+        dispatched = mvc.perform(asyncDispatch(dispatched.andReturn()));
+      }
+      return dispatched;
+    }
+    // Rejected before reaching the controller, e.g. for a missing parameter.
+    return new ResultActions() {
+      @Override
+      public ResultActions andExpect(final ResultMatcher matcher) throws Exception {
+        matcher.match(result);
+        return this;
+      }
+
+      @Override
+      public ResultActions andDo(final ResultHandler handler) throws Exception {
+        handler.handle(result);
+        return this;
+      }
+
+      @Override
+      public MvcResult andReturn() {
+        return result;
+      }
+    };
+  }
+}
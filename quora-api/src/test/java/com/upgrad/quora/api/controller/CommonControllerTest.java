@@ -1,23 +1,42 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.api.config.BinaryFormats;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = {"quora.cluster.invalidation.enabled=true", "quora.grpc.port=0"})
 @AutoConfigureMockMvc
 public class CommonControllerTest {
 
-  @Autowired private MockMvc mvc;
+  @Autowired private MockMvc mockMvc;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private AsyncMockMvc mvc;
+
+  @Before
+  public void setUp() {
+    mvc = new AsyncMockMvc(mockMvc);
+  }
 
   // This test case passes when you try to get the details of the existing user and the JWT token
   // entered exists in the database and the user corresponding to that JWT token is signed in.
@@ -29,6 +48,71 @@ public class CommonControllerTest {
         .andExpect(status().isOk());
   }
 
+  // This test case passes when you ask for the details of the existing user in Smile and the
+  // response is the same object as in JSON, encoded in Smile.
+  @Test
+  public void detailsAsSmile() throws Exception {
+    byte[] body =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/userprofile/database_uuid1")
+                    .header("authorization", "database_accesstoken")
+                    .accept(BinaryFormats.APPLICATION_SMILE))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(BinaryFormats.APPLICATION_SMILE))
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+    assertThat(
+        new ObjectMapper(new SmileFactory()).readTree(body).has("user_name"), is(true));
+  }
+
+  // This test case passes when another node changes a user and publishes the change, and the
+  // profile cached by this node is dropped so that the change shows.
+  @Test
+  public void detailsChangedByAnotherNode() throws Exception {
+    awaitAboutMe("database_aboutme1");
+    try {
+      changeAboutMeOnAnotherNode("changed_on_another_node");
+      awaitAboutMe("changed_on_another_node");
+    } finally {
+      changeAboutMeOnAnotherNode("database_aboutme1");
+      awaitAboutMe("database_aboutme1");
+    }
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/actuator/metrics/cache.invalidation.lag"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("measurements[0].statistic").value("COUNT"))
+        .andExpect(
+            MockMvcResultMatchers.jsonPath("measurements[0].value")
+                .value(greaterThanOrEqualTo(2.0)));
+  }
+
+  private void changeAboutMeOnAnotherNode(final String aboutMe) {
+    jdbcTemplate.update("UPDATE users SET aboutme = ? WHERE uuid = 'database_uuid1'", aboutMe);
+    jdbcTemplate.queryForObject(
+        "SELECT count(pg_notify('cache_invalidation', ?))",
+        Long.class,
+        "another_node " + System.currentTimeMillis() + "\nUSER 0 database_uuid1\n");
+  }
+
+  private void awaitAboutMe(final String aboutMe) throws Exception {
+    final long deadline = System.currentTimeMillis() + 10000;
+    String current;
+    do {
+      current =
+          JsonPath.read(
+              mvc.perform(
+                      MockMvcRequestBuilders.get("/userprofile/database_uuid1")
+                          .header("authorization", "database_accesstoken"))
+                  .andExpect(status().isOk())
+                  .andReturn()
+                  .getResponse()
+                  .getContentAsString(),
+              "aboutMe");
+    } while (!aboutMe.equals(current) && System.currentTimeMillis() < deadline);
+    assertThat(current, is(aboutMe));
+  }
+
   // This test case passes when you try to get the details of the existing user but the JWT token
   // entered does not exist in the database.
   @Test
@@ -50,4 +134,56 @@ public class CommonControllerTest {
         .andExpect(status().isNotFound())
         .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
   }
+
+  // This test case passes when you get the details of several users at once and the users which
+  // do not exist are reported as missing.
+  @Test
+  public void detailsOfSeveralUsers() throws Exception {
+    mvc.perform(
+            MockMvcRequestBuilders.get("/userprofile/batch")
+                .param("ids", "database_uuid1,non_existing_user,database_uuid2")
+                .header("authorization", "database_accesstoken"))
+        .andExpect(status().isOk())
+        .andExpect(
+            MockMvcResultMatchers.jsonPath("users.database_uuid1.user_name")
+                .value("database_username1"))
+        .andExpect(
+            MockMvcResultMatchers.jsonPath("users.database_uuid2.user_name")
+                .value("database_username2"))
+        .andExpect(MockMvcResultMatchers.jsonPath("missing_ids[0]").value("non_existing_user"));
+  }
+
+  // This test case passes when you try to get the details of more users at once than allowed.
+  @Test
+  public void detailsOfTooManyUsers() throws Exception {
+    String[] userIds = new String[101];
+    for (int i = 0; i < userIds.length; i++) {
+      userIds[i] = "user" + i;
+    }
+    mvc.perform(
+            MockMvcRequestBuilders.get("/userprofile/batch")
+                .param("ids", String.join(",", userIds))
+                .header("authorization", "database_accesstoken"))
+        .andExpect(status().isBadRequest())
+        .andExpect(MockMvcResultMatchers.jsonPath("code").value("REQ-001"));
+  }
+
+  // This test case passes when the queue length and the rejections of every workload executor are
+  // exported as metrics.
+  @Test
+  public void executorMetrics() throws Exception {
+    for (String executor : new String[] {"auth", "reads", "writes"}) {
+      mockMvc
+          .perform(
+              MockMvcRequestBuilders.get("/actuator/metrics/executor.queued")
+                  .param("tag", "name:" + executor))
+          .andExpect(status().isOk());
+      mockMvc
+          .perform(
+              MockMvcRequestBuilders.get("/actuator/metrics/executor.rejected")
+                  .param("tag", "name:" + executor))
+          .andExpect(status().isOk())
+          .andExpect(MockMvcResultMatchers.jsonPath("measurements[0].value").value(0.0));
+    }
+  }
 }
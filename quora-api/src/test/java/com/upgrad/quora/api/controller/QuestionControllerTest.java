@@ -1,16 +1,43 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.api.config.BinaryFormats;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.util.StreamUtils;
 
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -18,7 +45,19 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc
 public class QuestionControllerTest {
 
-  @Autowired private MockMvc mvc;
+  @Autowired private MockMvc mockMvc;
+
+  private AsyncMockMvc mvc;
+
+  private TestContent testContent;
+
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  @Before
+  public void setUp() {
+    mvc = new AsyncMockMvc(mockMvc);
+    testContent = new TestContent(mvc);
+  }
 
   // This test case passes when you try to create the question but the JWT token entered does not
   // exist in the database.
@@ -44,6 +83,32 @@ public class QuestionControllerTest {
         .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
   }
 
+  // This test case passes when you create a question whose content is nearly the same as an
+  // existing question and the created question is linked to the existing one.
+  @Test
+  public void createSimilarQuestion() throws Exception {
+    String questionId =
+        JsonPath.read(
+            mvc.perform(
+                    MockMvcRequestBuilders.post(
+                            "/question/create?content=Database question content?")
+                        .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                        .header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated())
+                .andExpect(
+                    MockMvcResultMatchers.jsonPath("similar_questions")
+                        .value(hasItem("database_question_uuid")))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(),
+            "id");
+    // Left behind, the copies of every run would end up crowding the original out of the matches.
+    mvc.perform(
+            MockMvcRequestBuilders.delete("/question/delete/" + questionId)
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isOk());
+  }
+
   // This test case passes when you try to get the detail of all the questions and the JWT token
   // entered exists in the database and the user corresponding to that JWT token is signed in.
   @Test
@@ -51,7 +116,86 @@ public class QuestionControllerTest {
     mvc.perform(
             MockMvcRequestBuilders.get("/question/all")
                 .header("authorization", "database_accesstoken1"))
-        .andExpect(status().isOk());
+        .andExpect(status().isOk())
+        .andExpect(
+            MockMvcResultMatchers.jsonPath("$[*].id").value(hasItem("database_question_uuid")));
+  }
+
+  // This test case passes when you ask for the questions as newline delimited JSON and every line
+  // of the response is a question.
+  @Test
+  public void getAllQuestionsAsNdjson() throws Exception {
+    String body =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/question/all")
+                    .header("authorization", "database_accesstoken1")
+                    .accept(JsonListWriter.APPLICATION_NDJSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(JsonListWriter.APPLICATION_NDJSON))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    assertThat(body, startsWith("{"));
+    assertThat(body, containsString("\"id\":\"database_question_uuid\""));
+  }
+
+  // This test case passes when you get all the questions twice and the second response is the
+  // first one sent gzipped from the cache, with a weak ETag still matching the version, until a new
+  // question changes the list.
+  @Test
+  public void getAllQuestionsFromResponseCache() throws Exception {
+    String padding = new String(new char[80]).replace('\0', 'x');
+    for (int i = 0; i < 10; i++) {
+      mvc.perform(
+              MockMvcRequestBuilders.post("/question/create?content=cached_" + i + padding)
+                  .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                  .header("authorization", "database_accesstoken1"))
+          .andExpect(status().isCreated());
+    }
+    MockHttpServletResponse firstResponse = getAllQuestions(null);
+    byte[] first = firstResponse.getContentAsByteArray();
+
+    MockHttpServletResponse second = getAllQuestions("gzip");
+    assertThat(second.getHeader("Content-Encoding"), is("gzip"));
+    assertThat(second.getHeader("ETag"), is("W/" + firstResponse.getHeader("ETag")));
+    assertThat(gunzip(second.getContentAsByteArray()), is(first));
+    assertThat(getAllQuestions(null).getContentAsByteArray(), is(first));
+    mvc.perform(
+            MockMvcRequestBuilders.get("/question/all")
+                .header("authorization", "database_accesstoken1")
+                .header("accept-encoding", "gzip")
+                .header("if-none-match", second.getHeader("ETag")))
+        .andExpect(status().isNotModified());
+
+    String questionId =
+        JsonPath.read(
+            mvc.perform(
+                    MockMvcRequestBuilders.post("/question/create?content=after_cached" + padding)
+                        .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                        .header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(),
+            "id");
+    assertThat(
+        getAllQuestions(null).getContentAsString(), containsString("\"id\":\"" + questionId));
+  }
+
+  private MockHttpServletResponse getAllQuestions(final String acceptEncoding) throws Exception {
+    MockHttpServletRequestBuilder request =
+        MockMvcRequestBuilders.get("/question/all")
+            .header("authorization", "database_accesstoken1");
+    if (acceptEncoding != null) {
+      request.header("accept-encoding", acceptEncoding);
+    }
+    return mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse();
+  }
+
+  private static byte[] gunzip(final byte[] gzipped) throws IOException {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+      return StreamUtils.copyToByteArray(in);
+    }
   }
 
   // This test case passes when you try to get the detail of all the questions but the JWT token
@@ -65,6 +209,45 @@ public class QuestionControllerTest {
         .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
   }
 
+  // This test case passes when you ask for the questions in CBOR and the response is a CBOR array
+  // of the questions.
+  @Test
+  public void getAllQuestionsAsCbor() throws Exception {
+    byte[] body =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/question/all")
+                    .header("authorization", "database_accesstoken1")
+                    .accept(BinaryFormats.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(BinaryFormats.APPLICATION_CBOR))
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+    List<String> ids = new ArrayList<>();
+    for (JsonNode question : new ObjectMapper(new CBORFactory()).readTree(body)) {
+      ids.add(question.get("id").asText());
+    }
+    assertThat(ids, hasItem("database_question_uuid"));
+  }
+
+  // This test case passes when you ask for the questions in CBOR with a JWT token which does not
+  // exist in the database and the error is written in CBOR as well.
+  @Test
+  public void getAllQuestionsAsCborWithNonExistingAccessToken() throws Exception {
+    byte[] body =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/question/all")
+                    .header("authorization", "non_existing_access_token")
+                    .accept(BinaryFormats.APPLICATION_CBOR))
+            .andExpect(status().isForbidden())
+            .andExpect(content().contentType(BinaryFormats.APPLICATION_CBOR))
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+    assertThat(
+        new ObjectMapper(new CBORFactory()).readTree(body).get("code").asText(), is("ATHR-001"));
+  }
+
   // This test case passes when you try to get the detail of all the questions and the JWT token
   // entered exists in the database but the user corresponding to that JWT token is signed out.
   @Test
@@ -205,4 +388,170 @@ public class QuestionControllerTest {
         .andExpect(status().isNotFound())
         .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
   }
+
+  // This test case passes when you answer a question and the answer count and last activity of the
+  // question listed by its owner account for the answer.
+  @Test
+  public void getAllQuestionsByUserWithAnswerStats() throws Exception {
+    String questionId =
+        testContent.createQuestion("Answer stats question", "database_accesstoken1");
+    testContent.createAnswer(questionId, "my_answer", "database_accesstoken2");
+    mvc.perform(
+            MockMvcRequestBuilders.get("/question/all/database_uuid1")
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isOk())
+        .andExpect(
+            MockMvcResultMatchers.jsonPath("$[?(@.id == '" + questionId + "')].answer_count")
+                .value(hasItem(1)))
+        .andExpect(
+            MockMvcResultMatchers.jsonPath("$[?(@.id == '" + questionId + "')].last_activity_at")
+                .value(hasItem(notNullValue())));
+  }
+
+  // This test case passes when you get several questions at once and the questions which do not
+  // exist are reported as missing.
+  @Test
+  public void getSeveralQuestions() throws Exception {
+    mvc.perform(
+            MockMvcRequestBuilders.get("/question/batch")
+                .param("ids", "database_question_uuid,non_existing_question_uuid")
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isOk())
+        .andExpect(
+            MockMvcResultMatchers.jsonPath("questions.database_question_uuid.content")
+                .value("database_question_content"))
+        .andExpect(
+            MockMvcResultMatchers.jsonPath("missing_ids[0]").value("non_existing_question_uuid"));
+  }
+
+  // This test case passes when you get the thread of a question and it takes the same four queries
+  // whether the page holds one answer or several answers by different authors.
+  @Test
+  public void getQuestionThreadWithFixedNumberOfQueries() throws Exception {
+    String[] answerIds = {
+      testContent.createAnswer("database_question_uuid", "thread_answer", "database_accesstoken1"),
+      testContent.createAnswer("database_question_uuid", "thread_answer", "database_accesstoken2"),
+      testContent.createAnswer("database_question_uuid", "thread_answer", "database_accesstoken1")
+    };
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+    try {
+      statistics.clear();
+      mvc.perform(
+              MockMvcRequestBuilders.get("/question/database_question_uuid/thread?size=1")
+                  .header("authorization", "database_accesstoken"))
+          .andExpect(status().isOk())
+          .andExpect(MockMvcResultMatchers.jsonPath("answers.length()").value(1));
+      assertThat(statistics.getPrepareStatementCount(), is(4L));
+
+      statistics.clear();
+      mvc.perform(
+              MockMvcRequestBuilders.get("/question/database_question_uuid/thread?size=20")
+                  .header("authorization", "database_accesstoken"))
+          .andExpect(status().isOk())
+          .andExpect(
+              MockMvcResultMatchers.jsonPath("question.id").value("database_question_uuid"))
+          .andExpect(MockMvcResultMatchers.jsonPath("question.author_id").value("database_uuid1"))
+          .andExpect(MockMvcResultMatchers.jsonPath("answers[*].id").value(hasItems(answerIds)))
+          .andExpect(
+              MockMvcResultMatchers.jsonPath("authors.database_uuid2.user_name")
+                  .value("database_username2"))
+          .andExpect(MockMvcResultMatchers.jsonPath("authors.length()").value(2));
+      assertThat(statistics.getPrepareStatementCount(), is(4L));
+    } finally {
+      statistics.setStatisticsEnabled(false);
+    }
+    for (String answerId : answerIds) {
+      mvc.perform(
+              MockMvcRequestBuilders.delete("/answer/delete/" + answerId)
+                  .header("authorization", "database_accesstoken"))
+          .andExpect(status().isOk());
+    }
+  }
+
+  // This test case passes when you try to get the thread of a question which does not exist.
+  @Test
+  public void getThreadOfNonExistingQuestion() throws Exception {
+    mvc.perform(
+            MockMvcRequestBuilders.get("/question/non_existing_question_uuid/thread")
+                .header("authorization", "database_accesstoken"))
+        .andExpect(status().isNotFound())
+        .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+  }
+
+  // This test case passes when you send a made-up access token or question uuid a second time and
+  // it is rejected without querying for it again.
+  @Test
+  public void getThreadWithUnknownKeysTwice() throws Exception {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+    try {
+      for (int i = 0; i < 2; i++) {
+        statistics.clear();
+        mvc.perform(
+                MockMvcRequestBuilders.get("/question/database_question_uuid/thread")
+                    .header("authorization", "made_up_access_token"))
+            .andExpect(status().isForbidden())
+            .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+      }
+      assertThat(statistics.getPrepareStatementCount(), is(0L));
+
+      for (int i = 0; i < 2; i++) {
+        statistics.clear();
+        mvc.perform(
+                MockMvcRequestBuilders.get("/question/made_up_question_uuid/thread")
+                    .header("authorization", "database_accesstoken"))
+            .andExpect(status().isNotFound())
+            .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+      }
+      // only the access token is queried.
+      assertThat(statistics.getPrepareStatementCount(), is(1L));
+    } finally {
+      statistics.setStatisticsEnabled(false);
+    }
+  }
+
+  // This test case passes when you create a question twice with the same idempotency key and the
+  // second request gets the response of the first one instead of creating another question.
+  @Test
+  public void createQuestionWithRepeatedIdempotencyKey() throws Exception {
+    String questionId =
+        JsonPath.read(
+            mvc.perform(
+                    MockMvcRequestBuilders.post("/question/create?content=Idempotent question")
+                        .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                        .header("authorization", "database_accesstoken1")
+                        .header("Idempotency-Key", "create-question-key"))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(),
+            "id");
+    mvc.perform(
+            MockMvcRequestBuilders.post("/question/create?content=Idempotent question")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .header("authorization", "database_accesstoken1")
+                .header("Idempotency-Key", "create-question-key"))
+        .andExpect(status().isCreated())
+        .andExpect(header().string("Idempotent-Replayed", "true"))
+        .andExpect(MockMvcResultMatchers.jsonPath("id").value(questionId));
+  }
+
+  // This test case passes when you reuse the idempotency key of a question for another question.
+  @Test
+  public void createQuestionWithIdempotencyKeyOfAnotherQuestion() throws Exception {
+    mvc.perform(
+            MockMvcRequestBuilders.post("/question/create?content=First idempotent question")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .header("authorization", "database_accesstoken1")
+                .header("Idempotency-Key", "reused-question-key"))
+        .andExpect(status().isCreated());
+    mvc.perform(
+            MockMvcRequestBuilders.post("/question/create?content=Second idempotent question")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .header("authorization", "database_accesstoken1")
+                .header("Idempotency-Key", "reused-question-key"))
+        .andExpect(status().isConflict())
+        .andExpect(MockMvcResultMatchers.jsonPath("code").value("IDM-002"));
+  }
 }
@@ -0,0 +1,81 @@
+package com.upgrad.quora.api.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.Base64;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Creates the users, questions and answers a test needs beyond those of the test DB, through the
+ * endpoints, expecting every request to succeed. The users are left behind, so their names have to
+ * be unique per run; their password is {@code a}.
+ */
+final class TestContent {
+
+  private final AsyncMockMvc mvc;
+
+  TestContent(final AsyncMockMvc mvc) {
+    this.mvc = mvc;
+  }
+
+  String signup(final String userName) throws Exception {
+    return JsonPath.read(
+        mvc.perform(
+                MockMvcRequestBuilders.post(
+                        "/user/signup?firstName=a&lastName=a&userName="
+                            + userName
+                            + "&emailAddress="
+                            + userName
+                            + "_email&password=a&country=a&aboutMe=a&dob=a&contactNumber=a")
+                    .contentType(MediaType.APPLICATION_JSON_UTF8))
+            .andExpect(status().isCreated())
+            .andReturn()
+            .getResponse()
+            .getContentAsString(),
+        "id");
+  }
+
+  String signin(final String userName) throws Exception {
+    return mvc.perform(
+            MockMvcRequestBuilders.post("/user/signin")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .header(
+                    "authorization",
+                    "Basic " + Base64.getEncoder().encodeToString((userName + ":a").getBytes())))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getHeader("access-token");
+  }
+
+  String createQuestion(final String content, final String accessToken) throws Exception {
+    return JsonPath.read(
+        mvc.perform(
+                MockMvcRequestBuilders.post("/question/create?content=" + content)
+                    .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                    .header("authorization", accessToken))
+            .andExpect(status().isCreated())
+            .andReturn()
+            .getResponse()
+            .getContentAsString(),
+        "id");
+  }
+
+  String createAnswer(final String questionId, final String answer, final String accessToken)
+      throws Exception {
+    return JsonPath.read(
+        mvc.perform(
+                MockMvcRequestBuilders.post(
+                        "/question/" + questionId + "/answer/create?answer=" + answer)
+                    .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                    .header("authorization", accessToken))
+            .andExpect(status().isCreated())
+            .andReturn()
+            .getResponse()
+            .getContentAsString(),
+        "id");
+  }
+}
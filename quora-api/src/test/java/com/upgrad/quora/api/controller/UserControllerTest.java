@@ -1,5 +1,7 @@
 package com.upgrad.quora.api.controller;
 
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +13,9 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.Base64;
+
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -18,7 +23,14 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc
 public class UserControllerTest {
 
-  @Autowired private MockMvc mvc;
+  @Autowired private MockMvc mockMvc;
+
+  private AsyncMockMvc mvc;
+
+  @Before
+  public void setUp() {
+    mvc = new AsyncMockMvc(mockMvc);
+  }
 
   // This test case passes when you signup with a username that already exists in the database.
   @Test
@@ -42,6 +54,47 @@ public class UserControllerTest {
         .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-002"));
   }
 
+  // This test case passes when you send a signup again with the same idempotency key and get the
+  // user created by the first signup instead of SGR-001, while another anonymous signup with the
+  // same key creates its own user.
+  @Test
+  public void signupWithRepeatedIdempotencyKey() throws Exception {
+    // The users are left behind, so their names are unique per run.
+    String userName = "idempotent_" + System.nanoTime();
+    String signup = signupPath(userName);
+    String userId =
+        JsonPath.read(
+            mvc.perform(
+                    MockMvcRequestBuilders.post(signup)
+                        .contentType(MediaType.APPLICATION_JSON_UTF8)
+                        .header("Idempotency-Key", "signup-key"))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(),
+            "id");
+    mvc.perform(
+            MockMvcRequestBuilders.post(signup)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .header("Idempotency-Key", "signup-key"))
+        .andExpect(status().isCreated())
+        .andExpect(MockMvcResultMatchers.jsonPath("id").value(userId));
+    mvc.perform(
+            MockMvcRequestBuilders.post(signupPath(userName + "_other"))
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .header("Idempotency-Key", "signup-key"))
+        .andExpect(status().isCreated())
+        .andExpect(MockMvcResultMatchers.jsonPath("id").value(not(userId)));
+  }
+
+  private static String signupPath(final String userName) {
+    return "/user/signup?firstName=a&lastName=a&userName="
+        + userName
+        + "&emailAddress="
+        + userName
+        + "_email&password=a&country=a&aboutMe=a&dob=a&contactNumber=a";
+  }
+
   // This test case passes when you try to signout but the JWT token entered does not exist in the
   // database.
   @Test
@@ -52,4 +105,64 @@ public class UserControllerTest {
         .andExpect(status().isUnauthorized())
         .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-001"));
   }
+
+  // This test case passes when you look up the usernames starting with a prefix and the JWT token
+  // entered exists in the database and the user corresponding to that JWT token is signed in.
+  @Test
+  public void suggestUsers() throws Exception {
+    mvc.perform(
+            MockMvcRequestBuilders.get("/user/suggest?prefix=database_username1")
+                .header("authorization", "database_accesstoken1"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value("database_uuid1"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].user_name").value("database_username1"));
+  }
+
+  // This test case passes when you look up the usernames starting with a prefix but the JWT token
+  // entered does not exist in the database.
+  @Test
+  public void suggestUsersWithNonExistingAccessToken() throws Exception {
+    mvc.perform(
+            MockMvcRequestBuilders.get("/user/suggest?prefix=database_username")
+                .header("authorization", "non_existing_access_token"))
+        .andExpect(status().isForbidden())
+        .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+  }
+
+  // This test case passes when you signup, signin and then signout using the access token returned
+  // by the signin.
+  @Test
+  public void signinAndSignout() throws Exception {
+    // The user is left behind, so its name is unique per run.
+    String userName = "signin_" + System.nanoTime();
+    mvc.perform(
+            MockMvcRequestBuilders.post(
+                    "/user/signup?firstName=a&lastName=a&userName="
+                        + userName
+                        + "&emailAddress="
+                        + userName
+                        + "_email&password=signin_password"
+                        + "&country=a&aboutMe=a&dob=a&contactNumber=a")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+        .andExpect(status().isCreated());
+    String accessToken =
+        mvc.perform(
+                MockMvcRequestBuilders.post("/user/signin")
+                    .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                    .header(
+                        "authorization",
+                        "Basic "
+                            + Base64.getEncoder()
+                                .encodeToString((userName + ":signin_password").getBytes())))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("access-token");
+    mvc.perform(
+            MockMvcRequestBuilders.post("/user/signout")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .header("authorization", accessToken))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("message").value("SIGNED OUT SUCCESSFULLY"));
+  }
 }
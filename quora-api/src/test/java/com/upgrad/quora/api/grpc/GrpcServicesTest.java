@@ -0,0 +1,130 @@
+package com.upgrad.quora.api.grpc;
+
+import com.upgrad.quora.api.grpc.proto.Answer;
+import com.upgrad.quora.api.grpc.proto.AnswerServiceGrpc;
+import com.upgrad.quora.api.grpc.proto.GetUserProfileRequest;
+import com.upgrad.quora.api.grpc.proto.ListAnswersRequest;
+import com.upgrad.quora.api.grpc.proto.ListQuestionsRequest;
+import com.upgrad.quora.api.grpc.proto.Question;
+import com.upgrad.quora.api.grpc.proto.QuestionServiceGrpc;
+import com.upgrad.quora.api.grpc.proto.SigninRequest;
+import com.upgrad.quora.api.grpc.proto.UserProfile;
+import com.upgrad.quora.api.grpc.proto.UserServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.AbstractStub;
+import io.grpc.stub.MetadataUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "quora.grpc.port=0")
+public class GrpcServicesTest {
+
+  @Autowired private GrpcServer grpcServer;
+
+  private ManagedChannel channel;
+
+  @Before
+  public void setUp() {
+    channel =
+        NettyChannelBuilder.forAddress("localhost", grpcServer.getPort()).usePlaintext().build();
+  }
+
+  @After
+  public void tearDown() {
+    channel.shutdownNow();
+  }
+
+  // This test case passes when you stream all the questions with a signed in user and the stream
+  // contains the question of the test data.
+  @Test
+  public void listQuestions() {
+    Iterator<Question> questions =
+        withToken(QuestionServiceGrpc.newBlockingStub(channel), "database_accesstoken")
+            .listQuestions(ListQuestionsRequest.getDefaultInstance());
+    List<String> ids = new ArrayList<>();
+    questions.forEachRemaining(question -> ids.add(question.getId()));
+    assertTrue(ids.contains("database_question_uuid"));
+  }
+
+  // This test case passes when you stream all the questions with an access token which does not
+  // exist in the database and the call fails with the error code of the REST API.
+  @Test
+  public void listQuestionsWithNonExistingAccessToken() {
+    Iterator<Question> questions =
+        withToken(QuestionServiceGrpc.newBlockingStub(channel), "non_existing_access_token")
+            .listQuestions(ListQuestionsRequest.getDefaultInstance());
+    assertFails(Status.Code.PERMISSION_DENIED, "ATHR-001", () -> questions.hasNext());
+  }
+
+  // This test case passes when you stream the answers to the question of the test data and the
+  // stream contains the answer of the test data.
+  @Test
+  public void listAnswers() {
+    Iterator<Answer> answers =
+        withToken(AnswerServiceGrpc.newBlockingStub(channel), "database_accesstoken")
+            .listAnswers(
+                ListAnswersRequest.newBuilder().setQuestionId("database_question_uuid").build());
+    List<String> contents = new ArrayList<>();
+    answers.forEachRemaining(answer -> contents.add(answer.getAnswerContent()));
+    assertTrue(contents.contains("my_answer"));
+  }
+
+  // This test case passes when you get the profile of an existing user with a signed in user.
+  @Test
+  public void getUserProfile() {
+    UserProfile userProfile =
+        withToken(UserServiceGrpc.newBlockingStub(channel), "database_accesstoken")
+            .getUserProfile(GetUserProfileRequest.newBuilder().setUserId("database_uuid1").build());
+    assertTrue(!userProfile.getUserName().isEmpty());
+  }
+
+  // This test case passes when you sign in with a username which does not exist in the database.
+  @Test
+  public void signinWithNonExistingUser() {
+    assertFails(
+        Status.Code.UNAUTHENTICATED,
+        "ATH-001",
+        () ->
+            UserServiceGrpc.newBlockingStub(channel)
+                .signin(
+                    SigninRequest.newBuilder()
+                        .setUserName("non_existing_user")
+                        .setPassword("password")
+                        .build()));
+  }
+
+  private static <S extends AbstractStub<S>> S withToken(final S stub, final String accessToken) {
+    Metadata headers = new Metadata();
+    headers.put(AccessTokenInterceptor.AUTHORIZATION, accessToken);
+    return stub.withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers));
+  }
+
+  private static void assertFails(
+      final Status.Code code, final String errorCode, final Runnable call) {
+    try {
+      call.run();
+      fail("The call did not fail");
+    } catch (StatusRuntimeException e) {
+      assertEquals(code, e.getStatus().getCode());
+      assertEquals(errorCode, e.getTrailers().get(GrpcCalls.ERROR_CODE));
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package com.upgrad.quora.benchmarks;
+
+import com.upgrad.quora.service.business.CommonUserService;
+import com.upgrad.quora.service.cache.InvalidationBus;
+import com.upgrad.quora.service.cache.UserProfileCache;
+import com.upgrad.quora.service.dao.UserAuthDao;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.UserNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import javax.persistence.TypedQuery;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation of the two most frequent error paths, an access token that does not exist
+ * (ATHR-001) and a user uuid that does not exist (USR-001), through the services and DAOs of
+ * quora-service against a DB without the rows: an {@link EntityManager} whose queries return no
+ * row, and whose {@link TypedQuery#getSingleResult()} throws the {@link NoResultException} of
+ * Hibernate.
+ *
+ * <p>The {@code after} benchmarks call {@link CommonUserService#checkIfTokenIsValid} and {@link
+ * CommonUserService#getUserProfile}, which look the row up with {@code Queries.singleResult} and
+ * throw the shared or stack-less exceptions. With {@code negativeCacheTtlMs} at 0 every call runs
+ * the query, at 30000 the token and the uuid are answered by the negative caches after the first
+ * call. The {@code before} benchmarks run the DAO lookups as they were, {@link
+ * TypedQuery#getSingleResult()} in a try block, against the same EntityManager.
+ *
+ * <p>The business exceptions no longer capture a stack trace, so the {@code before} paths only
+ * pay for the one of the NoResultException; and the stack under the benchmark is that of JMH, a
+ * few frames deep, where Tomcat, the filters and Spring MVC add some 100 frames under a request.
+ * The gap measured is a lower bound. Allocation per call is {@code gc.alloc.rate.norm}:
+ *
+ * <pre>
+ * java -jar quora-benchmarks/target/benchmarks.jar ErrorPathBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ErrorPathBenchmark {
+
+  private static final String UNKNOWN_TOKEN = "unknown_access_token";
+
+  private static final String UNKNOWN_UUID = "unknown_user_uuid";
+
+  @Param({"0", "30000"})
+  private long negativeCacheTtlMs;
+
+  private EntityManager entityManager;
+
+  private CommonUserService commonUserService;
+
+  @Setup
+  public void setUp() {
+    entityManager = emptyDb();
+    final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    final UserAuthDao userAuthDao = new UserAuthDao();
+    inject(userAuthDao, "entityManager", entityManager);
+    inject(userAuthDao, "meterRegistry", meterRegistry);
+    inject(userAuthDao, "maxUnknownTokens", 100000);
+    inject(userAuthDao, "unknownTokenTtlMillis", negativeCacheTtlMs);
+    userAuthDao.init();
+
+    final UserDao userDao = new UserDao();
+    inject(userDao, "entityManager", entityManager);
+
+    final InvalidationBus invalidationBus = new InvalidationBus();
+    inject(invalidationBus, "meterRegistry", meterRegistry);
+    invalidationBus.init();
+
+    final UserProfileCache userProfileCache = new UserProfileCache();
+    inject(userProfileCache, "userDao", userDao);
+    inject(userProfileCache, "meterRegistry", meterRegistry);
+    inject(userProfileCache, "invalidationBus", invalidationBus);
+    inject(userProfileCache, "maxEntries", 10000);
+    inject(userProfileCache, "maxUnknownEntries", 100000);
+    inject(userProfileCache, "unknownTtlMillis", negativeCacheTtlMs);
+    userProfileCache.init();
+
+    commonUserService = new CommonUserService();
+    inject(commonUserService, "userAuthDao", userAuthDao);
+    inject(commonUserService, "userDao", userDao);
+    inject(commonUserService, "userProfileCache", userProfileCache);
+  }
+
+  @Benchmark
+  public Object invalidTokenBefore() {
+    try {
+      // UserAuthDao.getUserAuthByToken and CommonUserService.checkIfTokenIsValid as they were.
+      UserAuthEntity userAuthEntity;
+      try {
+        userAuthEntity =
+            entityManager
+                .createNamedQuery("userAuthByAccessToken", UserAuthEntity.class)
+                .setParameter("accessToken", UNKNOWN_TOKEN)
+                .getSingleResult();
+      } catch (NoResultException nre) {
+        userAuthEntity = null;
+      }
+      if (userAuthEntity == null) {
+        throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
+      }
+      return userAuthEntity;
+    } catch (AuthorizationFailedException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object invalidTokenAfter() {
+    try {
+      commonUserService.checkIfTokenIsValid(UNKNOWN_TOKEN);
+      return null;
+    } catch (AuthorizationFailedException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object unknownUserBefore() {
+    try {
+      // UserDao.getUserById and CommonUserService.getUserById as they were.
+      UserEntity userEntity;
+      try {
+        userEntity =
+            entityManager
+                .createNamedQuery("userByUserId", UserEntity.class)
+                .setParameter("userId", UNKNOWN_UUID)
+                .getSingleResult();
+      } catch (NoResultException nre) {
+        userEntity = null;
+      }
+      if (userEntity == null) {
+        throw new UserNotFoundException("USR-001", "User with entered uuid does not exist");
+      }
+      return userEntity;
+    } catch (UserNotFoundException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object unknownUserAfter() {
+    try {
+      return commonUserService.getUserProfile(UNKNOWN_UUID);
+    } catch (UserNotFoundException e) {
+      return e;
+    }
+  }
+
+  // EntityManager of a DB where no query finds a row.
+  private static EntityManager emptyDb() {
+    final ClassLoader classLoader = ErrorPathBenchmark.class.getClassLoader();
+    final Object query =
+        Proxy.newProxyInstance(
+            classLoader,
+            new Class<?>[] {TypedQuery.class},
+            (proxy, method, args) -> {
+              switch (method.getName()) {
+                case "getResultList":
+                  return new ArrayList<>();
+                case "getSingleResult":
+                  throw new NoResultException("No entity found for query");
+                case "setParameter":
+                  return proxy;
+                default:
+                  throw new UnsupportedOperationException(method.getName());
+              }
+            });
+    return (EntityManager)
+        Proxy.newProxyInstance(
+            classLoader,
+            new Class<?>[] {EntityManager.class},
+            (proxy, method, args) -> {
+              if (method.getName().equals("createNamedQuery")) {
+                return query;
+              }
+              throw new UnsupportedOperationException(method.getName());
+            });
+  }
+
+  // sets a field injected by Spring in the application.
+  private static void inject(final Object target, final String name, final Object value) {
+    final Field field = ReflectionUtils.findField(target.getClass(), name);
+    ReflectionUtils.makeAccessible(field);
+    ReflectionUtils.setField(field, target, value);
+  }
+}
@@ -0,0 +1,132 @@
+package com.upgrad.quora.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.upgrad.quora.api.grpc.proto.Answer;
+import com.upgrad.quora.api.grpc.proto.Question;
+import com.upgrad.quora.api.model.AnswerDetailsResponse;
+import com.upgrad.quora.api.model.QuestionDetailsResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU time and size of the list responses of gRPC, the messages streamed by ListQuestions and
+ * ListAnswers, to be compared with those of REST measured by {@link SerializationBenchmark} for
+ * the same rows. Every message of a stream is encoded and decoded on its own, as gRPC does, and
+ * framed by a 5-byte prefix. The sizes of the gRPC and JSON lists are printed once per trial:
+ *
+ * <pre>
+ * java -jar quora-benchmarks/target/benchmarks.jar "GrpcPayloadBenchmark|SerializationBenchmark"
+ * </pre>
+ *
+ * The latency of the calls over the network is measured by {@link LoadTest}, with {@code --grpc}
+ * and then {@code --url} for the same list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GrpcPayloadBenchmark {
+
+  @Param({"1", "100", "1000"})
+  private int rows;
+
+  private List<Question> questions;
+
+  private List<Answer> answers;
+
+  private List<byte[]> questionMessages;
+
+  private List<byte[]> answerMessages;
+
+  @Setup
+  public void setUp() throws IOException {
+    questions = new ArrayList<>(rows);
+    for (QuestionDetailsResponse question : Payloads.questions(rows)) {
+      questions.add(
+          Question.newBuilder()
+              .setId(question.getId())
+              .setContent(question.getContent())
+              .setAnswerCount(question.getAnswerCount())
+              .setLastActivityAt(question.getLastActivityAt())
+              .build());
+    }
+    answers = new ArrayList<>(rows);
+    for (AnswerDetailsResponse answer : Payloads.answers(rows)) {
+      answers.add(
+          Answer.newBuilder()
+              .setId(answer.getId())
+              .setQuestionContent(answer.getQuestionContent())
+              .setAnswerContent(answer.getAnswerContent())
+              .build());
+    }
+    questionMessages = new ArrayList<>(rows);
+    questions.forEach(question -> questionMessages.add(question.toByteArray()));
+    answerMessages = new ArrayList<>(rows);
+    answers.forEach(answer -> answerMessages.add(answer.toByteArray()));
+
+    final ObjectWriter json =
+        SerializationBenchmark.mapper(SerializationBenchmark.Format.JSON).writer();
+    System.out.printf(
+        "%n%d rows: %d bytes of questions in gRPC, %d in JSON;"
+            + " %d bytes of answers in gRPC, %d in JSON%n",
+        rows,
+        framedSize(questionMessages),
+        json.forType(new TypeReference<List<QuestionDetailsResponse>>() {})
+            .writeValueAsBytes(Payloads.questions(rows))
+            .length,
+        framedSize(answerMessages),
+        json.forType(new TypeReference<List<AnswerDetailsResponse>>() {})
+            .writeValueAsBytes(Payloads.answers(rows))
+            .length);
+  }
+
+  @Benchmark
+  public void writeQuestions(final Blackhole blackhole) {
+    for (Question question : questions) {
+      blackhole.consume(question.toByteArray());
+    }
+  }
+
+  @Benchmark
+  public void readQuestions(final Blackhole blackhole) throws IOException {
+    for (byte[] message : questionMessages) {
+      blackhole.consume(Question.parseFrom(message));
+    }
+  }
+
+  @Benchmark
+  public void writeAnswers(final Blackhole blackhole) {
+    for (Answer answer : answers) {
+      blackhole.consume(answer.toByteArray());
+    }
+  }
+
+  @Benchmark
+  public void readAnswers(final Blackhole blackhole) throws IOException {
+    for (byte[] message : answerMessages) {
+      blackhole.consume(Answer.parseFrom(message));
+    }
+  }
+
+  private static long framedSize(final List<byte[]> messages) {
+    return messages.stream().mapToLong(message -> 5 + message.length).sum();
+  }
+}
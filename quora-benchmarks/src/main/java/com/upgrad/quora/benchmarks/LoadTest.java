@@ -0,0 +1,494 @@
+package com.upgrad.quora.benchmarks;
+
+import com.google.protobuf.MessageLite;
+import com.upgrad.quora.api.grpc.proto.AnswerServiceGrpc;
+import com.upgrad.quora.api.grpc.proto.ListAnswersRequest;
+import com.upgrad.quora.api.grpc.proto.ListQuestionsRequest;
+import com.upgrad.quora.api.grpc.proto.QuestionServiceGrpc;
+import io.grpc.Channel;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.http.RequestOptions;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load test of a running server: every simulated client sends a request, waits for the
+ * whole response and sends the next one right away. The test runs at each level of concurrency in
+ * turn, e.g. 1000, 5000 and 10000 clients, and prints for each the throughput and the latency
+ * percentiles of the requests completed after the warm-up.
+ *
+ * <p>The request execution modes of quora-api are compared by running the test against the server
+ * started with {@code quora.executors.virtual-threads=false}, then again with {@code true}:
+ *
+ * <pre>
+ * java -cp quora-benchmarks/target/benchmarks.jar com.upgrad.quora.benchmarks.LoadTest \
+ *     --url http://localhost:8080/api/question/all --token &lt;access token&gt; \
+ *     --clients 1000,5000,10000 --warmup 10 --duration 30
+ * </pre>
+ *
+ * The runs made so far, with the host they ran on, are kept in quora-benchmarks/results.
+ *
+ * <p>The bytes on the wire and the latency of a list at several sizes are measured with {@code
+ * --sizes}, each replacing {@code {size}} in the URL in turn, e.g. {@code --sizes 1,10,100} with
+ * {@code --url http://localhost:8080/api/question/<uuid>/thread?size={size}} for pages of 1, 10
+ * and 100 answers of a question. {@code --accept-encoding gzip} asks for compressed responses and
+ * {@code --h2c true} upgrades the connections to HTTP/2.
+ *
+ * <p>The same list is fetched over gRPC with {@code --grpc localhost:9090} in place of {@code
+ * --url}: ListQuestions, or ListAnswers with {@code --question <uuid>} as /answer/all/{questionId}.
+ * Each REST client has a keep-alive connection of its own, while gRPC multiplexes the calls of all
+ * clients over {@code --channels} HTTP/2 connections, 1 by default. The bytes per response are
+ * those of the body as sent: the JSON of REST, compressed if accepted, or the length-prefixed
+ * messages of gRPC.
+ *
+ * <p>The resources used per request by quora-api and quora-api-reactive are compared by running
+ * the same list against each, e.g. {@code --url http://localhost:8080/api/question/all} and then
+ * {@code http://localhost:8081/api/question/all}, with {@code --pid} of the server process when it
+ * runs on the same Linux host: the CPU time it used per request while measuring, then its resident
+ * memory and threads, are read from /proc.
+ *
+ * <p>Thousands of clients need as many open files on both sides ({@code ulimit -n}), and the server
+ * has to accept as many connections ({@code server.tomcat.max-connections}, 10000 by default).
+ * Responses other than 2xx or OK, e.g. the 503 of a saturated executor, are counted as errors and
+ * left out of the latencies.
+ */
+public final class LoadTest {
+
+  private static final Metadata.Key<String> AUTHORIZATION =
+      Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER);
+
+  // gRPC frames every message with a compressed flag and a length.
+  private static final int GRPC_MESSAGE_PREFIX = 5;
+
+  private LoadTest() {}
+
+  public static void main(final String[] args) throws IOException, InterruptedException {
+    final Map<String, String> options = parse(args);
+    final String url = options.get("url");
+    final String grpc = options.get("grpc");
+    if ((url == null) == (grpc == null)) {
+      throw new IllegalArgumentException("Either --url or --grpc is required");
+    }
+    final String token = options.get("token");
+    final int[] levels =
+        Arrays.stream(options.getOrDefault("clients", "1000,5000,10000").split(","))
+            .mapToInt(Integer::parseInt)
+            .toArray();
+    final long warmupSeconds = Long.parseLong(options.getOrDefault("warmup", "10"));
+    final long durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+    final String pid = options.get("pid");
+
+    final Vertx vertx = Vertx.vertx();
+    try {
+      if (grpc != null) {
+        System.out.printf(
+            "gRPC %s, %d s warm-up, %d s measured%n", grpc, warmupSeconds, durationSeconds);
+        for (int clients : levels) {
+          measure(
+              grpc(
+                  grpc,
+                  token,
+                  options.get("question"),
+                  Integer.parseInt(options.getOrDefault("channels", "1"))),
+              clients,
+              warmupSeconds,
+              durationSeconds,
+              pid);
+        }
+        return;
+      }
+      final String acceptEncoding = options.get("accept-encoding");
+      final boolean h2c = Boolean.parseBoolean(options.get("h2c"));
+      final String[] sizes =
+          options.containsKey("sizes") ? options.get("sizes").split(",") : new String[] {""};
+      for (String size : sizes) {
+        final String sizedUrl = url.replace("{size}", size);
+        System.out.printf(
+            "GET %s%s%s, %d s warm-up, %d s measured%n",
+            sizedUrl,
+            h2c ? " over h2c" : "",
+            acceptEncoding != null ? ", accept-encoding " + acceptEncoding : "",
+            warmupSeconds,
+            durationSeconds);
+        for (int clients : levels) {
+          measure(
+              rest(vertx, sizedUrl, token, acceptEncoding, h2c, clients),
+              clients,
+              warmupSeconds,
+              durationSeconds,
+              pid);
+        }
+      }
+    } finally {
+      vertx.close();
+    }
+  }
+
+  private static void measure(
+      final Target target,
+      final int clients,
+      final long warmupSeconds,
+      final long durationSeconds,
+      final String pid)
+      throws IOException, InterruptedException {
+    try {
+      final Level level = new Level(clients, pid);
+      for (int i = 0; i < clients; i++) {
+        send(target.endpoint(i), level);
+      }
+      TimeUnit.SECONDS.sleep(warmupSeconds);
+      level.startMeasuring();
+      TimeUnit.SECONDS.sleep(durationSeconds);
+      level.stop();
+      level.print();
+    } finally {
+      target.close();
+    }
+  }
+
+  // sends the requests of one client until the level is stopped.
+  private static void send(final Endpoint endpoint, final Level level) {
+    if (!level.running) {
+      level.clientsDone.countDown();
+      return;
+    }
+    endpoint.send(level, () -> send(endpoint, level));
+  }
+
+  private static Target rest(
+      final Vertx vertx,
+      final String url,
+      final String token,
+      final String acceptEncoding,
+      final boolean h2c,
+      final int clients) {
+    final RequestOptions request =
+        new RequestOptions().setMethod(HttpMethod.GET).setAbsoluteURI(url);
+    if (token != null) {
+      request.putHeader("authorization", token);
+    }
+    if (acceptEncoding != null) {
+      // The client does not decompress, so the bytes counted are those sent by the server.
+      request.putHeader("accept-encoding", acceptEncoding);
+    }
+    final HttpClientOptions clientOptions =
+        new HttpClientOptions().setKeepAlive(true).setConnectTimeout(30000);
+    final PoolOptions poolOptions = new PoolOptions().setHttp1MaxSize(clients);
+    if (h2c) {
+      // Upgraded from HTTP/1.1, and still a connection per client rather than one multiplexed.
+      clientOptions
+          .setProtocolVersion(HttpVersion.HTTP_2)
+          .setHttp2ClearTextUpgrade(true)
+          .setHttp2MultiplexingLimit(1);
+      poolOptions.setHttp2MaxSize(clients);
+    }
+    final HttpClient client = vertx.createHttpClient(clientOptions, poolOptions);
+    final Endpoint endpoint =
+        (level, next) -> {
+          final long start = System.nanoTime();
+          client
+              .request(request)
+              .compose(
+                  req ->
+                      req.send()
+                          .compose(
+                              response ->
+                                  response
+                                      .body()
+                                      .map(
+                                          body ->
+                                              level.completed(
+                                                  start,
+                                                  response.statusCode() / 100 == 2,
+                                                  body.length()))))
+              .onComplete(
+                  result -> {
+                    if (result.failed()) {
+                      level.failed();
+                    }
+                    next.run();
+                  });
+        };
+    return new Target() {
+      @Override
+      public Endpoint endpoint(final int client) {
+        return endpoint;
+      }
+
+      @Override
+      public void close() {
+        client.close();
+      }
+    };
+  }
+
+  private static Target grpc(
+      final String address, final String token, final String questionId, final int channels) {
+    final Metadata headers = new Metadata();
+    if (token != null) {
+      headers.put(AUTHORIZATION, token);
+    }
+    final List<ManagedChannel> connections = new ArrayList<>(channels);
+    final List<Endpoint> endpoints = new ArrayList<>(channels);
+    for (int i = 0; i < channels; i++) {
+      // Not a direct executor: a call failing fast would start the next one on the same stack.
+      final ManagedChannel connection =
+          ManagedChannelBuilder.forTarget(address).usePlaintext().build();
+      final Channel channel =
+          ClientInterceptors.intercept(
+              connection, MetadataUtils.newAttachHeadersInterceptor(headers));
+      connections.add(connection);
+      if (questionId == null) {
+        final QuestionServiceGrpc.QuestionServiceStub stub = QuestionServiceGrpc.newStub(channel);
+        endpoints.add(
+            (level, next) ->
+                stub.listQuestions(
+                    ListQuestionsRequest.getDefaultInstance(), new Response<>(level, next)));
+      } else {
+        final AnswerServiceGrpc.AnswerServiceStub stub = AnswerServiceGrpc.newStub(channel);
+        final ListAnswersRequest request =
+            ListAnswersRequest.newBuilder().setQuestionId(questionId).build();
+        endpoints.add((level, next) -> stub.listAnswers(request, new Response<>(level, next)));
+      }
+    }
+    return new Target() {
+      @Override
+      public Endpoint endpoint(final int client) {
+        return endpoints.get(client % endpoints.size());
+      }
+
+      @Override
+      public void close() throws InterruptedException {
+        for (ManagedChannel connection : connections) {
+          connection.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        }
+      }
+    };
+  }
+
+  // --name value pairs.
+  private static Map<String, String> parse(final String[] args) {
+    final Map<String, String> options = new HashMap<>();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (!args[i].startsWith("--")) {
+        throw new IllegalArgumentException("Expected an option, got " + args[i]);
+      }
+      options.put(args[i].substring(2), args[i + 1]);
+    }
+    return options;
+  }
+
+  /** Server under test, for one level of concurrency. */
+  private interface Target {
+
+    Endpoint endpoint(int client);
+
+    void close() throws InterruptedException;
+  }
+
+  /** Request of a client. */
+  private interface Endpoint {
+
+    /**
+     * Sends the request and records its outcome.
+     *
+     * @param level level the request belongs to.
+     * @param next run once the whole response is received or the request failed.
+     */
+    void send(Level level, Runnable next);
+  }
+
+  /** Streamed response of a gRPC call. */
+  private static final class Response<T extends MessageLite> implements StreamObserver<T> {
+
+    private final Level level;
+
+    private final Runnable next;
+
+    private final long start = System.nanoTime();
+
+    private long bytes;
+
+    private Response(final Level level, final Runnable next) {
+      this.level = level;
+      this.next = next;
+    }
+
+    @Override
+    public void onNext(final T message) {
+      bytes += GRPC_MESSAGE_PREFIX + message.getSerializedSize();
+    }
+
+    @Override
+    public void onError(final Throwable t) {
+      level.failed();
+      next.run();
+    }
+
+    @Override
+    public void onCompleted() {
+      level.completed(start, true, bytes);
+      next.run();
+    }
+  }
+
+  /** Requests of one level of concurrency. */
+  private static final class Level {
+
+    private final int clients;
+
+    // of the server process, null if it is not sampled.
+    private final String pid;
+
+    private final CountDownLatch clientsDone;
+
+    // microseconds, of the successful requests completed while measuring.
+    private final Histogram latencies = new ConcurrentHistogram(3);
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private volatile boolean running = true;
+
+    private volatile boolean measuring;
+
+    private long measureStart;
+
+    private long measureEnd;
+
+    private ServerProcess serverStart;
+
+    private ServerProcess serverEnd;
+
+    private Level(final int clients, final String pid) {
+      this.clients = clients;
+      this.clientsDone = new CountDownLatch(clients);
+      this.pid = pid;
+    }
+
+    private Void completed(final long start, final boolean ok, final long responseBytes) {
+      if (!measuring) {
+        return null;
+      }
+      if (!ok) {
+        errors.increment();
+        return null;
+      }
+      latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+      bytes.add(responseBytes);
+      return null;
+    }
+
+    private void failed() {
+      if (measuring) {
+        errors.increment();
+      }
+    }
+
+    private void startMeasuring() throws IOException {
+      serverStart = pid != null ? ServerProcess.read(pid) : null;
+      measureStart = System.nanoTime();
+      measuring = true;
+    }
+
+    private void stop() throws IOException, InterruptedException {
+      measuring = false;
+      measureEnd = System.nanoTime();
+      // Sampled while the clients are still connected.
+      serverEnd = pid != null ? ServerProcess.read(pid) : null;
+      running = false;
+      // The clients stop once their request in flight is answered.
+      clientsDone.await(60, TimeUnit.SECONDS);
+    }
+
+    private void print() {
+      final double seconds = (measureEnd - measureStart) / 1e9;
+      final long requests = latencies.getTotalCount();
+      System.out.printf(
+          "%6d clients %9.0f req/s  p50 %8.1f ms  p99 %8.1f ms  p99.9 %8.1f ms  max %8.1f ms"
+              + "  errors %d  %.0f bytes/response%n",
+          clients,
+          requests / seconds,
+          latencies.getValueAtPercentile(50) / 1000.0,
+          latencies.getValueAtPercentile(99) / 1000.0,
+          latencies.getValueAtPercentile(99.9) / 1000.0,
+          latencies.getMaxValue() / 1000.0,
+          errors.sum(),
+          requests == 0 ? 0.0 : (double) bytes.sum() / requests);
+      if (serverEnd != null) {
+        // of all the requests answered, errors included.
+        final long answered = requests + errors.sum();
+        System.out.printf(
+            "       server  %9.1f us CPU/request  %d MiB resident  %d threads%n",
+            answered == 0 ? 0.0 : (serverEnd.cpuMicros - serverStart.cpuMicros) / (double) answered,
+            serverEnd.residentKib / 1024,
+            serverEnd.threads);
+      }
+    }
+  }
+
+  /** Resources used by the server process, as read from /proc on Linux. */
+  private static final class ServerProcess {
+
+    // of utime and stime, USER_HZ being 100 on all the supported architectures.
+    private static final long MICROS_PER_TICK = 10_000;
+
+    private final long cpuMicros;
+
+    private final long residentKib;
+
+    private final long threads;
+
+    private ServerProcess(final long cpuMicros, final long residentKib, final long threads) {
+      this.cpuMicros = cpuMicros;
+      this.residentKib = residentKib;
+      this.threads = threads;
+    }
+
+    private static ServerProcess read(final String pid) throws IOException {
+      final Path proc = Paths.get("/proc", pid);
+      // The name of the command, in parentheses, may contain spaces: the fields after it are
+      // split, utime and stime being the 14th and 15th of the line.
+      final String stat =
+          new String(Files.readAllBytes(proc.resolve("stat")), StandardCharsets.US_ASCII);
+      final String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+      final long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+      long residentKib = 0;
+      long threads = 0;
+      for (String line : Files.readAllLines(proc.resolve("status"), StandardCharsets.US_ASCII)) {
+        if (line.startsWith("VmRSS:")) {
+          residentKib = Long.parseLong(line.replaceAll("[^0-9]", ""));
+        } else if (line.startsWith("Threads:")) {
+          threads = Long.parseLong(line.replaceAll("[^0-9]", ""));
+        }
+      }
+      return new ServerProcess(ticks * MICROS_PER_TICK, residentKib, threads);
+    }
+  }
+}
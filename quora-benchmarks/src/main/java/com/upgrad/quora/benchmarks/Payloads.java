@@ -0,0 +1,64 @@
+package com.upgrad.quora.benchmarks;
+
+import com.upgrad.quora.api.model.AnswerDetailsResponse;
+import com.upgrad.quora.api.model.QuestionDetailsResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/** Lists of questions and answers shaped as those of the REST endpoints, for the benchmarks. */
+final class Payloads {
+
+  private static final String QUESTION =
+      "How do I keep the latency of a Java web service low once it serves thousands of users?";
+
+  private static final String ANSWER =
+      "Measure first: find out where the time goes under load, then keep the work per request"
+          + " small, avoid blocking on shared resources and cache what is read far more often"
+          + " than it is written.";
+
+  private Payloads() {}
+
+  /**
+   * Creates the rows of /question/all.
+   *
+   * @param rows number of questions.
+   * @return the questions, the same for the same number.
+   */
+  static List<QuestionDetailsResponse> questions(final int rows) {
+    final List<QuestionDetailsResponse> questions = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      questions.add(
+          new QuestionDetailsResponse()
+              .id(uuid("question", i))
+              .content(QUESTION + " (" + i + ")")
+              .answerCount(i % 7)
+              .lastActivityAt("2026-10-18T21:" + (10 + i % 50) + ":00+02:00"));
+    }
+    return questions;
+  }
+
+  /**
+   * Creates the rows of /answer/all/{questionId}.
+   *
+   * @param rows number of answers.
+   * @return the answers, the same for the same number.
+   */
+  static List<AnswerDetailsResponse> answers(final int rows) {
+    final List<AnswerDetailsResponse> answers = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      answers.add(
+          new AnswerDetailsResponse()
+              .id(uuid("answer", i))
+              .questionContent(QUESTION)
+              .answerContent(ANSWER + " (" + i + ")"));
+    }
+    return answers;
+  }
+
+  static String uuid(final String kind, final int i) {
+    return UUID.nameUUIDFromBytes((kind + i).getBytes(StandardCharsets.UTF_8)).toString();
+  }
+}
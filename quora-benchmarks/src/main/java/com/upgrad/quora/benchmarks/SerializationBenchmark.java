@@ -0,0 +1,147 @@
+package com.upgrad.quora.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.upgrad.quora.api.model.AnswerDetailsResponse;
+import com.upgrad.quora.api.model.QuestionDetailsResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CPU time and size of the list responses in each format offered by the REST endpoints: JSON,
+ * CBOR and Smile. The mappers are set up as those of quora-api, by a {@link
+ * Jackson2ObjectMapperBuilder} with Afterburner, and write the models generated from the endpoint
+ * definitions. The size of each list, as written and as gzipped by the server when the client
+ * accepts it, is printed once per trial, before its measurements:
+ *
+ * <pre>
+ * java -jar quora-benchmarks/target/benchmarks.jar SerializationBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+  /** Formats of the responses. */
+  public enum Format {
+    JSON,
+    CBOR,
+    SMILE
+  }
+
+  @Param({"JSON", "CBOR", "SMILE"})
+  private Format format;
+
+  @Param({"1", "100", "1000"})
+  private int rows;
+
+  private List<QuestionDetailsResponse> questions;
+
+  private List<AnswerDetailsResponse> answers;
+
+  private ObjectWriter questionsWriter;
+
+  private ObjectReader questionsReader;
+
+  private ObjectWriter answersWriter;
+
+  private ObjectReader answersReader;
+
+  private byte[] questionBytes;
+
+  private byte[] answerBytes;
+
+  @Setup
+  public void setUp() throws IOException {
+    final ObjectMapper mapper = mapper(format);
+    questions = Payloads.questions(rows);
+    answers = Payloads.answers(rows);
+    questionsWriter = mapper.writerFor(new TypeReference<List<QuestionDetailsResponse>>() {});
+    questionsReader = mapper.readerFor(new TypeReference<List<QuestionDetailsResponse>>() {});
+    answersWriter = mapper.writerFor(new TypeReference<List<AnswerDetailsResponse>>() {});
+    answersReader = mapper.readerFor(new TypeReference<List<AnswerDetailsResponse>>() {});
+    questionBytes = questionsWriter.writeValueAsBytes(questions);
+    answerBytes = answersWriter.writeValueAsBytes(answers);
+    System.out.printf(
+        "%n%s, %d rows: %d bytes of questions, %d gzipped; %d bytes of answers, %d gzipped%n",
+        format,
+        rows,
+        questionBytes.length,
+        gzippedSize(questionBytes),
+        answerBytes.length,
+        gzippedSize(answerBytes));
+  }
+
+  @Benchmark
+  public byte[] writeQuestions() throws IOException {
+    return questionsWriter.writeValueAsBytes(questions);
+  }
+
+  @Benchmark
+  public List<QuestionDetailsResponse> readQuestions() throws IOException {
+    return questionsReader.readValue(questionBytes);
+  }
+
+  @Benchmark
+  public byte[] writeAnswers() throws IOException {
+    return answersWriter.writeValueAsBytes(answers);
+  }
+
+  @Benchmark
+  public List<AnswerDetailsResponse> readAnswers() throws IOException {
+    return answersReader.readValue(answerBytes);
+  }
+
+  // size once compressed by the server, which gzips at the default level.
+  private static int gzippedSize(final byte[] bytes) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(bytes);
+    }
+    return out.size();
+  }
+
+  /**
+   * Builds the mapper of a format as quora-api does, see WebConfiguration and BinaryFormats.
+   *
+   * @param format format of the mapper.
+   * @return the mapper.
+   */
+  static ObjectMapper mapper(final Format format) {
+    final Jackson2ObjectMapperBuilder builder =
+        Jackson2ObjectMapperBuilder.json().modulesToInstall(new AfterburnerModule());
+    switch (format) {
+      case CBOR:
+        return builder.factory(new CBORFactory()).build();
+      case SMILE:
+        return builder.factory(new SmileFactory()).build();
+      default:
+        return builder.build();
+    }
+  }
+}
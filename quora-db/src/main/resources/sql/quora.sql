@@ -1,30 +1,54 @@
 
 --USERS table is created to store the details of all the users
 DROP TABLE IF EXISTS USERS CASCADE;
-CREATE TABLE IF NOT EXISTS USERS(id SERIAL, uuid VARCHAR(200) NOT NULL ,firstName VARCHAR(30) NOT NULL , lastName VARCHAR(30) NOT NULL ,userName VARCHAR(30) UNIQUE NOT NULL,  email VARCHAR(50) UNIQUE NOT NULL ,password VARCHAR(255) NOT NULL, salt VARCHAR(200) NOT NULL ,country VARCHAR(30) ,aboutMe VARCHAR(50),dob VARCHAR(30), role VARCHAR(30),contactNumber VARCHAR(30), PRIMARY KEY (id));
+CREATE TABLE IF NOT EXISTS USERS(id SERIAL, uuid VARCHAR(200) NOT NULL ,firstName VARCHAR(30) NOT NULL , lastName VARCHAR(30) NOT NULL ,userName VARCHAR(30) UNIQUE NOT NULL,  email VARCHAR(50) UNIQUE NOT NULL ,password VARCHAR(255) NOT NULL, salt VARCHAR(200) NOT NULL ,country VARCHAR(30) ,aboutMe VARCHAR(50),dob VARCHAR(30), role VARCHAR(30),contactNumber VARCHAR(30), deleted_at TIMESTAMP NULL, PRIMARY KEY (id));
+
+--Users soft-deleted by an admin wait here for the background purge of their rows
+CREATE INDEX IF NOT EXISTS USERS_DELETED_AT_IDX ON USERS(deleted_at) WHERE deleted_at IS NOT NULL;
 INSERT INTO users(
 	id, uuid, firstname, lastname, username, email, password, salt, country, aboutme, dob, role, contactnumber)
 	VALUES (1024,'rdtrdtdyt','Abhi','Mahajan','abhi','a@gmail.com','507FF5FED1CAC746','8Xt6jxoCI3MWsVaKY/1ySAp2qzlb2Z7P89+vDrb1o6U=', 'India' ,'I am @ UpGrad' ,'22-10-1995' , 'admin' , '1222333333' );
 
+--Old partitions of USER_AUTH and ANSWER are detached and moved here by the partition maintenance job
+CREATE SCHEMA IF NOT EXISTS ARCHIVE;
+
 --USER_AUTH table is created to store the login information of all the users
+--It is partitioned by month of LOGIN_AT; the monthly partitions (USER_AUTH_PYYYYMM) are created ahead of time by the partition maintenance job
 DROP TABLE IF EXISTS USER_AUTH CASCADE;
 CREATE TABLE IF NOT EXISTS USER_AUTH(
-	ID BIGSERIAL PRIMARY KEY,
+	ID BIGSERIAL,
 	uuid VARCHAR(200) NOT NULL,
 	USER_ID INTEGER NOT NULL,
 	ACCESS_TOKEN VARCHAR(500) NOT NULL,
 	EXPIRES_AT TIMESTAMP NOT NULL,
 	LOGIN_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-	LOGOUT_AT TIMESTAMP NULL
-);
+	LOGOUT_AT TIMESTAMP NULL,
+	PRIMARY KEY (ID, LOGIN_AT)
+) PARTITION BY RANGE (LOGIN_AT);
+CREATE TABLE IF NOT EXISTS USER_AUTH_DEFAULT PARTITION OF USER_AUTH DEFAULT;
 
 ALTER TABLE USER_AUTH ADD CONSTRAINT FK_USER_AUTH_USER_ID FOREIGN KEY(USER_ID) REFERENCES USERS(ID) ON DELETE CASCADE ;
+CREATE INDEX IF NOT EXISTS USER_AUTH_USER_ID_IDX ON USER_AUTH(USER_ID);
+CREATE INDEX IF NOT EXISTS USER_AUTH_ACCESS_TOKEN_IDX ON USER_AUTH(ACCESS_TOKEN);
 
 --QUESTION table is created to store the questions related information posted by any user in the Application
 DROP TABLE IF EXISTS QUESTION CASCADE;
-CREATE TABLE IF NOT EXISTS QUESTION(id SERIAL,uuid VARCHAR(200) NOT NULL, content VARCHAR(500) NOT NULL, date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE);
+CREATE TABLE IF NOT EXISTS QUESTION(id SERIAL,uuid VARCHAR(200) NOT NULL, content VARCHAR(500) NOT NULL, date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, answer_count INTEGER NOT NULL DEFAULT 0, last_activity_at TIMESTAMP NULL, PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE);
+CREATE INDEX IF NOT EXISTS QUESTION_USER_ID_IDX ON QUESTION(user_id);
+CREATE INDEX IF NOT EXISTS QUESTION_UUID_IDX ON QUESTION(uuid);
 
 
 --ANSWER table is created to store the answers related information in reply to any question posted in the Application
+--It is partitioned by month of date; the monthly partitions (ANSWER_PYYYYMM) are created ahead of time by the partition maintenance job
 DROP TABLE IF EXISTS ANSWER CASCADE;
-CREATE TABLE IF NOT EXISTS ANSWER(id SERIAL,uuid VARCHAR(200) NOT NULL, ans VARCHAR(255) NOT NULL,date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, question_id INTEGER NOT NULL , PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE, FOREIGN KEY (question_id) REFERENCES QUESTION(id) ON DELETE CASCADE);
+CREATE TABLE IF NOT EXISTS ANSWER(id SERIAL,uuid VARCHAR(200) NOT NULL, ans VARCHAR(255) NOT NULL,date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, question_id INTEGER NOT NULL , PRIMARY KEY(id, date), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE, FOREIGN KEY (question_id) REFERENCES QUESTION(id) ON DELETE CASCADE) PARTITION BY RANGE (date);
+CREATE TABLE IF NOT EXISTS ANSWER_DEFAULT PARTITION OF ANSWER DEFAULT;
+CREATE INDEX IF NOT EXISTS ANSWER_USER_ID_IDX ON ANSWER(user_id);
+CREATE INDEX IF NOT EXISTS ANSWER_UUID_IDX ON ANSWER(uuid);
+CREATE INDEX IF NOT EXISTS ANSWER_QUESTION_ID_IDX ON ANSWER(question_id);
+
+--CACHE_INVALIDATION table keeps the changes of the rows cached in memory, published to the other nodes through NOTIFY
+--A node which lost its connection catches up on the changes published meanwhile from here; old rows are purged
+DROP TABLE IF EXISTS CACHE_INVALIDATION CASCADE;
+CREATE TABLE IF NOT EXISTS CACHE_INVALIDATION(id BIGSERIAL, entity_type VARCHAR(20) NOT NULL, uuid VARCHAR(500) NOT NULL, origin VARCHAR(50) NOT NULL, published_at TIMESTAMP NOT NULL, PRIMARY KEY(id));
+CREATE INDEX IF NOT EXISTS CACHE_INVALIDATION_PUBLISHED_AT_IDX ON CACHE_INVALIDATION(published_at);
@@ -13,6 +13,11 @@ INSERT INTO users(id, uuid, firstname, lastname, username, email, password, salt
     VALUES (1029,'database_uuid4','database_firstname4','database_lastname4','database_username4','database_email4','database_password4','database_salt4', 'database_country4' ,'database_aboutme4' ,'database_dob4' , 'nonadmin' , 'database_contactnumber4' );
 
 
+--The test sessions and answers date from September 2018: like the rows of the application, they go to the monthly partitions of their month (<table>_PYYYYMM, as created by the partition maintenance job) rather than to the default ones
+CREATE TABLE IF NOT EXISTS USER_AUTH_P201809 PARTITION OF USER_AUTH FOR VALUES FROM ('2018-09-01') TO ('2018-10-01');
+CREATE TABLE IF NOT EXISTS ANSWER_P201809 PARTITION OF ANSWER FOR VALUES FROM ('2018-09-01') TO ('2018-10-01');
+
+
 --Insert values in USER_AUTH table
 insert into user_auth (id , uuid , user_id , access_token , expires_at , login_at, logout_at) values(1024 , 'database_uuid' , 1025 , 'database_accesstoken' , '2018-09-17 21:07:02.07' , '2018-09-17 13:07:02.07' , null);
 insert into user_auth (id , uuid , user_id , access_token , expires_at , login_at , logout_at) values(1025 , 'database_uuid1' , 1026 , 'database_accesstoken1' , '2018-09-17 21:07:02.07' , '2018-09-17 13:07:02.07' , null );
@@ -21,7 +26,7 @@ insert into user_auth (id , uuid , user_id , access_token , expires_at , login_a
 
 
 --Insert values in QUESTION table
-insert into question (id,uuid,content,date,user_id) values(1024,'database_question_uuid','database_question_content','2018-09-17 19:41:19.593',1026);
+insert into question (id,uuid,content,date,user_id,answer_count,last_activity_at) values(1024,'database_question_uuid','database_question_content','2018-09-17 19:41:19.593',1026,1,'2018-09-17 19:41:19.593');
 
 
 --Insert values in ANSWER table
@@ -3,12 +3,15 @@ package com.upgrad.quora.service;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Enabling the component scan and entity scan of classes in the below mentioned
- * "com.upgrad.quora.service" and "com.upgrad.quora.service.entity" packages respectively.
+ * "com.upgrad.quora.service" and "com.upgrad.quora.service.entity" packages respectively, and the
+ * scheduling of the background jobs in "com.upgrad.quora.service.job".
  */
 @Configuration
 @ComponentScan("com.upgrad.quora.service")
 @EntityScan("com.upgrad.quora.service.entity")
+@EnableScheduling
 public class ServiceConfiguration {}
@@ -1,16 +1,26 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.QuestionCache;
+import com.upgrad.quora.service.cache.UserProfileCache;
+import com.upgrad.quora.service.common.ContentVersions;
+import com.upgrad.quora.service.common.TransactionHooks;
+import com.upgrad.quora.service.dao.QuestionDao;
 import com.upgrad.quora.service.dao.UserAuthDao;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.index.QuestionSimilarityIndex;
+import com.upgrad.quora.service.index.UserNameIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.ZonedDateTime;
+import java.util.List;
+
 @Service
 public class AdminService {
 
@@ -18,8 +28,22 @@ public class AdminService {
 
   @Autowired private UserDao userDao;
 
+  @Autowired private QuestionDao questionDao;
+
+  @Autowired private UserNameIndex userNameIndex;
+
+  @Autowired private QuestionSimilarityIndex questionSimilarityIndex;
+
+  @Autowired private QuestionCache questionCache;
+
+  @Autowired private UserProfileCache userProfileCache;
+
+  @Autowired private ContentVersions contentVersions;
+
   /**
-   * Deletes the user form the database.
+   * Deletes the user form the database. The user is only marked as deleted here, which immediately
+   * hides the user, their questions and answers and invalidates their sessions; the rows are
+   * removed afterwards in small batches by {@link com.upgrad.quora.service.job.UserPurgeJob}.
    *
    * @param userId ID of the user to be deleted.
    * @param accessToken To authenticate if the user who is tying to delete the user.
@@ -32,11 +56,10 @@ public class AdminService {
   @Transactional(propagation = Propagation.REQUIRED)
   public UserEntity deleteUser(final String userId, final String accessToken)
       throws AuthorizationFailedException, UserNotFoundException {
-    UserAuthEntity userAuthEntity = this.userAuthDao.getUserAuthByToken(accessToken);
-
-    if (userAuthEntity == null) {
-      throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-    }
+    UserAuthEntity userAuthEntity =
+        this.userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> AuthorizationFailedException.NOT_SIGNED_IN);
 
     if (userAuthEntity.getLogoutAt() != null) {
       throw new AuthorizationFailedException("ATHR-002", "User is signed out");
@@ -47,14 +70,27 @@ public class AdminService {
           "ATHR-003", "Unauthorized Access, Entered user is not an admin");
     }
 
-    UserEntity existingUser = this.userDao.getUserById(userId);
-
-    if (existingUser == null) {
-      throw new UserNotFoundException(
-          "USR-001", "User with entered uuid to be deleted does not exist");
-    }
+    UserEntity existingUser =
+        this.userDao
+            .getUserById(userId)
+            .orElseThrow(
+                () ->
+                    new UserNotFoundException(
+                        "USR-001", "User with entered uuid to be deleted does not exist"));
 
-    UserEntity deletedUser = this.userDao.deleteUser(userId);
-    return deletedUser;
+    // The questions of the user are hidden along with the user, so drop them from the index as well.
+    List<String> questionUuids = this.questionDao.getQuestionUuidsByUser(existingUser);
+    existingUser.setDeletedAt(ZonedDateTime.now());
+    this.userDao.updateUserEntity(existingUser);
+    this.userProfileCache.changed(existingUser.getUuid());
+    this.questionCache.deleted(questionUuids);
+    TransactionHooks.afterCommit(
+        () -> {
+          userNameIndex.remove(existingUser.getUserName());
+          questionUuids.forEach(questionSimilarityIndex::remove);
+        });
+    // Their questions and answers drop out of every list.
+    contentVersions.allChanged();
+    return existingUser;
   }
 }
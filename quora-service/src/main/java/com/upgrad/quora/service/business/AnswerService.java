@@ -1,19 +1,31 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.QuestionCache;
+import com.upgrad.quora.service.common.ContentVersions;
+import com.upgrad.quora.service.common.ResultStreamer;
+import com.upgrad.quora.service.common.SingleFlight;
+import com.upgrad.quora.service.common.Versioned;
 import com.upgrad.quora.service.dao.AnswerDao;
 import com.upgrad.quora.service.dao.QuestionDao;
 import com.upgrad.quora.service.dao.UserAuthDao;
+import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.snapshot.AnswerSnapshot;
+import com.upgrad.quora.service.snapshot.QuestionDetails;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -27,8 +39,33 @@ public class AnswerService {
 
   @Autowired private QuestionDao questionDao;
 
+  @Autowired private UserDao userDao;
+
+  @Autowired private QuestionCache questionCache;
+
+  @Autowired private ContentVersions contentVersions;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Value("${quora.coalescing.answers.enabled:true}")
+  private boolean coalesceAnswers;
+
+  @Value("${quora.coalescing.answers.timeout-ms:5000}")
+  private long coalescingTimeoutMillis;
+
+  // Lists of answers being read, keyed by question uuid and version of the list.
+  private SingleFlight<String, List<AnswerSnapshot>> answersInFlight;
+
+  @PostConstruct
+  public void init() {
+    answersInFlight = new SingleFlight<>("answers", coalescingTimeoutMillis, meterRegistry);
+  }
+
   /**
-   * creates an answer in the database.
+   * creates an answer in the database and accounts for it in the answer count and last activity of
+   * the question.
    *
    * @param answerEntity Contains the answer content.
    * @param accessToken To authenticate the user who is trying to create an answer.
@@ -42,22 +79,31 @@ public class AnswerService {
   public AnswerEntity createAnswer(
       AnswerEntity answerEntity, final String accessToken, final String questionId)
       throws AuthorizationFailedException, InvalidQuestionException {
-    UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-    if (userAuthEntity == null) {
-      throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-    } else if (userAuthEntity.getLogoutAt() != null) {
+    UserAuthEntity userAuthEntity =
+        userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> AuthorizationFailedException.NOT_SIGNED_IN);
+    if (userAuthEntity.getLogoutAt() != null) {
       throw new AuthorizationFailedException(
           "ATHR-002", "User is signed out.Sign in first to post an answer");
     }
-    QuestionEntity questionEntity = questionDao.getQuestionById(questionId);
-    if (questionEntity == null) {
-      throw new InvalidQuestionException("QUES-001", "The question entered is invalid");
-    }
+    // Only the ids of the question and the user are needed for the insert.
+    QuestionDetails question =
+        questionCache
+            .get(questionId)
+            .orElseThrow(
+                () -> new InvalidQuestionException("QUES-001", "The question entered is invalid"));
+    QuestionEntity questionReference = questionDao.getQuestionReference(question.getId());
     answerEntity.setUuid(UUID.randomUUID().toString());
     answerEntity.setDate(ZonedDateTime.now());
-    answerEntity.setQuestionEntity(questionEntity);
-    answerEntity.setUserEntity(userAuthEntity.getUserEntity());
-    return answerDao.createAnswer(answerEntity);
+    answerEntity.setQuestionEntity(questionReference);
+    answerEntity.setUserEntity(userDao.getUserReference(userAuthEntity.getUserEntity().getId()));
+    AnswerEntity createdAnswer = answerDao.createAnswer(answerEntity);
+    questionDao.incrementAnswerCount(questionReference.getId(), createdAnswer.getDate());
+    // The answer count of the question is part of the question lists.
+    contentVersions.questionsChanged();
+    contentVersions.answersChanged(questionId);
+    return createdAnswer;
   }
 
   /**
@@ -75,28 +121,34 @@ public class AnswerService {
   public AnswerEntity editAnswer(
       final String accessToken, final String answerId, final String newAnswer)
       throws AnswerNotFoundException, AuthorizationFailedException {
-    UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-    if (userAuthEntity == null) {
-      throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-    } else if (userAuthEntity.getLogoutAt() != null) {
+    UserAuthEntity userAuthEntity =
+        userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> AuthorizationFailedException.NOT_SIGNED_IN);
+    if (userAuthEntity.getLogoutAt() != null) {
       throw new AuthorizationFailedException(
           "ATHR-002", "User is signed out.Sign in first to edit an answer");
     }
-    AnswerEntity answerEntity = answerDao.getAnswerById(answerId);
-    if (answerEntity == null) {
-      throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
-    }
-    if (!answerEntity.getUserEntity().getUuid().equals(userAuthEntity.getUserEntity().getUuid())) {
+    QuestionEntity questionEntity =
+        answerDao.updateAnswerContent(answerId, userAuthEntity.getUserEntity().getId(), newAnswer);
+    if (questionEntity == null) {
+      // Nothing was updated, find out why only now.
+      if (!answerDao.answerExists(answerId)) {
+        throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
+      }
       throw new AuthorizationFailedException(
           "ATHR-003", "Only the answer owner can edit the answer");
     }
+    contentVersions.answersChanged(questionEntity.getUuid());
+    AnswerEntity answerEntity = new AnswerEntity();
+    answerEntity.setUuid(answerId);
     answerEntity.setAnswer(newAnswer);
-    answerDao.updateAnswer(answerEntity);
+    answerEntity.setQuestionEntity(questionEntity);
     return answerEntity;
   }
 
   /**
-   * delete the answer
+   * delete the answer and take it off the answer count and last activity of its question.
    *
    * @param answerId id of the answer to be deleted.
    * @param accessToken accessToken of the user for valid authentication.
@@ -108,55 +160,97 @@ public class AnswerService {
   public AnswerEntity deleteAnswer(final String answerId, final String accessToken)
       throws AuthorizationFailedException, AnswerNotFoundException {
 
-    UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-    if (userAuthEntity == null) {
-      throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-    } else if (userAuthEntity.getLogoutAt() != null) {
+    UserAuthEntity userAuthEntity =
+        userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> AuthorizationFailedException.NOT_SIGNED_IN);
+    if (userAuthEntity.getLogoutAt() != null) {
       throw new AuthorizationFailedException(
           "ATHR-002", "User is signed out.Sign in first to delete an answer");
     }
 
-    AnswerEntity answerEntity = answerDao.getAnswerById(answerId);
-    if (answerEntity == null) {
-      throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
-    }
-    if (userAuthEntity.getUserEntity().getRole().equals("admin")
-        || answerEntity
-            .getUserEntity()
-            .getUuid()
-            .equals(userAuthEntity.getUserEntity().getUuid())) {
-      return answerDao.deleteAnswer(answerId);
-    } else {
+    QuestionEntity questionEntity =
+        answerDao.deleteAnswer(
+            answerId,
+            userAuthEntity.getUserEntity().getId(),
+            userAuthEntity.getUserEntity().getRole().equals("admin"));
+    if (questionEntity == null) {
+      // Nothing was deleted, find out why only now.
+      if (!answerDao.answerExists(answerId)) {
+        throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
+      }
       throw new AuthorizationFailedException(
           "ATHR-003", "Only the answer owner or admin can delete the answer");
     }
+    questionDao.decrementAnswerCount(questionEntity.getId());
+    contentVersions.questionsChanged();
+    contentVersions.answersChanged(questionEntity.getUuid());
+    AnswerEntity answerEntity = new AnswerEntity();
+    answerEntity.setUuid(answerId);
+    answerEntity.setQuestionEntity(questionEntity);
+    return answerEntity;
   }
 
   /**
-   * get all the answers for a question
+   * get all the answers for a question, unless the client already has their current version. The
+   * question is looked up first, from the question cache, so that a question which does not exist
+   * is reported as such whatever the If-None-Match header, {@code *} included.
+   *
+   * <p>Concurrent requests for the same version of the answers, e.g. to a question going viral,
+   * share one query: every caller is authorized on its own, then the first one reads the answers
+   * and the others wait for its result, see {@link SingleFlight}. The shared answers are held in
+   * memory while they are being sent rather than streamed from the cursor, even when no other
+   * caller joins; the coalescing can be turned off where single questions get more answers than
+   * fit comfortably in memory.
    *
    * @param questionId id of the question to fetch the answers.
    * @param accessToken accessToken of the user for valid authentication.
+   * @param representation name of the representation the answers are rendered in.
+   * @param ifNoneMatch If-None-Match header of the request, may be null.
+   * @return the answers, to be streamed once the caller is ready to consume them, along with their
+   *     ETag.
    * @throws AuthorizationFailedException ATHR-001 - if User has not signed in. ATHR-002 if the User
    *     is signed out.
    * @throws InvalidQuestionException The question with entered uuid whose details are to be seen
    *     does not exist.
    */
-  public List<AnswerEntity> getAllAnswersToQuestion(
-      final String questionId, final String accessToken)
+  public Versioned<ResultStreamer<AnswerSnapshot>> getAllAnswersToQuestion(
+      final String questionId,
+      final String accessToken,
+      final String representation,
+      final String ifNoneMatch)
       throws AuthorizationFailedException, InvalidQuestionException {
-    UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-    if (userAuthEntity == null) {
-      throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-    } else if (userAuthEntity.getLogoutAt() != null) {
+    UserAuthEntity userAuthEntity =
+        userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> AuthorizationFailedException.NOT_SIGNED_IN);
+    if (userAuthEntity.getLogoutAt() != null) {
       throw new AuthorizationFailedException(
           "ATHR-002", "User is signed out.Sign in first to get the answers");
     }
-    QuestionEntity questionEntity = questionDao.getQuestionById(questionId);
-    if (questionEntity == null) {
-      throw new InvalidQuestionException(
-          "QUES-001", "The question with entered uuid whose details are to be seen does not exist");
+    QuestionDetails question =
+        questionCache
+            .get(questionId)
+            .orElseThrow(
+                () ->
+                    new InvalidQuestionException(
+                        "QUES-001",
+                        "The question with entered uuid whose details are to be seen does not"
+                            + " exist"));
+    String eTag = contentVersions.answersETag(questionId, representation);
+    if (ContentVersions.matches(ifNoneMatch, eTag)) {
+      return Versioned.notModified(eTag);
+    }
+    final ZonedDateTime questionDate = question.getDate();
+    final ResultStreamer<AnswerSnapshot> answers =
+        ResultStreamer.readOnly(
+            transactionManager,
+            action -> answerDao.streamAllAnswersToQuestion(questionId, questionDate, action));
+    if (!coalesceAnswers) {
+      return Versioned.of(eTag, answers);
     }
-    return answerDao.getAllAnswersToQuestion(questionId);
+    final String key = questionId + '@' + contentVersions.answersVersion(questionId);
+    return Versioned.of(
+        eTag, action -> answersInFlight.execute(key, answers::toList).forEach(action));
   }
 }
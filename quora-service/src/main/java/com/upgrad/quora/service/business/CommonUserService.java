@@ -1,21 +1,39 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.UserProfileCache;
 import com.upgrad.quora.service.dao.UserAuthDao;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.UserAuthEntity;
-import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidRequestException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.index.UserNameIndex;
+import com.upgrad.quora.service.snapshot.UserProfile;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 @Service
 public class CommonUserService {
 
+  /** Upper bound on the number of suggestions returned for a single prefix lookup. */
+  public static final int MAX_USERNAME_SUGGESTIONS = 50;
+
   @Autowired UserAuthDao userAuthDao;
 
   @Autowired UserDao userDao;
 
+  @Autowired UserNameIndex userNameIndex;
+
+  @Autowired UserProfileCache userProfileCache;
+
+  @Value("${quora.batch.max-ids:100}")
+  private int maxBatchIds;
+
   /**
    * This method checks if the access token exist in the DB and it is not logged out.
    *
@@ -24,10 +42,10 @@ public class CommonUserService {
    *     the user has already logged out using the token.
    */
   public void checkIfTokenIsValid(String accessToken) throws AuthorizationFailedException {
-    UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-    if (userAuthEntity == null) {
-      throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-    }
+    UserAuthEntity userAuthEntity =
+        userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> AuthorizationFailedException.NOT_SIGNED_IN);
     if (userAuthEntity.getLogoutAt() != null) {
       throw new AuthorizationFailedException(
           "ATHR-002", "User is signed out.Sign in first to get user details");
@@ -35,17 +53,52 @@ public class CommonUserService {
   }
 
   /**
-   * This methods gets the user details based on the userId passed.
+   * This methods gets the profile of the user based on the userId passed, from the profile cache
+   * or else from the DB.
    *
    * @param userId Id of the user whose information is to be fetched.
-   * @return
+   * @return profile of the user, without its credentials.
    * @throws UserNotFoundException USR-001 if the user with given id doesn't exist in DB.
    */
-  public UserEntity getUserById(final String userId) throws UserNotFoundException {
-    UserEntity userEntity = userDao.getUserById(userId);
-    if (userEntity == null) {
-      throw new UserNotFoundException("USR-001", "User with entered uuid does not exist");
+  public UserProfile getUserProfile(final String userId) throws UserNotFoundException {
+    return userProfileCache
+        .get(userId)
+        .orElseThrow(
+            () -> new UserNotFoundException("USR-001", "User with entered uuid does not exist"));
+  }
+
+  /**
+   * This method gets the details of several users at once with a single query. Ids of users that
+   * do not exist are left out of the result instead of failing the whole lookup.
+   *
+   * @param userIds ids of the users whose information is to be fetched.
+   * @return map of uuid to the profile of the user for every user found.
+   * @throws InvalidRequestException REQ-001 if no ids or more ids than allowed in a batch are
+   *     given.
+   */
+  public Map<String, UserProfile> getUserProfilesByIds(final Collection<String> userIds)
+      throws InvalidRequestException {
+    if (userIds.isEmpty() || userIds.size() > maxBatchIds) {
+      throw new InvalidRequestException(
+          "REQ-001", "Between 1 and " + maxBatchIds + " ids can be requested at once");
     }
-    return userEntity;
+    Map<String, UserProfile> users = new HashMap<>();
+    for (UserProfile userProfile : userDao.getUserProfilesByIds(userIds)) {
+      users.put(userProfile.getUuid(), userProfile);
+    }
+    return users;
+  }
+
+  /**
+   * This method gets the users whose username starts with the given prefix. The lookup is served
+   * from the in-memory username index and does not query the DB.
+   *
+   * @param prefix prefix the usernames should start with.
+   * @param limit maximum number of users to be returned, capped at {@link
+   *     #MAX_USERNAME_SUGGESTIONS}.
+   * @return map of username to uuid of the matching users in lexicographic order of the username.
+   */
+  public Map<String, String> getUserNameSuggestions(final String prefix, final int limit) {
+    return userNameIndex.suggest(prefix, Math.min(limit, MAX_USERNAME_SUGGESTIONS));
   }
 }
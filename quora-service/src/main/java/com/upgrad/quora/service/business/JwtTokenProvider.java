@@ -6,7 +6,6 @@ import com.upgrad.quora.service.common.GenericErrorCode;
 import com.upgrad.quora.service.common.UnexpectedException;
 
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoField;
 import java.util.Date;
 import java.util.UUID;
 
@@ -44,8 +43,8 @@ public class JwtTokenProvider {
       final ZonedDateTime issuedDateTime,
       final ZonedDateTime expiresDateTime) {
 
-    final Date issuedAt = new Date(issuedDateTime.getLong(ChronoField.INSTANT_SECONDS));
-    final Date expiresAt = new Date(expiresDateTime.getLong(ChronoField.INSTANT_SECONDS));
+    final Date issuedAt = Date.from(issuedDateTime.toInstant());
+    final Date expiresAt = Date.from(expiresDateTime.toInstant());
 
     return JWT.create()
         .withIssuer(TOKEN_ISSUER) //
@@ -1,73 +1,255 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.QuestionCache;
+import com.upgrad.quora.service.common.ContentVersions;
+import com.upgrad.quora.service.common.ResultStreamer;
+import com.upgrad.quora.service.common.TransactionHooks;
+import com.upgrad.quora.service.common.Versioned;
+import com.upgrad.quora.service.dao.AnswerDao;
 import com.upgrad.quora.service.dao.QuestionDao;
 import com.upgrad.quora.service.dao.UserAuthDao;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserAuthEntity;
-import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.DuplicateQuestionException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.InvalidRequestException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.index.QuestionSimilarityIndex;
+import com.upgrad.quora.service.snapshot.AnswerSnapshot;
+import com.upgrad.quora.service.snapshot.AuthorSnapshot;
+import com.upgrad.quora.service.snapshot.QuestionSnapshot;
+import com.upgrad.quora.service.snapshot.QuestionThread;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
 public class QuestionService {
 
+  /** What to do when a new question turns out to be a near-duplicate of existing questions. */
+  public enum DuplicatePolicy {
+    /** Skip the near-duplicate check. */
+    OFF,
+    /** Create the question and link it to the existing similar questions. */
+    LINK,
+    /** Refuse to create the question. */
+    REJECT
+  }
+
+  private static final int MAX_SIMILAR_QUESTIONS = 5;
+
+  @Value("${quora.question.duplicate-policy:LINK}")
+  private DuplicatePolicy duplicatePolicy;
+
+  @Value("${quora.batch.max-ids:100}")
+  private int maxBatchIds;
+
+  @Value("${quora.thread.max-page-size:100}")
+  private int maxThreadPageSize;
+
   @Autowired private UserAuthDao userAuthDao;
 
   @Autowired private UserDao userDao;
 
   @Autowired private QuestionDao questionDao;
 
+  @Autowired private AnswerDao answerDao;
+
+  @Autowired private QuestionSimilarityIndex questionSimilarityIndex;
+
+  @Autowired private QuestionCache questionCache;
+
+  @Autowired private ContentVersions contentVersions;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
   /**
-   * Creates question in the DB if the accessToken is valid.
+   * Creates question in the DB if the accessToken is valid. The content is first checked against
+   * the existing questions, and depending on the configured {@link DuplicatePolicy} the question is
+   * rejected or linked to its near-duplicates through {@link
+   * QuestionEntity#getSimilarQuestionUuids()}.
    *
    * @param accessToken accessToken of the user for valid authentication.
    * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
    *     the user has already signed out.
+   * @throws DuplicateQuestionException QUES-002 - if a near-duplicate question already exists and
+   *     the duplicate policy is REJECT.
    */
   @Transactional(propagation = Propagation.REQUIRED)
   public QuestionEntity createQuestion(QuestionEntity questionEntity, final String accessToken)
-      throws AuthorizationFailedException {
-    UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-    if (userAuthEntity == null) {
-      throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-    } else if (userAuthEntity.getLogoutAt() != null) {
+      throws AuthorizationFailedException, DuplicateQuestionException {
+    UserAuthEntity userAuthEntity =
+        userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> AuthorizationFailedException.NOT_SIGNED_IN);
+    if (userAuthEntity.getLogoutAt() != null) {
       throw new AuthorizationFailedException(
           "ATHR-002", "User is signed out.Sign in first to post a question");
     }
+    if (duplicatePolicy != DuplicatePolicy.OFF) {
+      List<String> similarQuestionUuids =
+          questionSimilarityIndex.findSimilar(questionEntity.getContent(), MAX_SIMILAR_QUESTIONS);
+      if (!similarQuestionUuids.isEmpty() && duplicatePolicy == DuplicatePolicy.REJECT) {
+        throw new DuplicateQuestionException(
+            "QUES-002", "A similar question already exists: " + similarQuestionUuids.get(0));
+      }
+      questionEntity.setSimilarQuestionUuids(similarQuestionUuids);
+    }
     questionEntity.setDate(ZonedDateTime.now());
+    questionEntity.setLastActivityAt(questionEntity.getDate());
     questionEntity.setUuid(UUID.randomUUID().toString());
-    questionEntity.setUserEntity(userAuthEntity.getUserEntity());
-    return questionDao.createQuestion(questionEntity);
+    questionEntity.setUserEntity(userDao.getUserReference(userAuthEntity.getUserEntity().getId()));
+    QuestionEntity createdQuestion = questionDao.createQuestion(questionEntity);
+    contentVersions.questionsChanged();
+    questionCache.created(createdQuestion.getUuid());
+    TransactionHooks.afterCommit(
+        () -> questionSimilarityIndex.put(createdQuestion.getUuid(), createdQuestion.getContent()));
+    return createdQuestion;
   }
 
   /**
-   * Gets all the questions in the DB.
+   * Gets all the questions in the DB, unless the client already has their current version.
    *
    * @param accessToken accessToken of the user for valid authentication.
-   * @return List of QuestionEntity
+   * @param representation name of the representation the questions are rendered in.
+   * @param ifNoneMatch If-None-Match header of the request, may be null.
+   * @return the questions, to be streamed once the caller is ready to consume them, along with
+   *     their ETag.
    * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
    *     the user has already signed out.
    */
-  public List<QuestionEntity> getAllQuestions(final String accessToken)
+  public Versioned<ResultStreamer<QuestionSnapshot>> getAllQuestions(
+      final String accessToken, final String representation, final String ifNoneMatch)
       throws AuthorizationFailedException {
-    UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-    if (userAuthEntity == null) {
-      throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-    } else if (userAuthEntity.getLogoutAt() != null) {
+    UserAuthEntity userAuthEntity =
+        userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> AuthorizationFailedException.NOT_SIGNED_IN);
+    if (userAuthEntity.getLogoutAt() != null) {
       throw new AuthorizationFailedException(
           "ATHR-002", "User is signed out.Sign in first to get all questions");
     }
-    return questionDao.getAllQuestions();
+    // The version is read before the query runs, so it can only be older than what is streamed.
+    String eTag = contentVersions.questionsETag(representation);
+    if (ContentVersions.matches(ifNoneMatch, eTag)) {
+      return Versioned.notModified(eTag);
+    }
+    return Versioned.of(
+        eTag,
+        ResultStreamer.readOnly(
+            transactionManager, action -> questionDao.streamAllQuestions(action)));
+  }
+
+  /**
+   * Gets several questions at once with a single query. Ids of questions that do not exist are left
+   * out of the result instead of failing the whole lookup.
+   *
+   * @param accessToken accessToken of the user for valid authentication.
+   * @param questionIds ids of the questions to be fetched.
+   * @return map of uuid to the question for every question found.
+   * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
+   *     the user has already signed out.
+   * @throws InvalidRequestException REQ-001 if no ids or more ids than allowed in a batch are
+   *     given.
+   */
+  public Map<String, QuestionSnapshot> getQuestionsByIds(
+      final String accessToken, final Collection<String> questionIds)
+      throws AuthorizationFailedException, InvalidRequestException {
+    UserAuthEntity userAuthEntity =
+        userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> AuthorizationFailedException.NOT_SIGNED_IN);
+    if (userAuthEntity.getLogoutAt() != null) {
+      throw new AuthorizationFailedException(
+          "ATHR-002", "User is signed out.Sign in first to get the questions");
+    }
+    if (questionIds.isEmpty() || questionIds.size() > maxBatchIds) {
+      throw new InvalidRequestException(
+          "REQ-001", "Between 1 and " + maxBatchIds + " ids can be requested at once");
+    }
+    Map<String, QuestionSnapshot> questions = new HashMap<>();
+    for (QuestionSnapshot question : questionDao.getQuestionsByIds(questionIds)) {
+      questions.put(question.getUuid(), question);
+    }
+    return questions;
+  }
+
+  /**
+   * Gets a question along with a page of its answers and the authors of both. Whatever the number
+   * of answers, this takes four queries: the token, the question, the page of answers, and all the
+   * authors at once.
+   *
+   * @param accessToken accessToken of the user for valid authentication.
+   * @param questionId id of the question.
+   * @param page zero based index of the page of answers.
+   * @param size number of answers per page.
+   * @return the thread of the question.
+   * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
+   *     the user has already signed out.
+   * @throws InvalidQuestionException QUES-001 if the question doesn't exist.
+   * @throws InvalidRequestException REQ-001 if the page or the size is out of range.
+   */
+  public QuestionThread getQuestionThread(
+      final String accessToken, final String questionId, final int page, final int size)
+      throws AuthorizationFailedException, InvalidQuestionException, InvalidRequestException {
+    UserAuthEntity userAuthEntity =
+        userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> AuthorizationFailedException.NOT_SIGNED_IN);
+    if (userAuthEntity.getLogoutAt() != null) {
+      throw new AuthorizationFailedException(
+          "ATHR-002", "User is signed out.Sign in first to get the question");
+    }
+    if (page < 0
+        || size < 1
+        || size > maxThreadPageSize
+        || (long) page * size > Integer.MAX_VALUE) {
+      throw new InvalidRequestException(
+          "REQ-001",
+          "The page must not be negative and the size must be between 1 and " + maxThreadPageSize);
+    }
+    QuestionSnapshot question =
+        questionCache
+            .lookup(questionId, questionDao::getQuestionThreadSnapshot)
+            .orElseThrow(
+                () ->
+                    new InvalidQuestionException(
+                        "QUES-001", "Entered question uuid does not exist"));
+    List<AnswerSnapshot> answers =
+        answerDao.getAnswerPageToQuestion(questionId, question.getDate(), page, size);
+    Set<String> authorUuids = new LinkedHashSet<>();
+    authorUuids.add(question.getAuthorUuid());
+    for (AnswerSnapshot answer : answers) {
+      authorUuids.add(answer.getAuthorUuid());
+    }
+    Map<String, AuthorSnapshot> found = new HashMap<>();
+    for (AuthorSnapshot author : userDao.getAuthorsByIds(authorUuids)) {
+      found.put(author.getUuid(), author);
+    }
+    // The question author first, then the answer authors in the order they first answered.
+    Map<String, AuthorSnapshot> authors = new LinkedHashMap<>();
+    for (String authorUuid : authorUuids) {
+      AuthorSnapshot author = found.get(authorUuid);
+      if (author != null) {
+        authors.put(authorUuid, author);
+      }
+    }
+    return new QuestionThread(question, answers, authors);
   }
 
   /**
@@ -85,26 +267,34 @@ public class QuestionService {
   public QuestionEntity editQuestion(
       final String accessToken, final String questionId, final String content)
       throws AuthorizationFailedException, InvalidQuestionException {
-    UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-    if (userAuthEntity == null) {
-      throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-    } else if (userAuthEntity.getLogoutAt() != null) {
+    UserAuthEntity userAuthEntity =
+        userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> AuthorizationFailedException.NOT_SIGNED_IN);
+    if (userAuthEntity.getLogoutAt() != null) {
       throw new AuthorizationFailedException(
           "ATHR-002", "User is signed out.Sign in first to edit the question");
     }
-    QuestionEntity questionEntity = questionDao.getQuestionById(questionId);
-    if (questionEntity == null) {
-      throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
-    }
-    if (!questionEntity
-        .getUserEntity()
-        .getUuid()
-        .equals(userAuthEntity.getUserEntity().getUuid())) {
+    Integer id =
+        questionDao.updateQuestionContent(
+            questionId, userAuthEntity.getUserEntity().getId(), content);
+    if (id == null) {
+      // Nothing was updated, find out why only now.
+      if (!questionDao.questionExists(questionId)) {
+        throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
+      }
       throw new AuthorizationFailedException(
           "ATHR-003", "Only the question owner can edit the question");
     }
+    questionCache.edited(questionId, content);
+    TransactionHooks.afterCommit(() -> questionSimilarityIndex.put(questionId, content));
+    // The content of the question is listed along with its answers too.
+    contentVersions.questionsChanged();
+    contentVersions.answersChanged(questionId);
+    QuestionEntity questionEntity = new QuestionEntity();
+    questionEntity.setId(id);
+    questionEntity.setUuid(questionId);
     questionEntity.setContent(content);
-    questionDao.updateQuestion(questionEntity);
     return questionEntity;
   }
 
@@ -121,24 +311,34 @@ public class QuestionService {
   @Transactional(propagation = Propagation.REQUIRED)
   public QuestionEntity deleteQuestion(final String accessToken, final String questionId)
       throws AuthorizationFailedException, InvalidQuestionException {
-    UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-    if (userAuthEntity == null) {
-      throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-    } else if (userAuthEntity.getLogoutAt() != null) {
+    UserAuthEntity userAuthEntity =
+        userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> AuthorizationFailedException.NOT_SIGNED_IN);
+    if (userAuthEntity.getLogoutAt() != null) {
       throw new AuthorizationFailedException(
           "ATHR-002", "User is signed out.Sign in first to delete the question");
     }
-    QuestionEntity questionEntity = questionDao.getQuestionById(questionId);
-    if (questionEntity == null) {
-      throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
-    }
-    if (!questionEntity.getUserEntity().getUuid().equals(userAuthEntity.getUserEntity().getUuid())
-        && !userAuthEntity.getUserEntity().getRole().equals("admin")) {
+    Integer id =
+        questionDao.deleteQuestion(
+            questionId,
+            userAuthEntity.getUserEntity().getId(),
+            userAuthEntity.getUserEntity().getRole().equals("admin"));
+    if (id == null) {
+      // Nothing was deleted, find out why only now.
+      if (!questionDao.questionExists(questionId)) {
+        throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
+      }
       throw new AuthorizationFailedException(
           "ATHR-003", "Only the question owner or admin can delete the question");
     }
-
-    questionDao.deleteQuestion(questionEntity);
+    questionCache.deleted(questionId);
+    TransactionHooks.afterCommit(() -> questionSimilarityIndex.remove(questionId));
+    contentVersions.questionsChanged();
+    contentVersions.answersChanged(questionId);
+    QuestionEntity questionEntity = new QuestionEntity();
+    questionEntity.setId(id);
+    questionEntity.setUuid(questionId);
     return questionEntity;
   }
 
@@ -147,25 +347,27 @@ public class QuestionService {
    *
    * @param userId userId of the user whose posted questions have to be retrieved
    * @param accessToken accessToken of the user for valid authentication.
-   * @return List of QuestionEntity
+   * @return the questions, to be streamed once the caller is ready to consume them.
    * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
    *     the user has already signed out.
    */
-  public List<QuestionEntity> getAllQuestionsByUser(final String userId, final String accessToken)
+  public ResultStreamer<QuestionSnapshot> getAllQuestionsByUser(
+      final String userId, final String accessToken)
       throws AuthorizationFailedException, UserNotFoundException {
-    UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-    if (userAuthEntity == null) {
-      throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-    } else if (userAuthEntity.getLogoutAt() != null) {
+    UserAuthEntity userAuthEntity =
+        userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> AuthorizationFailedException.NOT_SIGNED_IN);
+    if (userAuthEntity.getLogoutAt() != null) {
       throw new AuthorizationFailedException(
           "ATHR-002",
           "User is signed out.Sign in first to get all questions posted by a specific user");
     }
-    UserEntity user = userDao.getUserById(userId);
-    if (user == null) {
+    if (!userDao.getUserById(userId).isPresent()) {
       throw new UserNotFoundException(
           "USR-001", "User with entered uuid whose question details are to be seen does not exist");
     }
-    return questionDao.getAllQuestionsByUser(user);
+    return ResultStreamer.readOnly(
+        transactionManager, action -> questionDao.streamAllQuestionsByUser(userId, action));
   }
 }
@@ -1,5 +1,7 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.UserProfileCache;
+import com.upgrad.quora.service.common.TransactionHooks;
 import com.upgrad.quora.service.dao.UserAuthDao;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.UserAuthEntity;
@@ -7,6 +9,7 @@ import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthenticationFailedException;
 import com.upgrad.quora.service.exception.SignOutRestrictedException;
 import com.upgrad.quora.service.exception.SignUpRestrictedException;
+import com.upgrad.quora.service.index.UserNameIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
@@ -24,6 +27,10 @@ public class UserAuthenticationService {
 
   @Autowired private PasswordCryptographyProvider passwordCryptographyProvider;
 
+  @Autowired private UserNameIndex userNameIndex;
+
+  @Autowired private UserProfileCache userProfileCache;
+
   /**
    * This method checks if the username and email exist in the DB. if the username or email doesn't
    * exist in the DB.then assign uuid to the user. Assign encrypted password and salt to the user.
@@ -48,7 +55,11 @@ public class UserAuthenticationService {
     String[] encryptedText = passwordCryptographyProvider.encrypt(userEntity.getPassword());
     userEntity.setSalt(encryptedText[0]);
     userEntity.setPassword(encryptedText[1]);
-    return userDao.createUser(userEntity);
+    UserEntity createdUser = userDao.createUser(userEntity);
+    userProfileCache.changed(createdUser.getUuid());
+    TransactionHooks.afterCommit(
+        () -> userNameIndex.add(createdUser.getUserName(), createdUser.getUuid()));
+    return createdUser;
   }
 
   /**
@@ -64,10 +75,12 @@ public class UserAuthenticationService {
   public UserAuthEntity signin(final String username, final String password)
       throws AuthenticationFailedException {
 
-    UserEntity userEntity = userDao.getUserByUserName(username);
-    if (userEntity == null) {
-      throw new AuthenticationFailedException("ATH-001", "This username does not exist");
-    }
+    UserEntity userEntity =
+        userDao
+            .getUserByUserName(username)
+            .filter(user -> user.getDeletedAt() == null)
+            .orElseThrow(
+                () -> new AuthenticationFailedException("ATH-001", "This username does not exist"));
     final String encryptedPassword =
         passwordCryptographyProvider.encrypt(password, userEntity.getSalt());
     if (!encryptedPassword.equals(userEntity.getPassword())) {
@@ -100,10 +113,10 @@ public class UserAuthenticationService {
    */
   @Transactional(propagation = Propagation.REQUIRED)
   public UserEntity signout(final String accessToken) throws SignOutRestrictedException {
-    UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-    if (userAuthEntity == null) {
-      throw new SignOutRestrictedException("SGR-001", "User is not Signed in");
-    }
+    UserAuthEntity userAuthEntity =
+        userAuthDao
+            .getUserAuthByToken(accessToken)
+            .orElseThrow(() -> new SignOutRestrictedException("SGR-001", "User is not Signed in"));
     userAuthEntity.setLogoutAt(ZonedDateTime.now());
     userAuthDao.updateUserAuth(userAuthEntity);
     return userAuthEntity.getUserEntity();
@@ -111,11 +124,11 @@ public class UserAuthenticationService {
 
   // checks whether the username exist in the database
   private boolean isUserNameInUse(final String userName) {
-    return userDao.getUserByUserName(userName) != null;
+    return userDao.getUserByUserName(userName).isPresent();
   }
 
   // checks whether the email exist in the database
   private boolean isEmailInUse(final String email) {
-    return userDao.getUserByEmail(email) != null;
+    return userDao.getUserByEmail(email).isPresent();
   }
 }
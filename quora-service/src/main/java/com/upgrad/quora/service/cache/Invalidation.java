@@ -0,0 +1,79 @@
+package com.upgrad.quora.service.cache;
+
+import java.util.Date;
+
+/**
+ * Change of a row cached in memory, or of a versioned list, published by the node which made it to
+ * the other nodes by {@link InvalidationBus}, which drop the row from their caches or bump the
+ * version of the list.
+ */
+public final class Invalidation {
+
+  /**
+   * Kinds of rows whose changes are published. The lists are versioned as a whole, the uuid of a
+   * list of answers being the uuid of the question and the other lists having {@value
+   * Invalidation#ALL}.
+   */
+  public enum EntityType {
+    QUESTION,
+    USER,
+    QUESTION_LIST,
+    ANSWER_LIST,
+    ALL_LISTS
+  }
+
+  /** Uuid of the changes not about one row. */
+  public static final String ALL = "*";
+
+  private final EntityType entityType;
+
+  private final String uuid;
+
+  private final long version;
+
+  private final String origin;
+
+  private final Date publishedAt;
+
+  /**
+   * Creates a change.
+   *
+   * @param entityType kind of the changed row.
+   * @param uuid uuid of the changed row.
+   * @param version id of the change, increasing with the changes published.
+   * @param origin id of the node which made the change.
+   * @param publishedAt time the change was published at, just before it committed.
+   */
+  public Invalidation(
+      final EntityType entityType,
+      final String uuid,
+      final long version,
+      final String origin,
+      final Date publishedAt) {
+    this.entityType = entityType;
+    this.uuid = uuid;
+    this.version = version;
+    this.origin = origin;
+    this.publishedAt = publishedAt;
+  }
+
+  public EntityType getEntityType() {
+    return entityType;
+  }
+
+  public String getUuid() {
+    return uuid;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public String getOrigin() {
+    return origin;
+  }
+
+  public Date getPublishedAt() {
+    return publishedAt;
+  }
+}
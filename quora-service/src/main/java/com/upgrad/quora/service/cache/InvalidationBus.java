@@ -0,0 +1,368 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.cache.Invalidation.EntityType;
+import com.upgrad.quora.service.dao.InvalidationDao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the in-memory caches of the nodes of a deployment in step, through the DB rather than a
+ * broker. The changes of the cached rows made by a transaction are published together just before
+ * it commits: they are stored in the CACHE_INVALIDATION table in one statement and sent on the
+ * {@value InvalidationDao#CHANNEL} channel by NOTIFY, which Postgres delivers on commit. Every
+ * node listens on the channel over a connection of its own and drops the changed rows from its
+ * caches, ignoring its own changes which it applied on commit already.
+ *
+ * <p>Notifications sent while the connection is down are lost, so on connecting a node replays the
+ * changes stored since it last heard from the channel, or since it started for the first
+ * connection, less {@code catch-up-slack-ms} for the transactions committing out of order and the
+ * clock skew between the nodes. The version of a change, the id of its stored row, tells apart the
+ * replayed changes the node already applied when notified of them, which are skipped. Stored
+ * changes are purged after {@code retention-ms}, and a node down for longer than that drops every
+ * cached row instead. The time from the publication of a change to
+ * its application is recorded in the {@code cache.invalidation.lag} metric, and the reconnections
+ * are counted in {@code cache.invalidation.reconnects}.
+ *
+ * <p>Publishing adds an INSERT and a NOTIFY to every transaction changing a cached row, and
+ * Postgres serializes the commits of the transactions which notified. It is therefore off unless
+ * {@code quora.cluster.invalidation.enabled=true}, which a deployment of more than one node needs.
+ */
+@Component
+public class InvalidationBus {
+
+  private static final Logger LOG = LoggerFactory.getLogger(InvalidationBus.class);
+
+  // NOTIFY payloads must be shorter than 8000 bytes; uuids are ASCII.
+  private static final int MAX_PAYLOAD_LENGTH = 7000;
+
+  @Autowired private InvalidationDao invalidationDao;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Value("${quora.cluster.invalidation.enabled:false}")
+  private boolean enabled;
+
+  @Value("${quora.cluster.invalidation.poll-ms:500}")
+  private int pollMillis;
+
+  @Value("${quora.cluster.invalidation.retry-ms:1000}")
+  private long retryMillis;
+
+  @Value("${quora.cluster.invalidation.catch-up-slack-ms:60000}")
+  private long catchUpSlackMillis;
+
+  @Value("${quora.cluster.invalidation.retention-ms:3600000}")
+  private long retentionMillis;
+
+  @Value("${spring.datasource.url}")
+  private String url;
+
+  @Value("${spring.datasource.username}")
+  private String username;
+
+  @Value("${spring.datasource.password}")
+  private String password;
+
+  // id of this node, telling its own changes apart.
+  private final String origin = UUID.randomUUID().toString();
+
+  private final Map<EntityType, List<Subscription>> subscriptions = new EnumMap<>(EntityType.class);
+
+  private TransactionTemplate transactionTemplate;
+
+  private Timer lag;
+
+  private Counter reconnects;
+
+  // time the bean started, the first connection catching up on the changes published since.
+  private long startedAt;
+
+  // versions of the changes applied recently -> their publication time, oldest first; only used by
+  // the listener thread.
+  private final Map<Long, Long> appliedVersions = new LinkedHashMap<>();
+
+  private volatile boolean running;
+
+  private Thread listener;
+
+  private volatile Connection connection;
+
+  @PostConstruct
+  public void init() {
+    for (EntityType entityType : EntityType.values()) {
+      subscriptions.put(entityType, new CopyOnWriteArrayList<>());
+    }
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    lag = meterRegistry.timer("cache.invalidation.lag");
+    reconnects = meterRegistry.counter("cache.invalidation.reconnects");
+    startedAt = System.currentTimeMillis();
+    if (enabled) {
+      running = true;
+      listener = new Thread(this::listen, "cache-invalidation-listener");
+      listener.setDaemon(true);
+      listener.start();
+    }
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    if (listener == null) {
+      return;
+    }
+    running = false;
+    closeConnection();
+    listener.interrupt();
+    listener.join(TimeUnit.SECONDS.toMillis(5));
+  }
+
+  /**
+   * Applies the changes of a kind of row made by the other nodes to a cache.
+   *
+   * @param entityType kind of the rows.
+   * @param invalidate drops a changed row, given its uuid, from the cache.
+   * @param invalidateAll drops every row from the cache, when changes may have been missed.
+   */
+  public void subscribe(
+      final EntityType entityType,
+      final Consumer<String> invalidate,
+      final Runnable invalidateAll) {
+    subscriptions.get(entityType).add(new Subscription(invalidate, invalidateAll));
+  }
+
+  /**
+   * Publishes a change of a row to the other nodes once the current transaction commits, along
+   * with the other changes of the transaction. Must be called after the change was made in the DB.
+   *
+   * @param entityType kind of the changed row.
+   * @param uuid uuid of the changed row.
+   */
+  public void publish(final EntityType entityType, final String uuid) {
+    if (!enabled) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      transactionTemplate.execute(
+          status -> {
+            publish(entityType, uuid);
+            return null;
+          });
+      return;
+    }
+    @SuppressWarnings("unchecked")
+    Map<EntityType, Set<String>> changes =
+        (Map<EntityType, Set<String>>) TransactionSynchronizationManager.getResource(this);
+    if (changes == null) {
+      final Map<EntityType, Set<String>> transactionChanges = new EnumMap<>(EntityType.class);
+      TransactionSynchronizationManager.bindResource(this, transactionChanges);
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void beforeCommit(final boolean readOnly) {
+              send(transactionChanges);
+            }
+
+            @Override
+            public void afterCompletion(final int status) {
+              TransactionSynchronizationManager.unbindResource(InvalidationBus.this);
+            }
+          });
+      changes = transactionChanges;
+    }
+    changes.computeIfAbsent(entityType, type -> new LinkedHashSet<>()).add(uuid);
+  }
+
+  /** Deletes the changes stored for longer than {@code retention-ms}. */
+  @Scheduled(fixedDelayString = "${quora.cluster.invalidation.purge-interval-ms:600000}")
+  public void purgeInvalidations() {
+    if (!enabled) {
+      return;
+    }
+    final Date before = new Date(System.currentTimeMillis() - retentionMillis);
+    Integer purged =
+        transactionTemplate.execute(status -> invalidationDao.purgeInvalidations(before));
+    LOG.debug("Purged {} cache invalidations published before {}", purged, before);
+  }
+
+  private void send(final Map<EntityType, Set<String>> changes) {
+    final List<Invalidation> invalidations =
+        invalidationDao.createInvalidations(origin, new Date(), changes);
+    final List<String> payloads = new ArrayList<>();
+    final String header =
+        origin + ' ' + invalidations.get(0).getPublishedAt().getTime() + '\n';
+    StringBuilder payload = new StringBuilder(header);
+    for (Invalidation invalidation : invalidations) {
+      String line =
+          invalidation.getEntityType().name()
+              + ' '
+              + invalidation.getVersion()
+              + ' '
+              + invalidation.getUuid()
+              + '\n';
+      if (payload.length() > header.length()
+          && payload.length() + line.length() > MAX_PAYLOAD_LENGTH) {
+        payloads.add(payload.toString());
+        payload = new StringBuilder(header);
+      }
+      payload.append(line);
+    }
+    payloads.add(payload.toString());
+    invalidationDao.notifyListeners(payloads);
+  }
+
+  private void listen() {
+    // time the channel was last heard from, or the bean started if it never was.
+    long listenedAt = startedAt;
+    while (running) {
+      try (Connection listening = DriverManager.getConnection(url, username, password)) {
+        connection = listening;
+        try (Statement statement = listening.createStatement()) {
+          statement.execute("LISTEN " + InvalidationDao.CHANNEL);
+        }
+        catchUp(listenedAt);
+        final PGConnection pgConnection = listening.unwrap(PGConnection.class);
+        while (running) {
+          PGNotification[] notifications = pgConnection.getNotifications(pollMillis);
+          listenedAt = System.currentTimeMillis();
+          if (notifications != null) {
+            List<Invalidation> invalidations = new ArrayList<>();
+            for (PGNotification notification : notifications) {
+              try {
+                invalidations.addAll(parse(notification.getParameter()));
+              } catch (RuntimeException e) {
+                LOG.warn("Ignoring malformed cache invalidation {}", notification.getParameter());
+              }
+            }
+            apply(invalidations, false);
+          }
+        }
+      } catch (SQLException | RuntimeException e) {
+        if (!running) {
+          return;
+        }
+        LOG.warn("Lost the cache invalidation channel, reconnecting in {} ms", retryMillis, e);
+        reconnects.increment();
+        try {
+          Thread.sleep(retryMillis);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+      } finally {
+        connection = null;
+      }
+    }
+  }
+
+  private void catchUp(final long listenedAt) {
+    final long now = System.currentTimeMillis();
+    if (listenedAt < now - retentionMillis + catchUpSlackMillis) {
+      LOG.warn("Missed cache invalidations for too long, dropping every cached row");
+      subscriptions.values().forEach(list -> list.forEach(s -> s.invalidateAll.run()));
+      return;
+    }
+    final Date from = new Date(listenedAt - catchUpSlackMillis);
+    final List<Invalidation> invalidations =
+        transactionTemplate.execute(status -> invalidationDao.getInvalidationsSince(from));
+    LOG.info("Caught up on {} cache invalidations published since {}", invalidations.size(), from);
+    apply(invalidations, true);
+  }
+
+  private void apply(final List<Invalidation> invalidations, final boolean replay) {
+    final long now = System.currentTimeMillis();
+    for (Invalidation invalidation : invalidations) {
+      if (origin.equals(invalidation.getOrigin())) {
+        continue;
+      }
+      final long publishedAt = invalidation.getPublishedAt().getTime();
+      if (appliedVersions.put(invalidation.getVersion(), publishedAt) != null && replay) {
+        continue;
+      }
+      for (Subscription subscription : subscriptions.get(invalidation.getEntityType())) {
+        subscription.invalidate.accept(invalidation.getUuid());
+      }
+      lag.record(Math.max(0, now - publishedAt), TimeUnit.MILLISECONDS);
+    }
+    // A later catch-up replays the changes published from the last notification less the slack on.
+    final Iterator<Long> applied = appliedVersions.values().iterator();
+    while (applied.hasNext() && applied.next() < now - catchUpSlackMillis) {
+      applied.remove();
+    }
+  }
+
+  // payload: "<origin> <published at millis>" then "<entity type> <version> <uuid>" per line.
+  private static List<Invalidation> parse(final String payload) {
+    final String[] lines = payload.split("\n");
+    final String[] header = lines[0].split(" ", 2);
+    final Date publishedAt = new Date(Long.parseLong(header[1]));
+    final List<Invalidation> invalidations = new ArrayList<>();
+    for (int i = 1; i < lines.length; i++) {
+      String[] fields = lines[i].split(" ", 3);
+      invalidations.add(
+          new Invalidation(
+              EntityType.valueOf(fields[0]),
+              fields[2],
+              Long.parseLong(fields[1]),
+              header[0],
+              publishedAt));
+    }
+    return invalidations;
+  }
+
+  private void closeConnection() {
+    Connection current = connection;
+    if (current == null) {
+      return;
+    }
+    try {
+      current.close();
+    } catch (SQLException e) {
+      LOG.debug("Failed to close the cache invalidation channel", e);
+    }
+  }
+
+  private static final class Subscription {
+
+    private final Consumer<String> invalidate;
+
+    private final Runnable invalidateAll;
+
+    private Subscription(final Consumer<String> invalidate, final Runnable invalidateAll) {
+      this.invalidate = invalidate;
+      this.invalidateAll = invalidateAll;
+    }
+  }
+}
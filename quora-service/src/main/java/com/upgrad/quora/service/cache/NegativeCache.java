@@ -0,0 +1,248 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.common.TransactionHooks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory set of the keys recently looked up and found missing in the DB, e.g. made-up
+ * access tokens or uuids, so that looking them up again within the time to live is answered
+ * without a query. At most a maximum number of keys are held, the oldest being dropped first.
+ * Lookups are counted in the {@code cache.gets} metric tagged with the name of the cache and
+ * whether the key was known to be missing ({@code hit}) or looked up ({@code miss}); {@code
+ * cache.size} is the number of keys held.
+ *
+ * <p>The keys come from the clients and may be as long as a request header, so a key is held as a
+ * 128-bit fingerprint, a SHA-256 digest salted at random by every cache: about 100 bytes per key
+ * whatever its length, and no collision a client could craft. The keys are spread over {@value
+ * #STRIPES} stripes, each with its own lock and its own share of the maximum, so that lookups of
+ * different keys seldom wait for one another.
+ *
+ * <p>A key is dropped as soon as it is created, and again once the transaction creating it
+ * completes. A key found missing is not held if a creation completed in its stripe while it was
+ * being looked up, or one is in progress for it, as the lookup may have missed the creation.
+ */
+public class NegativeCache {
+
+  private static final int STRIPES = 16;
+
+  private final long ttlNanos;
+
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
+  // SHA-256 digest of the salt, cloned to digest every key.
+  private final MessageDigest saltedDigest;
+
+  private final Counter hits;
+
+  private final Counter misses;
+
+  /**
+   * Creates a cache.
+   *
+   * @param name name of the cache, tagging its metrics.
+   * @param maxEntries most keys held, the oldest being dropped first.
+   * @param ttlMillis time a key is held after being found missing.
+   * @param meterRegistry registry of the metrics.
+   */
+  public NegativeCache(
+      final String name,
+      final int maxEntries,
+      final long ttlMillis,
+      final MeterRegistry meterRegistry) {
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    final int maxEntriesPerStripe = (maxEntries + STRIPES - 1) / STRIPES;
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe(maxEntriesPerStripe);
+    }
+    final byte[] salt = new byte[16];
+    new SecureRandom().nextBytes(salt);
+    try {
+      saltedDigest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    saltedDigest.update(salt);
+    hits = meterRegistry.counter("cache.gets", "name", name, "result", "hit");
+    misses = meterRegistry.counter("cache.gets", "name", name, "result", "miss");
+    meterRegistry.gauge("cache.size", Tags.of("name", name), this, NegativeCache::size);
+  }
+
+  /**
+   * Looks a key up, unless it was recently found missing.
+   *
+   * @param key key to be looked up.
+   * @param loader lookup of the key in the DB, giving empty if the key is missing.
+   * @param <V> type of the value of the key.
+   * @return the value of the key, empty if it is missing.
+   */
+  public <V> Optional<V> get(
+      final String key, final Function<? super String, Optional<V>> loader) {
+    final Fingerprint fingerprint = fingerprint(key);
+    final Stripe stripe = stripe(fingerprint);
+    final long creationsBefore;
+    synchronized (stripe) {
+      Long until = stripe.missingUntil.get(fingerprint);
+      if (until != null) {
+        if (until - System.nanoTime() > 0) {
+          hits.increment();
+          return Optional.empty();
+        }
+        stripe.missingUntil.remove(fingerprint);
+      }
+      creationsBefore = stripe.creationsCompleted;
+    }
+    misses.increment();
+    Optional<V> value = loader.apply(key);
+    if (!value.isPresent()) {
+      synchronized (stripe) {
+        if (stripe.creationsCompleted == creationsBefore
+            && !stripe.creationsInProgress.containsKey(fingerprint)) {
+          stripe.missingUntil.put(fingerprint, System.nanoTime() + ttlNanos);
+        }
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Drops a key created by the current transaction, now and once the transaction completes. Must
+   * be called after the key was written to the DB.
+   *
+   * @param key key created.
+   */
+  public void createdOnCommit(final String key) {
+    final Fingerprint fingerprint = fingerprint(key);
+    final Stripe stripe = stripe(fingerprint);
+    synchronized (stripe) {
+      stripe.missingUntil.remove(fingerprint);
+      stripe.creationsInProgress.merge(fingerprint, 1, Integer::sum);
+    }
+    TransactionHooks.afterCompletion(
+        committed -> {
+          synchronized (stripe) {
+            stripe.missingUntil.remove(fingerprint);
+            stripe.creationsInProgress.computeIfPresent(
+                fingerprint, (k, count) -> count > 1 ? count - 1 : null);
+            stripe.creationsCompleted++;
+          }
+        });
+  }
+
+  /**
+   * Drops a key right away, for a creation already committed, e.g. by another node.
+   *
+   * @param key key created.
+   */
+  public void forget(final String key) {
+    final Fingerprint fingerprint = fingerprint(key);
+    final Stripe stripe = stripe(fingerprint);
+    synchronized (stripe) {
+      stripe.missingUntil.remove(fingerprint);
+      stripe.creationsCompleted++;
+    }
+  }
+
+  /** Drops every key. */
+  public void forgetAll() {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.missingUntil.clear();
+        stripe.creationsCompleted++;
+      }
+    }
+  }
+
+  /**
+   * Gets the number of keys held.
+   *
+   * @return the number of keys known to be missing, some of which may have expired.
+   */
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.missingUntil.size();
+      }
+    }
+    return size;
+  }
+
+  private Fingerprint fingerprint(final String key) {
+    final MessageDigest digest;
+    try {
+      digest = (MessageDigest) saltedDigest.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException(e);
+    }
+    final ByteBuffer hash = ByteBuffer.wrap(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+    return new Fingerprint(hash.getLong(0), hash.getLong(8));
+  }
+
+  private Stripe stripe(final Fingerprint fingerprint) {
+    return stripes[(int) (fingerprint.high >>> 60)];
+  }
+
+  /** Keys of one stripe, guarded by the stripe itself. */
+  private static final class Stripe {
+
+    // key -> time it is no longer known to be missing, in the order the keys were found missing.
+    private final Map<Fingerprint, Long> missingUntil;
+
+    // key -> creations of the key not yet completed.
+    private final Map<Fingerprint, Integer> creationsInProgress = new HashMap<>();
+
+    // number of creations completed, to tell whether one completed during a lookup.
+    private long creationsCompleted;
+
+    private Stripe(final int maxEntries) {
+      missingUntil =
+          new LinkedHashMap<Fingerprint, Long>() {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Fingerprint, Long> eldest) {
+              return size() > maxEntries;
+            }
+          };
+    }
+  }
+
+  /** First 128 bits of the salted digest of a key. */
+  private static final class Fingerprint {
+
+    private final long high;
+
+    private final long low;
+
+    private Fingerprint(final long high, final long low) {
+      this.high = high;
+      this.low = low;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (!(other instanceof Fingerprint)) {
+        return false;
+      }
+      final Fingerprint fingerprint = (Fingerprint) other;
+      return high == fingerprint.high && low == fingerprint.low;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(low);
+    }
+  }
+}
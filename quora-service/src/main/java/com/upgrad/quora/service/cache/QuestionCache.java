@@ -0,0 +1,135 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.cache.Invalidation.EntityType;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.snapshot.QuestionDetails;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Cache of the {@link QuestionDetails} of the questions looked up by uuid, e.g. to answer them or
+ * list their answers, holding the {@code quora.cache.questions.max-entries} most recently used
+ * ones; see {@link TransactionalCache}, its metrics are tagged with {@code name=questions}. Edits
+ * write the new content through to the cache and deletions drop the question.
+ *
+ * <p>The uuids of questions found missing are remembered for {@code quora.cache.negative.ttl-ms},
+ * so that made-up uuids looked up again are not queried; see {@link NegativeCache}, its metrics
+ * are tagged with {@code name=unknown-questions}. Creating a question forgets its uuid.
+ *
+ * <p>Creations, edits and deletions are published to the other nodes by {@link InvalidationBus},
+ * which drop the question from their caches.
+ */
+@Component
+public class QuestionCache {
+
+  @Autowired private QuestionDao questionDao;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Autowired private InvalidationBus invalidationBus;
+
+  @Value("${quora.cache.questions.max-entries:10000}")
+  private int maxEntries;
+
+  @Value("${quora.cache.negative.max-entries:100000}")
+  private int maxUnknownEntries;
+
+  @Value("${quora.cache.negative.ttl-ms:30000}")
+  private long unknownTtlMillis;
+
+  private TransactionalCache<String, QuestionDetails> questions;
+
+  private NegativeCache unknownQuestions;
+
+  @PostConstruct
+  public void init() {
+    questions = new TransactionalCache<>("questions", maxEntries, meterRegistry);
+    unknownQuestions =
+        new NegativeCache(
+            "unknown-questions", maxUnknownEntries, unknownTtlMillis, meterRegistry);
+    invalidationBus.subscribe(
+        EntityType.QUESTION,
+        uuid -> {
+          questions.invalidate(uuid);
+          unknownQuestions.forget(uuid);
+        },
+        () -> {
+          questions.invalidateAll();
+          unknownQuestions.forgetAll();
+        });
+  }
+
+  /**
+   * Gets the question with the given uuid, from the cache or else from the DB.
+   *
+   * @param uuid uuid of the question.
+   * @return the question, empty if it does not exist.
+   */
+  public Optional<QuestionDetails> get(final String uuid) {
+    return unknownQuestions.get(
+        uuid, unknown -> questions.get(unknown, questionDao::getQuestionDetails));
+  }
+
+  /**
+   * Looks a question up in another shape than its details, unless its uuid was recently found
+   * missing; the uuid is remembered if the loader does not find it either.
+   *
+   * @param uuid uuid of the question.
+   * @param loader lookup of the question in the DB, giving empty if it does not exist.
+   * @param <T> type of the question looked up.
+   * @return the question, empty if it does not exist.
+   */
+  public <T> Optional<T> lookup(final String uuid, final Function<String, Optional<T>> loader) {
+    return unknownQuestions.get(uuid, loader);
+  }
+
+  /**
+   * Forgets that a question was found missing, now and once the current transaction, which created
+   * it, completes. Must be called after the question was written to the DB.
+   *
+   * @param uuid uuid of the question.
+   */
+  public void created(final String uuid) {
+    unknownQuestions.createdOnCommit(uuid);
+    invalidationBus.publish(EntityType.QUESTION, uuid);
+  }
+
+  /**
+   * Writes the new content of a question through to the cache once the current transaction, which
+   * edited it, commits. Must be called after the question was updated in the DB.
+   *
+   * @param uuid uuid of the question.
+   * @param content new content of the question.
+   */
+  public void edited(final String uuid, final String content) {
+    questions.updateOnCommit(uuid, question -> question.withContent(content));
+    invalidationBus.publish(EntityType.QUESTION, uuid);
+  }
+
+  /**
+   * Drops a question from the cache once the current transaction, which deleted it, commits.
+   *
+   * @param uuid uuid of the question.
+   */
+  public void deleted(final String uuid) {
+    questions.invalidateOnCommit(uuid);
+    invalidationBus.publish(EntityType.QUESTION, uuid);
+  }
+
+  /**
+   * Drops questions from the cache once the current transaction, which hid them along with their
+   * author, commits.
+   *
+   * @param uuids uuids of the questions.
+   */
+  public void deleted(final Collection<String> uuids) {
+    uuids.forEach(this::deleted);
+  }
+}
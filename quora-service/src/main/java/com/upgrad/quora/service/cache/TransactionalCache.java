@@ -0,0 +1,216 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.common.TransactionHooks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded in-memory cache of values read from the DB, kept in step with the transactions changing
+ * them, holding the most recently used values up to a maximum number. Lookups are counted in the
+ * {@code cache.gets} metric tagged with the name of the cache and whether the value was cached
+ * ({@code hit}) or loaded ({@code miss}); {@code cache.size} is the number of values cached.
+ *
+ * <p>Changes are applied to the cache once their transaction completes, so before the change is
+ * answered, and the cache is kept from going back to a value older than the DB in two ways:
+ *
+ * <ul>
+ *   <li>A loaded value is only cached if no change of its key completed while it was being loaded,
+ *       and none is in progress. Changes of other keys do not hold the loads back: the changes and
+ *       loads in progress are tracked per key, and only for as long as some are in progress.
+ *   <li>Changes of a key overlapping each other may complete in any order, so rather than writing
+ *       through a value which may be the older one, they drop the key.
+ * </ul>
+ *
+ * @param <K> type of the keys.
+ * @param <V> type of the values, shared between threads so immutable.
+ */
+public class TransactionalCache<K, V> {
+
+  private final Object lock = new Object();
+
+  // key -> value, in the order they were last used.
+  private final Map<K, V> values;
+
+  // key -> changes and loads of the key not yet completed.
+  private final Map<K, InFlight> inFlight = new HashMap<>();
+
+  // number of times every value was dropped, to tell whether it happened during a load.
+  private long invalidationsOfAll;
+
+  private final Counter hits;
+
+  private final Counter misses;
+
+  /**
+   * Creates a cache.
+   *
+   * @param name name of the cache, tagging its metrics.
+   * @param maxEntries most values held, the least recently used being dropped first.
+   * @param meterRegistry registry of the metrics.
+   */
+  public TransactionalCache(
+      final String name, final int maxEntries, final MeterRegistry meterRegistry) {
+    values =
+        new LinkedHashMap<K, V>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+            return size() > maxEntries;
+          }
+        };
+    hits = meterRegistry.counter("cache.gets", "name", name, "result", "hit");
+    misses = meterRegistry.counter("cache.gets", "name", name, "result", "miss");
+    meterRegistry.gauge("cache.size", Tags.of("name", name), this, TransactionalCache::size);
+  }
+
+  /**
+   * Gets the value of a key, from the cache or else from the loader.
+   *
+   * @param key key of the value.
+   * @param loader loader of the value from the DB, giving empty if there is none.
+   * @return the value, empty if there is none.
+   */
+  public Optional<V> get(final K key, final Function<? super K, Optional<V>> loader) {
+    final InFlight load;
+    final long changesBefore;
+    final long invalidationsBefore;
+    synchronized (lock) {
+      V value = values.get(key);
+      if (value != null) {
+        hits.increment();
+        return Optional.of(value);
+      }
+      load = inFlight.computeIfAbsent(key, k -> new InFlight());
+      load.loads++;
+      changesBefore = load.changesCompleted;
+      invalidationsBefore = invalidationsOfAll;
+    }
+    misses.increment();
+    Optional<V> value = Optional.empty();
+    try {
+      value = loader.apply(key);
+    } finally {
+      synchronized (lock) {
+        if (value.isPresent()
+            && load.changesCompleted == changesBefore
+            && load.changes == 0
+            && invalidationsOfAll == invalidationsBefore) {
+          values.put(key, value.get());
+        }
+        load.loads--;
+        release(key, load);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Applies a change of the value of a key to the cached value, if any, once the current
+   * transaction, which made the change in the DB, commits. Must be called after the change was
+   * made in the DB.
+   *
+   * @param key key of the value.
+   * @param update update of the cached value.
+   */
+  public void updateOnCommit(final K key, final UnaryOperator<V> update) {
+    changed(key, update);
+  }
+
+  /**
+   * Drops the value of a key from the cache once the current transaction, which changed or deleted
+   * it in the DB, completes. Must be called after the change was made in the DB.
+   *
+   * @param key key of the value.
+   */
+  public void invalidateOnCommit(final K key) {
+    changed(key, null);
+  }
+
+  /**
+   * Drops the value of a key from the cache right away, for a change already committed, e.g. by
+   * another node.
+   *
+   * @param key key of the value.
+   */
+  public void invalidate(final K key) {
+    synchronized (lock) {
+      values.remove(key);
+      InFlight keyInFlight = inFlight.get(key);
+      if (keyInFlight != null) {
+        keyInFlight.changesCompleted++;
+      }
+    }
+  }
+
+  /** Drops every value from the cache. */
+  public void invalidateAll() {
+    synchronized (lock) {
+      values.clear();
+      invalidationsOfAll++;
+    }
+  }
+
+  /**
+   * Gets the number of values in the cache.
+   *
+   * @return the number of cached values.
+   */
+  public int size() {
+    synchronized (lock) {
+      return values.size();
+    }
+  }
+
+  // update is null for a change whose value is not known, which drops the key.
+  private void changed(final K key, final UnaryOperator<V> update) {
+    final InFlight change;
+    synchronized (lock) {
+      change = inFlight.computeIfAbsent(key, k -> new InFlight());
+      change.changes++;
+      change.overlapping |= change.changes > 1;
+    }
+    TransactionHooks.afterCompletion(
+        committed -> {
+          synchronized (lock) {
+            V value = values.remove(key);
+            if (committed && update != null && value != null && !change.overlapping) {
+              values.put(key, update.apply(value));
+            }
+            if (--change.changes == 0) {
+              change.overlapping = false;
+            }
+            change.changesCompleted++;
+            release(key, change);
+          }
+        });
+  }
+
+  // drops the tracking of a key once nothing is in progress for it; called holding the lock.
+  private void release(final K key, final InFlight keyInFlight) {
+    if (keyInFlight.changes == 0 && keyInFlight.loads == 0) {
+      inFlight.remove(key);
+    }
+  }
+
+  private static final class InFlight {
+
+    // changes of the key not yet completed.
+    private int changes;
+
+    // whether another change of the key started before one of them completed.
+    private boolean overlapping;
+
+    // loads of the key not yet completed.
+    private int loads;
+
+    // changes of the key completed, to tell whether one completed during a load.
+    private long changesCompleted;
+  }
+}
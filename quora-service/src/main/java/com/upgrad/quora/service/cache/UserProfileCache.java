@@ -0,0 +1,88 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.cache.Invalidation.EntityType;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.snapshot.UserProfile;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Optional;
+
+/**
+ * Cache of the {@link UserProfile} of the users looked up by uuid, holding the {@code
+ * quora.cache.user-profiles.max-entries} most recently used ones; see {@link TransactionalCache},
+ * its metrics are tagged with {@code name=user-profiles}. A profile is dropped whenever the user
+ * is created, changed or deleted.
+ *
+ * <p>The uuids of users found missing are remembered for {@code quora.cache.negative.ttl-ms}, so
+ * that made-up uuids looked up again are not queried; see {@link NegativeCache}, its metrics are
+ * tagged with {@code name=unknown-users}. Creating a user forgets its uuid.
+ *
+ * <p>Changes of users are published to the other nodes by {@link InvalidationBus}, which drop the
+ * user from their caches.
+ */
+@Component
+public class UserProfileCache {
+
+  @Autowired private UserDao userDao;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Autowired private InvalidationBus invalidationBus;
+
+  @Value("${quora.cache.user-profiles.max-entries:10000}")
+  private int maxEntries;
+
+  @Value("${quora.cache.negative.max-entries:100000}")
+  private int maxUnknownEntries;
+
+  @Value("${quora.cache.negative.ttl-ms:30000}")
+  private long unknownTtlMillis;
+
+  private TransactionalCache<String, UserProfile> profiles;
+
+  private NegativeCache unknownUsers;
+
+  @PostConstruct
+  public void init() {
+    profiles = new TransactionalCache<>("user-profiles", maxEntries, meterRegistry);
+    unknownUsers =
+        new NegativeCache("unknown-users", maxUnknownEntries, unknownTtlMillis, meterRegistry);
+    invalidationBus.subscribe(
+        EntityType.USER,
+        uuid -> {
+          profiles.invalidate(uuid);
+          unknownUsers.forget(uuid);
+        },
+        () -> {
+          profiles.invalidateAll();
+          unknownUsers.forgetAll();
+        });
+  }
+
+  /**
+   * Gets the profile of the user with the given uuid, from the cache or else from the DB.
+   *
+   * @param uuid uuid of the user.
+   * @return the profile, empty if the user does not exist or was deleted.
+   */
+  public Optional<UserProfile> get(final String uuid) {
+    return unknownUsers.get(uuid, unknown -> profiles.get(unknown, userDao::getUserProfile));
+  }
+
+  /**
+   * Drops the profile of a user from the cache once the current transaction, which created,
+   * changed or deleted the user, completes, and forgets that it was found missing. Must be called
+   * after the user was written to the DB.
+   *
+   * @param uuid uuid of the user.
+   */
+  public void changed(final String uuid) {
+    profiles.invalidateOnCommit(uuid);
+    unknownUsers.createdOnCommit(uuid);
+    invalidationBus.publish(EntityType.USER, uuid);
+  }
+}
@@ -0,0 +1,180 @@
+package com.upgrad.quora.service.common;
+
+import com.upgrad.quora.service.cache.Invalidation;
+import com.upgrad.quora.service.cache.Invalidation.EntityType;
+import com.upgrad.quora.service.cache.InvalidationBus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Version counters of the question and answer lists, from which their ETags are derived without
+ * loading or hashing the lists.
+ *
+ * <p>The list of all questions has a single counter. The answers to the questions are covered by a
+ * fixed number of counters, each one shared by every question whose uuid hashes to it, so that the
+ * memory used does not grow with the number of questions; a change to one question only makes the
+ * clients of the few questions sharing its counter fetch an unchanged list again. A global counter,
+ * part of every ETag, is bumped by changes hiding content across the board. The counters live in
+ * memory and start over on restart, so the ETags also carry the start time of this instance.
+ *
+ * <p>The counters are bumped after the mutation has committed. A list read while a mutation is
+ * committing may then go out with the version preceding the mutation, which only costs the client
+ * one more full response; bumping before commit could tag the old content with the new version.
+ * The changes are also published to the other nodes by {@link InvalidationBus}, which bump their
+ * own counters.
+ */
+@Component
+public class ContentVersions {
+
+  private static final int ANSWER_STRIPES = 4096;
+
+  private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+  private final AtomicLong global = new AtomicLong();
+
+  private final AtomicLong questions = new AtomicLong();
+
+  private final AtomicLongArray answers = new AtomicLongArray(ANSWER_STRIPES);
+
+  @Autowired private InvalidationBus invalidationBus;
+
+  @PostConstruct
+  public void init() {
+    invalidationBus.subscribe(
+        EntityType.QUESTION_LIST, all -> questions.incrementAndGet(), global::incrementAndGet);
+    invalidationBus.subscribe(
+        EntityType.ANSWER_LIST,
+        questionUuid -> answers.incrementAndGet(stripe(questionUuid)),
+        global::incrementAndGet);
+    invalidationBus.subscribe(
+        EntityType.ALL_LISTS, all -> global.incrementAndGet(), global::incrementAndGet);
+  }
+
+  /**
+   * Gets the ETag of the list of all questions.
+   *
+   * @param representation name of the representation the list is rendered in.
+   * @return strong ETag, quoted.
+   */
+  public String questionsETag(final String representation) {
+    return eTag("q", questions.get(), representation);
+  }
+
+  /**
+   * Gets the ETag of the list of answers to a question.
+   *
+   * @param questionUuid uuid of the question.
+   * @param representation name of the representation the list is rendered in.
+   * @return strong ETag, quoted.
+   */
+  public String answersETag(final String questionUuid, final String representation) {
+    return eTag("a", answers.get(stripe(questionUuid)), representation);
+  }
+
+  /**
+   * Gets the version of the list of answers to a question, which changes whenever its ETag does.
+   *
+   * @param questionUuid uuid of the question.
+   * @return opaque version.
+   */
+  public String answersVersion(final String questionUuid) {
+    return global.get() + "." + answers.get(stripe(questionUuid));
+  }
+
+  /** Marks the list of all questions as changed once the current transaction commits. */
+  public void questionsChanged() {
+    TransactionHooks.afterCommit(questions::incrementAndGet);
+    invalidationBus.publish(EntityType.QUESTION_LIST, Invalidation.ALL);
+  }
+
+  /**
+   * Marks the list of answers to a question as changed once the current transaction commits.
+   *
+   * @param questionUuid uuid of the question.
+   */
+  public void answersChanged(final String questionUuid) {
+    final int stripe = stripe(questionUuid);
+    TransactionHooks.afterCommit(() -> answers.incrementAndGet(stripe));
+    invalidationBus.publish(EntityType.ANSWER_LIST, questionUuid);
+  }
+
+  /** Marks every list as changed once the current transaction commits. */
+  public void allChanged() {
+    TransactionHooks.afterCommit(global::incrementAndGet);
+    invalidationBus.publish(EntityType.ALL_LISTS, Invalidation.ALL);
+  }
+
+  /**
+   * Checks whether an If-None-Match header matches the given ETag, using the weak comparison
+   * required for If-None-Match.
+   *
+   * @param ifNoneMatch If-None-Match header of the request, may be null.
+   * @param eTag current ETag, quoted.
+   * @return whether the client already has the current version.
+   */
+  public static boolean matches(final String ifNoneMatch, final String eTag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(eTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Tells whether an ETag of a list was derived from older counters than another ETag of the same
+   * list and representation, i.e. whether the content it tags was read before the other one.
+   *
+   * @param eTag ETag to be compared, quoted.
+   * @param other other ETag of the list, quoted.
+   * @return whether the first ETag is older; false if either one was not derived by this instance
+   *     or neither is older, the counters having been read in between each other.
+   */
+  public static boolean isOlder(final String eTag, final String other) {
+    final long[] counters = counters(eTag);
+    final long[] otherCounters = counters(other);
+    if (counters == null || otherCounters == null || counters[0] != otherCounters[0]) {
+      return false;
+    }
+    return counters[1] <= otherCounters[1]
+        && counters[2] <= otherCounters[2]
+        && (counters[1] < otherCounters[1] || counters[2] < otherCounters[2]);
+  }
+
+  // epoch, global counter and list counter of an ETag, or null if it is not shaped as one.
+  private static long[] counters(final String eTag) {
+    final String[] parts = eTag.split("-");
+    final int dot = parts.length == 4 ? parts[2].indexOf('.') : -1;
+    if (dot < 0) {
+      return null;
+    }
+    try {
+      return new long[] {
+        Long.parseLong(parts[1], Character.MAX_RADIX),
+        Long.parseLong(parts[2].substring(0, dot)),
+        Long.parseLong(parts[2].substring(dot + 1))
+      };
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private String eTag(final String list, final long version, final String representation) {
+    return '"' + list + '-' + epoch + '-' + global.get() + '.' + version + '-' + representation + '"';
+  }
+
+  private static int stripe(final String questionUuid) {
+    return questionUuid.hashCode() & (ANSWER_STRIPES - 1);
+  }
+}
@@ -0,0 +1,59 @@
+package com.upgrad.quora.service.common;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Deferred query whose rows are handed over one at a time as they are read from a DB cursor, so
+ * that the whole result never has to be held in memory. The query only runs when {@link #forEach}
+ * is called, which may happen on another thread than the one which created it.
+ *
+ * @param <T> type of the rows.
+ */
+@FunctionalInterface
+public interface ResultStreamer<T> {
+
+  /**
+   * Runs the query and passes every row to the action, in order.
+   *
+   * @param action action to be performed on every row.
+   */
+  void forEach(Consumer<? super T> action);
+
+  /**
+   * Runs the query and collects the rows, for the few cases where they have to be held at once.
+   *
+   * @return the rows in order, unmodifiable.
+   */
+  default List<T> toList() {
+    List<T> rows = new ArrayList<>();
+    forEach(rows::add);
+    return Collections.unmodifiableList(rows);
+  }
+
+  /**
+   * Wraps a query so that it runs in a read-only transaction of its own, which is required for the
+   * DB to stream the rows through a cursor.
+   *
+   * @param transactionManager transaction manager of the DB.
+   * @param query query to be wrapped.
+   * @param <T> type of the rows.
+   * @return the wrapped query.
+   */
+  static <T> ResultStreamer<T> readOnly(
+      final PlatformTransactionManager transactionManager, final ResultStreamer<T> query) {
+    final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setReadOnly(true);
+    return action ->
+        transactionTemplate.execute(
+            status -> {
+              query.forEach(action);
+              return null;
+            });
+  }
+}
@@ -0,0 +1,104 @@
+package com.upgrad.quora.service.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical reads into one: the first caller for a key runs the load, and the
+ * callers asking for the same key while it is in flight wait for its result instead of running
+ * the load again. The result is only shared while the load is in flight, nothing is cached after.
+ * A failed load fails every caller waiting for it.
+ *
+ * <p>A caller waits at most the timeout for a load in flight, then runs the load on its own, so a
+ * stuck load does not hold up everybody asking for the key. Callers are counted in the {@code
+ * singleflight.calls} metric, tagged with the name of the loads and whether the caller ran the
+ * load ({@code leader}), got the result of another caller ({@code collapsed}) or gave up waiting
+ * ({@code timeout}); {@code singleflight.in-flight}, tagged with the name too, is the number of
+ * loads in flight.
+ *
+ * @param <K> type of the keys, identifying the loads giving the same result.
+ * @param <V> type of the results, shared between the callers so better immutable.
+ */
+public class SingleFlight<K, V> {
+
+  private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+  private final long timeoutMillis;
+
+  private final Counter leaders;
+
+  private final Counter collapsed;
+
+  private final Counter timedOut;
+
+  /**
+   * Creates the single-flight layer of one kind of load.
+   *
+   * @param name name of the loads, tagging their metrics.
+   * @param timeoutMillis longest a caller waits for a load in flight.
+   * @param meterRegistry registry of the metrics.
+   */
+  public SingleFlight(
+      final String name, final long timeoutMillis, final MeterRegistry meterRegistry) {
+    this.timeoutMillis = timeoutMillis;
+    leaders = meterRegistry.counter("singleflight.calls", "name", name, "result", "leader");
+    collapsed = meterRegistry.counter("singleflight.calls", "name", name, "result", "collapsed");
+    timedOut = meterRegistry.counter("singleflight.calls", "name", name, "result", "timeout");
+    meterRegistry.gauge(
+        "singleflight.in-flight", Tags.of("name", name), flights, ConcurrentMap::size);
+  }
+
+  /**
+   * Gets the result of the load for the key, sharing the load in flight for it if there is one.
+   *
+   * @param key key of the load.
+   * @param load load to be run if none is in flight for the key.
+   * @return the result of the load.
+   */
+  public V execute(final K key, final Supplier<V> load) {
+    final CompletableFuture<V> flight = new CompletableFuture<>();
+    final CompletableFuture<V> inFlight = flights.putIfAbsent(key, flight);
+    if (inFlight == null) {
+      leaders.increment();
+      try {
+        V result = load.get();
+        flight.complete(result);
+        return result;
+      } catch (RuntimeException | Error e) {
+        flight.completeExceptionally(e);
+        throw e;
+      } finally {
+        flights.remove(key, flight);
+      }
+    }
+    try {
+      V result = inFlight.get(timeoutMillis, TimeUnit.MILLISECONDS);
+      collapsed.increment();
+      return result;
+    } catch (TimeoutException e) {
+      timedOut.increment();
+      return load.get();
+    } catch (ExecutionException e) {
+      collapsed.increment();
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for " + key, e);
+    }
+  }
+}
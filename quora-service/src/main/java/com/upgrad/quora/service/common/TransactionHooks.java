@@ -0,0 +1,56 @@
+package com.upgrad.quora.service.common;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * Helpers to defer in-memory side effects of a DB mutation until the surrounding transaction has
+ * committed, so that a rolled back transaction never leaves them behind.
+ */
+public final class TransactionHooks {
+
+  private TransactionHooks() {}
+
+  /**
+   * Runs the given action once the current transaction commits, or immediately if no transaction
+   * is active.
+   *
+   * @param action action to be run after commit.
+   */
+  public static void afterCommit(final Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronizationAdapter() {
+          @Override
+          public void afterCommit() {
+            action.run();
+          }
+        });
+  }
+
+  /**
+   * Runs the given action once the current transaction completes, whether it commits or rolls
+   * back, or immediately as committed if no transaction is active.
+   *
+   * @param action action to be run after completion, told whether the transaction committed.
+   */
+  public static void afterCompletion(final Consumer<Boolean> action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.accept(true);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronizationAdapter() {
+          @Override
+          public void afterCompletion(final int status) {
+            action.accept(status == TransactionSynchronization.STATUS_COMMITTED);
+          }
+        });
+  }
+}
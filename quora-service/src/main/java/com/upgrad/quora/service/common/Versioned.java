@@ -0,0 +1,55 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Content along with the ETag of its version, or just the ETag if the client already has that
+ * version.
+ *
+ * @param <T> type of the content.
+ */
+public final class Versioned<T> {
+
+  private final String eTag;
+
+  private final T content;
+
+  private Versioned(final String eTag, final T content) {
+    this.eTag = eTag;
+    this.content = content;
+  }
+
+  /**
+   * Wraps content of the given version.
+   *
+   * @param eTag ETag of the version.
+   * @param content the content.
+   * @param <T> type of the content.
+   * @return the versioned content.
+   */
+  public static <T> Versioned<T> of(final String eTag, final T content) {
+    return new Versioned<>(eTag, content);
+  }
+
+  /**
+   * Stands for content the client already has.
+   *
+   * @param eTag ETag of the version the client has.
+   * @param <T> type of the content.
+   * @return versioned content without the content.
+   */
+  public static <T> Versioned<T> notModified(final String eTag) {
+    return new Versioned<>(eTag, null);
+  }
+
+  public String getETag() {
+    return eTag;
+  }
+
+  /** @return the content, or null if the client already has this version. */
+  public T getContent() {
+    return content;
+  }
+
+  public boolean isModified() {
+    return content != null;
+  }
+}
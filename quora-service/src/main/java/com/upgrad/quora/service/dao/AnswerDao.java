@@ -1,16 +1,25 @@
 package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.snapshot.AnswerSnapshot;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.time.Duration;
+import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
 public class AnswerDao {
 
+  // slack between the time a question was posted and the time of its answers, as the clocks of the
+  // nodes posting them may disagree.
+  private static final Duration ANSWER_TIME_TOLERANCE = Duration.ofDays(1);
+
   @PersistenceContext private EntityManager entityManager;
 
   /**
@@ -28,47 +37,155 @@ public class AnswerDao {
    * Fetches an answer from DB based on the answerId
    *
    * @param answerId id of the answer to be fetched.
-   * @return Answer if there exist one with that id in DB else null.
+   * @return Answer if there exist one with that id in DB else empty.
    */
-  public AnswerEntity getAnswerById(final String answerId) {
-    try {
-      return entityManager
-          .createNamedQuery("getAnswerById", AnswerEntity.class)
-          .setParameter("uuid", answerId)
-          .getSingleResult();
-    } catch (NoResultException nre) {
-      return null;
-    }
+  public Optional<AnswerEntity> getAnswerById(final String answerId) {
+    return Queries.singleResult(
+        entityManager
+            .createNamedQuery("getAnswerById", AnswerEntity.class)
+            .setParameter("uuid", answerId));
+  }
+
+  /**
+   * Check whether an answer with the given id exists.
+   *
+   * @param answerId id of the answer.
+   * @return true if the answer exists.
+   */
+  public boolean answerExists(final String answerId) {
+    return entityManager
+            .createNamedQuery("countAnswersById", Long.class)
+            .setParameter("uuid", answerId)
+            .getSingleResult()
+        > 0;
   }
 
   /**
-   * updates the row of information in answer table of DB.
+   * Update the content of the answer in a single statement, provided it was posted by the given
+   * user.
    *
-   * @param answerEntity answer to be updated.
+   * @param answerId id of the answer to be updated.
+   * @param userId id of the user editing the answer.
+   * @param answer new content of the answer.
+   * @return question of the updated answer with only its id and uuid set, or null if no answer
+   *     with the given id was posted by the user.
    */
-  public void updateAnswer(AnswerEntity answerEntity) {
-    entityManager.merge(answerEntity);
+  public QuestionEntity updateAnswerContent(
+      final String answerId, final Integer userId, final String answer) {
+    return questionOf(
+        entityManager
+            .createNamedQuery("updateOwnAnswerContent")
+            .setParameter("uuid", answerId)
+            .setParameter("userId", userId)
+            .setParameter("answer", answer)
+            .getResultList());
   }
 
   /**
-   * Delete a answer by given answerId from the DB.
+   * Delete the answer in a single statement, provided it was posted by the given user or the user
+   * is an admin.
    *
-   * @param answerId Id of the answer whose information is to be fetched.
-   * @return Answer details which is to be deleted if exist in the DB else null.
+   * @param answerId id of the answer to be deleted.
+   * @param userId id of the user deleting the answer.
+   * @param admin whether the user is an admin.
+   * @return question of the deleted answer with only its id and uuid set, or null if no answer
+   *     with the given id could be deleted by the user.
    */
-  public AnswerEntity deleteAnswer(final String answerId) {
-    AnswerEntity deleteAnswer = getAnswerById(answerId);
-    if (deleteAnswer != null) {
-      entityManager.remove(deleteAnswer);
+  public QuestionEntity deleteAnswer(
+      final String answerId, final Integer userId, final boolean admin) {
+    return questionOf(
+        entityManager
+            .createNamedQuery("deleteAnswerIfAllowed")
+            .setParameter("uuid", answerId)
+            .setParameter("userId", userId)
+            .setParameter("admin", admin)
+            .getResultList());
+  }
+
+  // rows of (question id, question uuid) returned by an update or delete of a single answer.
+  private static QuestionEntity questionOf(final List<?> rows) {
+    if (rows.isEmpty()) {
+      return null;
     }
-    return deleteAnswer;
+    Object[] row = (Object[]) rows.get(0);
+    QuestionEntity questionEntity = new QuestionEntity();
+    questionEntity.setId(((Number) row[0]).intValue());
+    questionEntity.setUuid((String) row[1]);
+    return questionEntity;
   }
 
-  // fetch all the answers to the question using questionId
-  public List<AnswerEntity> getAllAnswersToQuestion(final String questionId) {
+  /**
+   * Get a page of the answers to the question along with their authors, oldest first. As in {@link
+   * #streamAllAnswersToQuestion}, the time the question was posted bounds the partitions scanned.
+   *
+   * @param questionId uuid of the question.
+   * @param questionDate time the question was posted.
+   * @param page zero based index of the page.
+   * @param size number of answers per page.
+   * @return the answers on the page.
+   */
+  public List<AnswerSnapshot> getAnswerPageToQuestion(
+      final String questionId, final ZonedDateTime questionDate, final int page, final int size) {
     return entityManager
-        .createNamedQuery("getAllAnswersToQuestion", AnswerEntity.class)
+        .createNamedQuery("answerThreadSnapshotsToQuestion", AnswerSnapshot.class)
         .setParameter("uuid", questionId)
+        .setParameter("since", questionDate.minus(ANSWER_TIME_TOLERANCE))
+        .setFirstResult(page * size)
+        .setMaxResults(size)
         .getResultList();
   }
+
+  /**
+   * Stream all the answers to the question from the DB through a cursor. As an answer cannot be
+   * posted before its question, the partitions of the answers posted more than a day before the
+   * question are skipped; the day leaves room for the clock of the node posting an answer lagging
+   * behind the one which posted the question. Must be called within a transaction.
+   *
+   * @param questionId uuid of the question.
+   * @param questionDate time the question was posted.
+   * @param action action to be performed on every answer.
+   */
+  public void streamAllAnswersToQuestion(
+      final String questionId,
+      final ZonedDateTime questionDate,
+      final Consumer<? super AnswerSnapshot> action) {
+    Cursors.forEach(
+        entityManager
+            .createNamedQuery("answerSnapshotsToQuestion", AnswerSnapshot.class)
+            .setParameter("uuid", questionId)
+            .setParameter("since", questionDate.minus(ANSWER_TIME_TOLERANCE)),
+        action);
+  }
+
+  /**
+   * Delete a batch of the answers posted by a user, taking them off the answer count and last
+   * activity of their questions in the same statement.
+   *
+   * @param userId id of the user whose answers are to be deleted.
+   * @param batchSize maximum number of answers to be deleted.
+   * @return uuid of the question of every deleted answer.
+   */
+  @SuppressWarnings("unchecked")
+  public List<String> purgeAnswersByUser(final Integer userId, final int batchSize) {
+    return entityManager
+        .createNamedQuery("purgeAnswersOfUser")
+        .setParameter("userId", userId)
+        .setParameter("batchSize", batchSize)
+        .getResultList();
+  }
+
+  /**
+   * Delete a batch of the answers posted to the questions of a user.
+   *
+   * @param userId id of the user whose questions' answers are to be deleted.
+   * @param batchSize maximum number of answers to be deleted.
+   * @return number of deleted answers.
+   */
+  public int purgeAnswersToQuestionsOfUser(final Integer userId, final int batchSize) {
+    return entityManager
+        .createNamedQuery("purgeAnswersToQuestionsOfUser")
+        .setParameter("userId", userId)
+        .setParameter("batchSize", batchSize)
+        .executeUpdate();
+  }
 }
@@ -0,0 +1,31 @@
+package com.upgrad.quora.service.dao;
+
+import org.hibernate.query.Query;
+
+import javax.persistence.TypedQuery;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/** Helpers to read the result of a query through a forward-only DB cursor. */
+final class Cursors {
+
+  // rows fetched from the DB per round trip while streaming.
+  static final int FETCH_SIZE = 500;
+
+  private Cursors() {}
+
+  /**
+   * Runs the query and passes every row to the action as it is read. Must be called within a
+   * transaction, as the DB only keeps the cursor open for the length of the transaction.
+   *
+   * @param query query to be run.
+   * @param action action to be performed on every row.
+   * @param <T> type of the rows.
+   */
+  @SuppressWarnings("unchecked")
+  static <T> void forEach(final TypedQuery<T> query, final Consumer<? super T> action) {
+    try (Stream<T> rows = query.unwrap(Query.class).setFetchSize(FETCH_SIZE).stream()) {
+      rows.forEach(action);
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.cache.Invalidation;
+import com.upgrad.quora.service.cache.Invalidation.EntityType;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Stores the changes of the rows cached in memory in the CACHE_INVALIDATION table and notifies the
+ * nodes listening on the {@value #CHANNEL} channel of them.
+ */
+@Repository
+public class InvalidationDao {
+
+  public static final String CHANNEL = "cache_invalidation";
+
+  @PersistenceContext private EntityManager entityManager;
+
+  /**
+   * Stores the changes made by the current transaction, in one statement.
+   *
+   * @param origin id of the node making the changes.
+   * @param publishedAt time the changes are published at.
+   * @param uuids uuids of the changed rows, by kind of row.
+   * @return the stored changes, with their version.
+   */
+  public List<Invalidation> createInvalidations(
+      final String origin,
+      final Date publishedAt,
+      final Map<EntityType, ? extends Collection<String>> uuids) {
+    final List<EntityType> rowTypes = new ArrayList<>();
+    final List<String> rowUuids = new ArrayList<>();
+    uuids.forEach(
+        (entityType, entityUuids) ->
+            entityUuids.forEach(
+                uuid -> {
+                  rowTypes.add(entityType);
+                  rowUuids.add(uuid);
+                }));
+    final StringBuilder sql =
+        new StringBuilder(
+            "INSERT INTO cache_invalidation(entity_type, uuid, origin, published_at) VALUES ");
+    for (int i = 0; i < rowUuids.size(); i++) {
+      sql.append(i == 0 ? "" : ", ")
+          .append("(:type")
+          .append(i)
+          .append(", :uuid")
+          .append(i)
+          .append(", :origin, :publishedAt)");
+    }
+    sql.append(" RETURNING id, entity_type, uuid");
+    final Query query =
+        entityManager
+            .createNativeQuery(sql.toString())
+            .setParameter("origin", origin)
+            .setParameter("publishedAt", publishedAt, TemporalType.TIMESTAMP);
+    for (int i = 0; i < rowUuids.size(); i++) {
+      query.setParameter("type" + i, rowTypes.get(i).name());
+      query.setParameter("uuid" + i, rowUuids.get(i));
+    }
+    final List<Invalidation> invalidations = new ArrayList<>();
+    for (Object result : query.getResultList()) {
+      Object[] row = (Object[]) result;
+      invalidations.add(
+          new Invalidation(
+              EntityType.valueOf((String) row[1]),
+              (String) row[2],
+              ((Number) row[0]).longValue(),
+              origin,
+              publishedAt));
+    }
+    return invalidations;
+  }
+
+  /**
+   * Sends notifications on the {@value #CHANNEL} channel, delivered once the current transaction
+   * commits, in one statement.
+   *
+   * @param payloads payloads of the notifications, each shorter than 8000 bytes.
+   */
+  public void notifyListeners(final List<String> payloads) {
+    final StringBuilder sql =
+        new StringBuilder("SELECT count(pg_notify('" + CHANNEL + "', p)) FROM (VALUES ");
+    for (int i = 0; i < payloads.size(); i++) {
+      sql.append(i == 0 ? "" : ", ").append("(CAST(:payload").append(i).append(" AS text))");
+    }
+    sql.append(") AS payloads(p)");
+    final Query query = entityManager.createNativeQuery(sql.toString());
+    for (int i = 0; i < payloads.size(); i++) {
+      query.setParameter("payload" + i, payloads.get(i));
+    }
+    query.getSingleResult();
+  }
+
+  /**
+   * Gets the changes published from the given time on, oldest first. Changes of kinds of rows no
+   * longer published, e.g. stored by an older release, are left out.
+   *
+   * @param from earliest publication time of the changes.
+   * @return the changes.
+   */
+  public List<Invalidation> getInvalidationsSince(final Date from) {
+    final List<Invalidation> invalidations = new ArrayList<>();
+    for (Object result :
+        entityManager
+            .createNativeQuery(
+                "SELECT id, entity_type, uuid, origin, published_at FROM cache_invalidation"
+                    + " WHERE published_at >= :from AND entity_type IN (:entityTypes) ORDER BY id")
+            .setParameter("from", from, TemporalType.TIMESTAMP)
+            .setParameter(
+                "entityTypes",
+                Arrays.stream(EntityType.values()).map(Enum::name).collect(Collectors.toList()))
+            .getResultList()) {
+      Object[] row = (Object[]) result;
+      invalidations.add(
+          new Invalidation(
+              EntityType.valueOf((String) row[1]),
+              (String) row[2],
+              ((Number) row[0]).longValue(),
+              (String) row[3],
+              (Date) row[4]));
+    }
+    return invalidations;
+  }
+
+  /**
+   * Deletes the changes published before the given time.
+   *
+   * @param before time the changes to be kept were published from.
+   * @return number of deleted changes.
+   */
+  public int purgeInvalidations(final Date before) {
+    return entityManager
+        .createNativeQuery("DELETE FROM cache_invalidation WHERE published_at < :before")
+        .setParameter("before", before, TemporalType.TIMESTAMP)
+        .executeUpdate();
+  }
+}
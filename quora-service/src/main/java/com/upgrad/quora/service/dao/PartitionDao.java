@@ -0,0 +1,135 @@
+package com.upgrad.quora.service.dao;
+
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Manages the monthly range partitions of the tables partitioned by date. A partition of a table
+ * covering a month is named {@code <table>_pYYYYMM}, and rows outside of every monthly partition
+ * fall into {@code <table>_default}.
+ *
+ * <p>Table and column names are concatenated into the DDL as is, so they must only ever come from
+ * the code and never from a request.
+ */
+@Repository
+public class PartitionDao {
+
+  public static final String ARCHIVE_SCHEMA = "archive";
+
+  private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+  @PersistenceContext private EntityManager entityManager;
+
+  /**
+   * Gets the name of the partition of a table covering the given month.
+   *
+   * @param table partitioned table.
+   * @param month month covered by the partition.
+   * @return name of the partition.
+   */
+  public static String partitionName(final String table, final YearMonth month) {
+    return table + "_p" + month.format(MONTH);
+  }
+
+  /**
+   * Gets the month covered by a partition of a table.
+   *
+   * @param table partitioned table.
+   * @param partition name of the partition.
+   * @return month covered by the partition, or null if it is not a monthly partition.
+   */
+  public static YearMonth partitionMonth(final String table, final String partition) {
+    final String prefix = table + "_p";
+    if (!partition.startsWith(prefix)) {
+      return null;
+    }
+    try {
+      return YearMonth.parse(partition.substring(prefix.length()), MONTH);
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Fetch the names of the partitions currently attached to a table.
+   *
+   * @param table partitioned table.
+   * @return names of the attached partitions.
+   */
+  @SuppressWarnings("unchecked")
+  public List<String> getPartitions(final String table) {
+    return entityManager
+        .createNativeQuery(
+            "select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid"
+                + " where i.inhparent = cast(:table as regclass)")
+        .setParameter("table", table)
+        .getResultList();
+  }
+
+  /**
+   * Create the partition of a table covering the given month. The rows of that month which have
+   * already landed in the default partition are moved into the new partition, so that it can be
+   * attached. Indexes and foreign keys of the table are added to the partition on attach.
+   *
+   * @param table partitioned table.
+   * @param column date column the table is partitioned by.
+   * @param month month to be covered by the partition.
+   */
+  public void createPartition(final String table, final String column, final YearMonth month) {
+    final String partition = partitionName(table, month);
+    final String from = "'" + month.atDay(1) + "'";
+    final String to = "'" + month.plusMonths(1).atDay(1) + "'";
+    execute(
+        "create table "
+            + partition
+            + " (like "
+            + table
+            + " including defaults including constraints)");
+    execute(
+        "with moved as (delete from "
+            + table
+            + "_default where "
+            + column
+            + " >= "
+            + from
+            + " and "
+            + column
+            + " < "
+            + to
+            + " returning *) insert into "
+            + partition
+            + " select * from moved");
+    execute(
+        "alter table "
+            + table
+            + " attach partition "
+            + partition
+            + " for values from ("
+            + from
+            + ") to ("
+            + to
+            + ")");
+  }
+
+  /**
+   * Detach a partition from its table and move it to the archive schema. The rows of the partition
+   * are kept, but are not visible through the table anymore.
+   *
+   * @param table partitioned table.
+   * @param partition partition to be archived.
+   */
+  public void archivePartition(final String table, final String partition) {
+    execute("alter table " + table + " detach partition " + partition);
+    execute("alter table " + partition + " set schema " + ARCHIVE_SCHEMA);
+  }
+
+  private void execute(final String ddl) {
+    entityManager.createNativeQuery(ddl).executeUpdate();
+  }
+}
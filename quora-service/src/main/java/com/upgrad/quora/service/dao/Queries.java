@@ -0,0 +1,30 @@
+package com.upgrad.quora.service.dao;
+
+import javax.persistence.NonUniqueResultException;
+import javax.persistence.TypedQuery;
+import java.util.List;
+import java.util.Optional;
+
+/** Helpers to read the result of a query expected to match at most one row. */
+final class Queries {
+
+  private Queries() {}
+
+  /**
+   * Runs the query and returns its row if there is one. Unlike {@link TypedQuery#getSingleResult()}
+   * no exception is created when there is no row, which is the common case of the lookups of
+   * unknown tokens and ids.
+   *
+   * @param query query to be run.
+   * @param <T> type of the row.
+   * @return the row, empty if the query matched none.
+   * @throws NonUniqueResultException if the query matched more than one row.
+   */
+  static <T> Optional<T> singleResult(final TypedQuery<T> query) {
+    final List<T> rows = query.getResultList();
+    if (rows.size() > 1) {
+      throw new NonUniqueResultException("Expected at most one row, got " + rows.size());
+    }
+    return rows.isEmpty() ? Optional.empty() : Optional.ofNullable(rows.get(0));
+  }
+}
@@ -2,12 +2,18 @@ package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.snapshot.QuestionDetails;
+import com.upgrad.quora.service.snapshot.QuestionSnapshot;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
 public class QuestionDao {
@@ -26,59 +32,263 @@ public class QuestionDao {
   }
 
   /**
-   * Fetch all the questions from the DB.
+   * Stream all the questions from the DB through a cursor. Must be called within a transaction.
    *
-   * @return List of QuestionEntity
+   * @param action action to be performed on every question.
    */
-  public List<QuestionEntity> getAllQuestions() {
-    return entityManager.createNamedQuery("getAllQuestions", QuestionEntity.class).getResultList();
+  public void streamAllQuestions(final Consumer<? super QuestionSnapshot> action) {
+    Cursors.forEach(
+        entityManager.createNamedQuery("questionSnapshots", QuestionSnapshot.class), action);
+  }
+
+  /**
+   * Get the question for the given id along with its author and the time it was posted.
+   *
+   * @param questionId id of the required question.
+   * @return the question if found else empty.
+   */
+  public Optional<QuestionSnapshot> getQuestionThreadSnapshot(final String questionId) {
+    return Queries.singleResult(
+        entityManager
+            .createNamedQuery("questionThreadSnapshot", QuestionSnapshot.class)
+            .setParameter("uuid", questionId));
+  }
+
+  /**
+   * Get the id, content, author and time of posting of the question with the given id.
+   *
+   * @param questionId id of the required question.
+   * @return the question if found else empty.
+   */
+  public Optional<QuestionDetails> getQuestionDetails(final String questionId) {
+    return Queries.singleResult(
+        entityManager
+            .createNamedQuery("questionDetails", QuestionDetails.class)
+            .setParameter("uuid", questionId));
+  }
+
+  /**
+   * Get the questions with the given ids in a single query.
+   *
+   * @param questionIds ids of the required questions.
+   * @return the questions which exist in the DB, in no particular order.
+   */
+  public List<QuestionSnapshot> getQuestionsByIds(final Collection<String> questionIds) {
+    return entityManager
+        .createNamedQuery("questionSnapshotsByUuids", QuestionSnapshot.class)
+        .setParameter("uuids", questionIds)
+        .getResultList();
   }
 
   /**
    * Get the question for the given id.
    *
    * @param questionId id of the required question.
-   * @return QuestionEntity if question with given id is found else null.
+   * @return QuestionEntity if question with given id is found else empty.
+   */
+  public Optional<QuestionEntity> getQuestionById(final String questionId) {
+    return Queries.singleResult(
+        entityManager
+            .createNamedQuery("getQuestionById", QuestionEntity.class)
+            .setParameter("uuid", questionId));
+  }
+
+  /**
+   * Get a reference to the question with the given id, to be set as the question of a new row. Only
+   * the DB id of the question is selected, the returned proxy is never loaded unless accessed.
+   *
+   * @param questionId id of the question.
+   * @return reference to the question if it exists else empty.
+   */
+  public Optional<QuestionEntity> getQuestionReference(final String questionId) {
+    return Queries.singleResult(
+            entityManager
+                .createNamedQuery("questionIdByUuid", Integer.class)
+                .setParameter("uuid", questionId))
+        .map(id -> entityManager.getReference(QuestionEntity.class, id));
+  }
+
+  /**
+   * Get a reference to the question with the given DB id, to be set as the question of a new row.
+   * Nothing is selected, the returned proxy is never loaded unless accessed.
+   *
+   * @param id DB id of the question.
+   * @return reference to the question.
+   */
+  public QuestionEntity getQuestionReference(final Integer id) {
+    return entityManager.getReference(QuestionEntity.class, id);
+  }
+
+  /**
+   * Check whether a question with the given id exists.
+   *
+   * @param questionId id of the question.
+   * @return true if the question exists.
+   */
+  public boolean questionExists(final String questionId) {
+    return entityManager
+            .createNamedQuery("countQuestionsById", Long.class)
+            .setParameter("uuid", questionId)
+            .getSingleResult()
+        > 0;
+  }
+
+  /**
+   * Update the content of the question in a single statement, provided it was posted by the given
+   * user.
+   *
+   * @param questionId id of the question to be updated.
+   * @param userId id of the user editing the question.
+   * @param content new content of the question.
+   * @return DB id of the updated question, or null if no question with the given id was posted by
+   *     the user.
    */
-  public QuestionEntity getQuestionById(final String questionId) {
-    try {
-      return entityManager
-          .createNamedQuery("getQuestionById", QuestionEntity.class)
-          .setParameter("uuid", questionId)
-          .getSingleResult();
-    } catch (NoResultException nre) {
-      return null;
-    }
+  public Integer updateQuestionContent(
+      final String questionId, final Integer userId, final String content) {
+    return singleId(
+        entityManager
+            .createNamedQuery("updateOwnQuestionContent")
+            .setParameter("uuid", questionId)
+            .setParameter("userId", userId)
+            .setParameter("content", content)
+            .getResultList());
   }
 
   /**
-   * Update the question
+   * Delete the question in a single statement, provided it was posted by the given user or the user
+   * is an admin.
    *
-   * @param questionEntity question entity to be updated.
+   * @param questionId id of the question to be deleted.
+   * @param userId id of the user deleting the question.
+   * @param admin whether the user is an admin.
+   * @return DB id of the deleted question, or null if no question with the given id could be
+   *     deleted by the user.
    */
-  public void updateQuestion(QuestionEntity questionEntity) {
-    entityManager.merge(questionEntity);
+  public Integer deleteQuestion(final String questionId, final Integer userId, final boolean admin) {
+    return singleId(
+        entityManager
+            .createNamedQuery("deleteQuestionIfAllowed")
+            .setParameter("uuid", questionId)
+            .setParameter("userId", userId)
+            .setParameter("admin", admin)
+            .getResultList());
+  }
+
+  private static Integer singleId(final List<?> ids) {
+    return ids.isEmpty() ? null : ((Number) ids.get(0)).intValue();
   }
 
   /**
-   * Delete the question
+   * Stream the questions posted by a user from the DB through a cursor. Must be called within a
+   * transaction.
    *
-   * @param questionEntity question entity to be deleted.
+   * @param userId uuid of the user whose list of asked questions has to be retrieved
+   * @param action action to be performed on every question.
    */
-  public void deleteQuestion(QuestionEntity questionEntity) {
-    entityManager.remove(questionEntity);
+  public void streamAllQuestionsByUser(
+      final String userId, final Consumer<? super QuestionSnapshot> action) {
+    Cursors.forEach(
+        entityManager
+            .createNamedQuery("questionSnapshotsByUser", QuestionSnapshot.class)
+            .setParameter("userUuid", userId),
+        action);
   }
 
   /**
-   * Fetch all the questions from the DB.
+   * Fetch the id, uuid and content of the questions whose id is greater than the given id, in the
+   * order of their ids. Used to page through all the questions without loading their owners.
    *
-   * @param userId userId of the user whose list of asked questions has to be retrieved
-   * @return List of QuestionEntity
+   * @param lastId id after which the questions are to be fetched.
+   * @param maxResults maximum number of questions to be fetched.
+   * @return list of [id, uuid, content] rows.
    */
-  public List<QuestionEntity> getAllQuestionsByUser(final UserEntity userId) {
+  public List<Object[]> getQuestionContentsAfter(final Integer lastId, final int maxResults) {
     return entityManager
-        .createNamedQuery("getQuestionByUser", QuestionEntity.class)
-        .setParameter("user", userId)
+        .createNamedQuery("questionContentsAfterId", Object[].class)
+        .setParameter("id", lastId)
+        .setMaxResults(maxResults)
         .getResultList();
   }
+
+  /**
+   * Fetch the uuids of all the questions posted by a user.
+   *
+   * @param user user whose questions are to be fetched.
+   * @return List of question uuids.
+   */
+  public List<String> getQuestionUuidsByUser(final UserEntity user) {
+    return entityManager
+        .createNamedQuery("questionUuidsByUser", String.class)
+        .setParameter("user", user)
+        .getResultList();
+  }
+
+  /**
+   * Delete a batch of the questions posted by a user. The answers to those questions are expected
+   * to have been purged already.
+   *
+   * @param userId id of the user whose questions are to be deleted.
+   * @param batchSize maximum number of questions to be deleted.
+   * @return number of deleted questions.
+   */
+  public int purgeQuestions(final Integer userId, final int batchSize) {
+    return entityManager
+        .createNamedQuery("purgeQuestionsOfUser")
+        .setParameter("userId", userId)
+        .setParameter("batchSize", batchSize)
+        .executeUpdate();
+  }
+
+  /**
+   * Atomically account for a new answer to the question.
+   *
+   * @param questionId id of the answered question.
+   * @param activityAt time the answer was posted.
+   */
+  public void incrementAnswerCount(final Integer questionId, final ZonedDateTime activityAt) {
+    entityManager
+        .createNamedQuery("incrementAnswerCount")
+        .setParameter("questionId", questionId)
+        .setParameter("activityAt", Timestamp.from(activityAt.toInstant()))
+        .executeUpdate();
+  }
+
+  /**
+   * Atomically account for a deleted answer to the question. Must be called after the answer has
+   * been deleted so that the last activity is recomputed from the remaining answers.
+   *
+   * @param questionId id of the question whose answer was deleted.
+   */
+  public void decrementAnswerCount(final Integer questionId) {
+    entityManager.flush();
+    entityManager
+        .createNamedQuery("decrementAnswerCount")
+        .setParameter("questionId", questionId)
+        .executeUpdate();
+  }
+
+  /**
+   * Recompute the answer stats of the questions whose id is in the given range from the answers,
+   * updating only the questions where they have drifted.
+   *
+   * @param fromId id after which the questions are to be reconciled.
+   * @param toId id up to which (inclusive) the questions are to be reconciled.
+   * @return number of repaired questions.
+   */
+  public int reconcileAnswerStats(final Integer fromId, final Integer toId) {
+    return entityManager
+        .createNamedQuery("reconcileAnswerStats")
+        .setParameter("fromId", fromId)
+        .setParameter("toId", toId)
+        .executeUpdate();
+  }
+
+  /**
+   * Get the highest question id in the DB.
+   *
+   * @return highest question id, or 0 if there are no questions.
+   */
+  public Integer getMaxQuestionId() {
+    return ((Number) entityManager.createNamedQuery("maxQuestionId").getSingleResult()).intValue();
+  }
 }
@@ -1,32 +1,101 @@
 package com.upgrad.quora.service.dao;
 
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.upgrad.quora.service.cache.NegativeCache;
 import com.upgrad.quora.service.entity.UserAuthEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.Optional;
 
 @Repository
 public class UserAuthDao {
 
+  // slack between the issue time of a token and the login time of its session.
+  private static final Duration LOGIN_TIME_TOLERANCE = Duration.ofDays(1);
+
+  // tokens issued before the issue time was written in seconds carry a time in January 1970.
+  private static final Instant EARLIEST_ISSUED_AT = Instant.parse("2000-01-01T00:00:00Z");
+
   @PersistenceContext private EntityManager entityManager;
 
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Value("${quora.cache.negative.max-entries:100000}")
+  private int maxUnknownTokens;
+
+  @Value("${quora.cache.negative.ttl-ms:30000}")
+  private long unknownTokenTtlMillis;
+
+  private NegativeCache unknownTokens;
+
+  @PostConstruct
+  public void init() {
+    unknownTokens =
+        new NegativeCache(
+            "unknown-access-tokens", maxUnknownTokens, unknownTokenTtlMillis, meterRegistry);
+  }
+
   /**
-   * Gets the user auth information based on the access token.
+   * Gets the user auth information based on the access token. The sessions are partitioned by
+   * login time, so when the token carries the time it was issued at, only the partitions around
+   * that time are searched. Tokens found missing are remembered for {@code
+   * quora.cache.negative.ttl-ms}, so that made-up tokens sent again are rejected without a query;
+   * see {@link NegativeCache}, its metrics are tagged with {@code name=unknown-access-tokens}. A
+   * new token is only forgotten by the node issuing it: another node which looked it up before
+   * the signin committed keeps rejecting it until the ttl expires.
    *
    * @param accessToken access token of the user auth whose details is to be fetched.
-   * @return A single user auth object or null
+   * @return the user auth of the token, empty if the token does not exist.
    */
-  public UserAuthEntity getUserAuthByToken(final String accessToken) {
+  public Optional<UserAuthEntity> getUserAuthByToken(final String accessToken) {
+    return unknownTokens.get(accessToken, this::findUserAuthByToken);
+  }
+
+  private Optional<UserAuthEntity> findUserAuthByToken(final String accessToken) {
+    final ZonedDateTime issuedAt = getIssuedAt(accessToken);
+    if (issuedAt == null) {
+      return Queries.singleResult(
+          entityManager
+              .createNamedQuery("userAuthByAccessToken", UserAuthEntity.class)
+              .setParameter("accessToken", accessToken));
+    }
+    return Queries.singleResult(
+        entityManager
+            .createNamedQuery("userAuthByAccessTokenLoggedInBetween", UserAuthEntity.class)
+            .setParameter("accessToken", accessToken)
+            .setParameter("from", issuedAt.minus(LOGIN_TIME_TOLERANCE))
+            .setParameter("to", issuedAt.plus(LOGIN_TIME_TOLERANCE)));
+  }
+
+  // time the token was issued at, or null if it is not a JWT issued with a plausible time.
+  private static ZonedDateTime getIssuedAt(final String accessToken) {
+    // made-up tokens are seldom shaped as a JWT: spare them the exception of the decoder.
+    final int firstDot = accessToken.indexOf('.');
+    if (firstDot < 0 || accessToken.indexOf('.', firstDot + 1) < 0) {
+      return null;
+    }
+    final Date issuedAt;
     try {
-      return entityManager
-          .createNamedQuery("userAuthByAccessToken", UserAuthEntity.class)
-          .setParameter("accessToken", accessToken)
-          .getSingleResult();
-    } catch (NoResultException nre) {
+      issuedAt = JWT.decode(accessToken).getIssuedAt();
+    } catch (JWTDecodeException e) {
+      return null;
+    }
+    if (issuedAt == null || issuedAt.toInstant().isBefore(EARLIEST_ISSUED_AT)) {
       return null;
     }
+    return ZonedDateTime.ofInstant(issuedAt.toInstant(), ZoneId.systemDefault());
   }
 
   /**
@@ -37,6 +106,7 @@ public class UserAuthDao {
    */
   public UserAuthEntity createAuthToken(final UserAuthEntity userAuthEntity) {
     entityManager.persist(userAuthEntity);
+    unknownTokens.createdOnCommit(userAuthEntity.getAccessToken());
     return userAuthEntity;
   }
 
@@ -48,4 +118,19 @@ public class UserAuthDao {
   public void updateUserAuth(final UserAuthEntity updatedUserAuthEntity) {
     entityManager.merge(updatedUserAuthEntity);
   }
+
+  /**
+   * Delete a batch of the login sessions of a user.
+   *
+   * @param userId id of the user whose sessions are to be deleted.
+   * @param batchSize maximum number of sessions to be deleted.
+   * @return number of deleted sessions.
+   */
+  public int purgeUserAuths(final Integer userId, final int batchSize) {
+    return entityManager
+        .createNamedQuery("purgeUserAuthsOfUser")
+        .setParameter("userId", userId)
+        .setParameter("batchSize", batchSize)
+        .executeUpdate();
+  }
 }
@@ -1,11 +1,15 @@
 package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.snapshot.AuthorSnapshot;
+import com.upgrad.quora.service.snapshot.UserProfile;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public class UserDao {
@@ -16,17 +20,52 @@ public class UserDao {
    * Fetch a single user by given id from the DB.
    *
    * @param userId Id of the user whose information is to be fetched.
-   * @return User details if exist in the DB else null.
+   * @return User details if exist in the DB else empty.
    */
-  public UserEntity getUserById(final String userId) {
-    try {
-      return entityManager
-          .createNamedQuery("userByUserId", UserEntity.class)
-          .setParameter("userId", userId)
-          .getSingleResult();
-    } catch (NoResultException nre) {
-      return null;
-    }
+  public Optional<UserEntity> getUserById(final String userId) {
+    return Queries.singleResult(
+        entityManager
+            .createNamedQuery("userByUserId", UserEntity.class)
+            .setParameter("userId", userId));
+  }
+
+  /**
+   * Fetch the profile of the user with the given id, without the credentials of the user.
+   *
+   * @param userId Id of the user whose profile is to be fetched.
+   * @return Profile of the user if the user exists in the DB else empty.
+   */
+  public Optional<UserProfile> getUserProfile(final String userId) {
+    return Queries.singleResult(
+        entityManager
+            .createNamedQuery("userProfileByUserId", UserProfile.class)
+            .setParameter("userId", userId));
+  }
+
+  /**
+   * Fetch the profiles of the users with the given ids from the DB in a single query.
+   *
+   * @param userIds ids of the users whose profiles are to be fetched.
+   * @return the profiles of the users which exist in the DB, in no particular order.
+   */
+  public List<UserProfile> getUserProfilesByIds(final Collection<String> userIds) {
+    return entityManager
+        .createNamedQuery("userProfilesByUserIds", UserProfile.class)
+        .setParameter("userIds", userIds)
+        .getResultList();
+  }
+
+  /**
+   * Fetch what is shown of the given users next to their posts in a single query.
+   *
+   * @param userIds ids of the users.
+   * @return the users which exist in the DB, in no particular order.
+   */
+  public List<AuthorSnapshot> getAuthorsByIds(final Collection<String> userIds) {
+    return entityManager
+        .createNamedQuery("authorSnapshotsByUserIds", AuthorSnapshot.class)
+        .setParameter("userIds", userIds)
+        .getResultList();
   }
 
   /**
@@ -42,34 +81,53 @@ public class UserDao {
    * This methods gets the user details based on the username passed.
    *
    * @param userName username of the user whose information is to be fetched.
-   * @return null if the user with given username doesn't exist in DB.
+   * @return empty if the user with given username doesn't exist in DB.
    */
-  public UserEntity getUserByUserName(final String userName) {
-    try {
-      return entityManager
-          .createNamedQuery("userByUserName", UserEntity.class)
-          .setParameter("userName", userName)
-          .getSingleResult();
-    } catch (NoResultException nre) {
-      return null;
-    }
+  public Optional<UserEntity> getUserByUserName(final String userName) {
+    return Queries.singleResult(
+        entityManager
+            .createNamedQuery("userByUserName", UserEntity.class)
+            .setParameter("userName", userName));
   }
 
   /**
    * This methods gets the user details based on the email passed.
    *
    * @param email email of the user whose information is to be fetched.
-   * @return null if the user with given email doesn't exist in DB.
+   * @return empty if the user with given email doesn't exist in DB.
    */
-  public UserEntity getUserByEmail(final String email) {
-    try {
-      return entityManager
-          .createNamedQuery("userByEmail", UserEntity.class)
-          .setParameter("email", email)
-          .getSingleResult();
-    } catch (NoResultException nre) {
-      return null;
-    }
+  public Optional<UserEntity> getUserByEmail(final String email) {
+    return Queries.singleResult(
+        entityManager
+            .createNamedQuery("userByEmail", UserEntity.class)
+            .setParameter("email", email));
+  }
+
+  /**
+   * Fetch the id, username and uuid of the users whose id is greater than the given id, in the
+   * order of their ids. Used to page through all the users without loading their full details.
+   *
+   * @param lastId id after which the users are to be fetched.
+   * @param maxResults maximum number of users to be fetched.
+   * @return list of [id, username, uuid] rows.
+   */
+  public List<Object[]> getUserNamesAfter(final Integer lastId, final int maxResults) {
+    return entityManager
+        .createNamedQuery("userNamesAfterId", Object[].class)
+        .setParameter("id", lastId)
+        .setMaxResults(maxResults)
+        .getResultList();
+  }
+
+  /**
+   * Get a reference to the user with the given DB id, to be set as the owner of a new row without
+   * loading the user.
+   *
+   * @param id DB id of the user.
+   * @return reference to the user.
+   */
+  public UserEntity getUserReference(final Integer id) {
+    return entityManager.getReference(UserEntity.class, id);
   }
 
   public void updateUserEntity(final UserEntity updatedUserEntity) {
@@ -77,16 +135,25 @@ public class UserDao {
   }
 
   /**
-   * Delete a user by given id from the DB.
+   * Fetch the users which have been soft-deleted but not purged yet, oldest deletion first.
    *
-   * @param userId Id of the user whose information is to be fetched.
-   * @return User details which is to be deleted if exist in the DB else null.
+   * @return List of deleted users.
+   */
+  public List<UserEntity> getDeletedUsers() {
+    return entityManager.createNamedQuery("deletedUsers", UserEntity.class).getResultList();
+  }
+
+  /**
+   * Delete the row of a soft-deleted user from the DB. The rows referring to the user are expected
+   * to have been purged already.
+   *
+   * @param userId id of the user to be purged.
+   * @return number of deleted rows.
    */
-  public UserEntity deleteUser(final String userId) {
-    UserEntity deleteUser = getUserById(userId);
-    if (deleteUser != null) {
-      this.entityManager.remove(deleteUser);
-    }
-    return deleteUser;
+  public int purgeUser(final Integer userId) {
+    return entityManager
+        .createNamedQuery("purgeDeletedUser")
+        .setParameter("userId", userId)
+        .executeUpdate();
   }
 }
@@ -15,10 +15,69 @@ import java.time.ZonedDateTime;
 @Entity
 @Table(name = "answer")
 @NamedQueries({
-  @NamedQuery(name = "getAnswerById", query = "select a from AnswerEntity a where a.uuid=:uuid"),
   @NamedQuery(
-      name = "getAllAnswersToQuestion",
-      query = "select a from AnswerEntity a where a.questionEntity.uuid = :uuid")
+      name = "getAnswerById",
+      query =
+          "select a from AnswerEntity a where a.uuid=:uuid and a.userEntity.deletedAt is null"
+              + " and a.questionEntity.userEntity.deletedAt is null"),
+  @NamedQuery(
+      name = "countAnswersById",
+      query =
+          "select count(a) from AnswerEntity a where a.uuid=:uuid"
+              + " and a.userEntity.deletedAt is null"
+              + " and a.questionEntity.userEntity.deletedAt is null"),
+  @NamedQuery(
+      name = "answerSnapshotsToQuestion",
+      query =
+          "select new com.upgrad.quora.service.snapshot.AnswerSnapshot("
+              + "a.uuid, a.answer, a.questionEntity.content)"
+              + " from AnswerEntity a where a.questionEntity.uuid = :uuid"
+              + " and a.date >= :since and a.userEntity.deletedAt is null"),
+  @NamedQuery(
+      name = "answerThreadSnapshotsToQuestion",
+      query =
+          "select new com.upgrad.quora.service.snapshot.AnswerSnapshot("
+              + "a.uuid, a.answer, a.userEntity.uuid, a.date)"
+              + " from AnswerEntity a where a.questionEntity.uuid = :uuid"
+              + " and a.date >= :since and a.userEntity.deletedAt is null order by a.date, a.id")
+})
+@NamedNativeQueries({
+  @NamedNativeQuery(
+      name = "updateOwnAnswerContent",
+      query =
+          "update answer set ans = :answer where uuid = :uuid and user_id = :userId"
+              + " and exists (select 1 from question q join users u on u.id = q.user_id"
+              + " where q.id = answer.question_id and u.deleted_at is null)"
+              + " returning question_id, (select uuid from question where id = question_id)"),
+  @NamedNativeQuery(
+      name = "deleteAnswerIfAllowed",
+      query =
+          "delete from answer where uuid = :uuid and (user_id = :userId or :admin)"
+              + " and exists (select 1 from users u where u.id = answer.user_id"
+              + " and u.deleted_at is null)"
+              + " and exists (select 1 from question q join users u on u.id = q.user_id"
+              + " where q.id = answer.question_id and u.deleted_at is null)"
+              + " returning question_id, (select uuid from question where id = question_id)"),
+  @NamedNativeQuery(
+      name = "purgeAnswersOfUser",
+      query =
+          "with deleted as (delete from answer where id in"
+              + " (select id from answer where user_id = :userId limit :batchSize)"
+              + " returning id, question_id),"
+              + " answered as (update question set"
+              + " answer_count = greatest(question.answer_count - d.answers, 0),"
+              + " last_activity_at = coalesce((select max(a.date) from answer a"
+              + " where a.question_id = question.id and a.id not in (select id from deleted)),"
+              + " question.date)"
+              + " from (select question_id, count(*) as answers from deleted group by question_id) d"
+              + " where question.id = d.question_id returning question.id, question.uuid)"
+              + " select q.uuid from deleted d join answered q on q.id = d.question_id"),
+  @NamedNativeQuery(
+      name = "purgeAnswersToQuestionsOfUser",
+      query =
+          "delete from answer where id in (select a.id from answer a"
+              + " join question q on q.id = a.question_id where q.user_id = :userId"
+              + " limit :batchSize)")
 })
 public class AnswerEntity {
   @Id
@@ -11,17 +11,105 @@ import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
 @Table(name = "question")
 @NamedQueries({
-  @NamedQuery(name = "getAllQuestions", query = "select q from QuestionEntity q"),
+  @NamedQuery(
+      name = "questionSnapshots",
+      query =
+          "select new com.upgrad.quora.service.snapshot.QuestionSnapshot("
+              + "q.uuid, q.content, q.answerCount, q.lastActivityAt)"
+              + " from QuestionEntity q where q.userEntity.deletedAt is null"),
+  @NamedQuery(
+      name = "questionThreadSnapshot",
+      query =
+          "select new com.upgrad.quora.service.snapshot.QuestionSnapshot("
+              + "q.uuid, q.content, q.answerCount, q.lastActivityAt, q.userEntity.uuid, q.date)"
+              + " from QuestionEntity q where q.uuid = :uuid and q.userEntity.deletedAt is null"),
+  @NamedQuery(
+      name = "questionDetails",
+      query =
+          "select new com.upgrad.quora.service.snapshot.QuestionDetails("
+              + "q.id, q.uuid, q.content, q.userEntity.uuid, q.date)"
+              + " from QuestionEntity q where q.uuid = :uuid and q.userEntity.deletedAt is null"),
+  @NamedQuery(
+      name = "questionSnapshotsByUuids",
+      query =
+          "select new com.upgrad.quora.service.snapshot.QuestionSnapshot("
+              + "q.uuid, q.content, q.answerCount, q.lastActivityAt)"
+              + " from QuestionEntity q where q.uuid in :uuids and q.userEntity.deletedAt is null"),
   @NamedQuery(
       name = "getQuestionById",
-      query = "select q from QuestionEntity q where q.uuid=:uuid"),
+      query =
+          "select q from QuestionEntity q where q.uuid=:uuid and q.userEntity.deletedAt is null"),
+  @NamedQuery(
+      name = "questionSnapshotsByUser",
+      query =
+          "select new com.upgrad.quora.service.snapshot.QuestionSnapshot("
+              + "q.uuid, q.content, q.answerCount, q.lastActivityAt)"
+              + " from QuestionEntity q where q.userEntity.uuid = :userUuid"
+              + " and q.userEntity.deletedAt is null"),
+  @NamedQuery(
+      name = "questionContentsAfterId",
+      query =
+          "select q.id, q.uuid, q.content from QuestionEntity q where q.id > :id"
+              + " and q.userEntity.deletedAt is null order by q.id"),
+  @NamedQuery(
+      name = "questionIdByUuid",
+      query =
+          "select q.id from QuestionEntity q where q.uuid=:uuid"
+              + " and q.userEntity.deletedAt is null"),
   @NamedQuery(
-      name = "getQuestionByUser",
-      query = "select q from QuestionEntity q where q.userEntity=:user")
+      name = "countQuestionsById",
+      query =
+          "select count(q) from QuestionEntity q where q.uuid=:uuid"
+              + " and q.userEntity.deletedAt is null"),
+  @NamedQuery(
+      name = "questionUuidsByUser",
+      query = "select q.uuid from QuestionEntity q where q.userEntity=:user")
+})
+@NamedNativeQueries({
+  @NamedNativeQuery(
+      name = "purgeQuestionsOfUser",
+      query =
+          "delete from question where id in"
+              + " (select id from question where user_id = :userId limit :batchSize)"),
+  @NamedNativeQuery(
+      name = "updateOwnQuestionContent",
+      query =
+          "update question set content = :content where uuid = :uuid and user_id = :userId"
+              + " returning id"),
+  @NamedNativeQuery(
+      name = "deleteQuestionIfAllowed",
+      query =
+          "delete from question where uuid = :uuid and (user_id = :userId or :admin)"
+              + " and exists (select 1 from users u where u.id = question.user_id"
+              + " and u.deleted_at is null) returning id"),
+  @NamedNativeQuery(
+      name = "incrementAnswerCount",
+      query =
+          "update question set answer_count = answer_count + 1,"
+              + " last_activity_at = greatest(last_activity_at, :activityAt) where id = :questionId"),
+  @NamedNativeQuery(
+      name = "decrementAnswerCount",
+      query =
+          "update question set answer_count = greatest(answer_count - 1, 0),"
+              + " last_activity_at = coalesce((select max(a.date) from answer a"
+              + " where a.question_id = question.id), question.date) where id = :questionId"),
+  @NamedNativeQuery(
+      name = "reconcileAnswerStats",
+      query =
+          "update question set answer_count = s.answer_count, last_activity_at = s.last_activity_at"
+              + " from (select q.id, count(a.id) as answer_count,"
+              + " coalesce(max(a.date), q.date) as last_activity_at"
+              + " from question q left join answer a on a.question_id = q.id"
+              + " where q.id > :fromId and q.id <= :toId group by q.id) s"
+              + " where question.id = s.id and (question.answer_count <> s.answer_count"
+              + " or question.last_activity_at is distinct from s.last_activity_at)"),
+  @NamedNativeQuery(name = "maxQuestionId", query = "select coalesce(max(id), 0) from question")
 })
 public class QuestionEntity {
 
@@ -44,11 +132,23 @@ public class QuestionEntity {
   @NotNull
   private ZonedDateTime date;
 
+  // The answer stats are only ever changed through atomic updates in the DB, never by merging the
+  // entity, so that concurrent answers to the same question cannot overwrite each other's updates.
+  @Column(name = "answer_count", updatable = false)
+  @NotNull
+  private Integer answerCount = 0;
+
+  @Column(name = "last_activity_at", updatable = false)
+  private ZonedDateTime lastActivityAt;
+
   @ManyToOne
   @OnDelete(action = OnDeleteAction.CASCADE)
   @JoinColumn(name = "user_id")
   private UserEntity userEntity;
 
+  // uuids of the existing questions found to be near-duplicates of this one when it was created.
+  @Transient private List<String> similarQuestionUuids = new ArrayList<>();
+
   public Integer getId() {
     return id;
   }
@@ -81,6 +181,22 @@ public class QuestionEntity {
     this.date = date;
   }
 
+  public Integer getAnswerCount() {
+    return answerCount;
+  }
+
+  public void setAnswerCount(Integer answerCount) {
+    this.answerCount = answerCount;
+  }
+
+  public ZonedDateTime getLastActivityAt() {
+    return lastActivityAt;
+  }
+
+  public void setLastActivityAt(ZonedDateTime lastActivityAt) {
+    this.lastActivityAt = lastActivityAt;
+  }
+
   public UserEntity getUserEntity() {
     return userEntity;
   }
@@ -89,6 +205,14 @@ public class QuestionEntity {
     this.userEntity = userEntity;
   }
 
+  public List<String> getSimilarQuestionUuids() {
+    return similarQuestionUuids;
+  }
+
+  public void setSimilarQuestionUuids(List<String> similarQuestionUuids) {
+    this.similarQuestionUuids = similarQuestionUuids;
+  }
+
   @Override
   public boolean equals(Object obj) {
     return new EqualsBuilder().append(this, obj).isEquals();
@@ -17,14 +17,28 @@ import java.time.ZonedDateTime;
 @NamedQueries({
   @NamedQuery(
       name = "userAuthByAccessToken",
-      query = "select u from UserAuthEntity u where u.accessToken=:accessToken")
+      query =
+          "select u from UserAuthEntity u join fetch u.userEntity where u.accessToken=:accessToken"
+              + " and u.userEntity.deletedAt is null"),
+  @NamedQuery(
+      name = "userAuthByAccessTokenLoggedInBetween",
+      query =
+          "select u from UserAuthEntity u join fetch u.userEntity where u.accessToken=:accessToken"
+              + " and u.loginAt between :from and :to and u.userEntity.deletedAt is null")
+})
+@NamedNativeQueries({
+  @NamedNativeQuery(
+      name = "purgeUserAuthsOfUser",
+      query =
+          "delete from user_auth where id in"
+              + " (select id from user_auth where user_id = :userId limit :batchSize)")
 })
 public class UserAuthEntity {
 
   @Id
   @Column(name = "id")
   @GeneratedValue(strategy = GenerationType.IDENTITY)
-  private Integer id;
+  private Long id;
 
   @Column(name = "uuid")
   @NotNull
@@ -52,11 +66,11 @@ public class UserAuthEntity {
   @Column(name = "logout_at")
   private ZonedDateTime logoutAt;
 
-  public Integer getId() {
+  public Long getId() {
     return id;
   }
 
-  public void setId(Integer id) {
+  public void setId(Long id) {
     this.id = id;
   }
 
@@ -9,15 +9,50 @@ import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
+import java.time.ZonedDateTime;
 
 @Entity
 @Table(name = "users")
 @NamedQueries({
+  // Looked up for the uniqueness checks of signup, so soft-deleted users are included here.
   @NamedQuery(
       name = "userByUserName",
       query = "select u from UserEntity u where u.userName=:userName"),
   @NamedQuery(name = "userByEmail", query = "select u from UserEntity u where u.email=:email"),
-  @NamedQuery(name = "userByUserId", query = "select u from UserEntity u where u.uuid=:userId")
+  @NamedQuery(
+      name = "userByUserId",
+      query = "select u from UserEntity u where u.uuid=:userId and u.deletedAt is null"),
+  @NamedQuery(
+      name = "authorSnapshotsByUserIds",
+      query =
+          "select new com.upgrad.quora.service.snapshot.AuthorSnapshot("
+              + "u.uuid, u.userName, u.firstName, u.lastName)"
+              + " from UserEntity u where u.uuid in :userIds and u.deletedAt is null"),
+  @NamedQuery(
+      name = "userProfileByUserId",
+      query =
+          "select new com.upgrad.quora.service.snapshot.UserProfile(u.uuid, u.firstName,"
+              + " u.lastName, u.userName, u.email, u.country, u.aboutMe, u.dob, u.contactNumber)"
+              + " from UserEntity u where u.uuid = :userId and u.deletedAt is null"),
+  @NamedQuery(
+      name = "userProfilesByUserIds",
+      query =
+          "select new com.upgrad.quora.service.snapshot.UserProfile(u.uuid, u.firstName,"
+              + " u.lastName, u.userName, u.email, u.country, u.aboutMe, u.dob, u.contactNumber)"
+              + " from UserEntity u where u.uuid in :userIds and u.deletedAt is null"),
+  @NamedQuery(
+      name = "userNamesAfterId",
+      query =
+          "select u.id, u.userName, u.uuid from UserEntity u where u.id > :id and u.deletedAt is null"
+              + " order by u.id"),
+  @NamedQuery(
+      name = "deletedUsers",
+      query = "select u from UserEntity u where u.deletedAt is not null order by u.deletedAt")
+})
+@NamedNativeQueries({
+  @NamedNativeQuery(
+      name = "purgeDeletedUser",
+      query = "delete from users where id = :userId and deleted_at is not null")
 })
 public class UserEntity implements Serializable {
 
@@ -83,6 +118,9 @@ public class UserEntity implements Serializable {
   @Size(max = 30)
   private String contactNumber;
 
+  @Column(name = "deleted_at")
+  private ZonedDateTime deletedAt;
+
   public Integer getId() {
     return id;
   }
@@ -187,6 +225,14 @@ public class UserEntity implements Serializable {
     this.contactNumber = contactNumber;
   }
 
+  public ZonedDateTime getDeletedAt() {
+    return deletedAt;
+  }
+
+  public void setDeletedAt(ZonedDateTime deletedAt) {
+    this.deletedAt = deletedAt;
+  }
+
   @Override
   public boolean equals(Object obj) {
     return new EqualsBuilder().append(this, obj).isEquals();
@@ -9,6 +9,7 @@ public class AuthenticationFailedException extends Exception {
   private final String errorMessage;
 
   public AuthenticationFailedException(final String code, final String errorMessage) {
+    super(null, null, false, false);
     this.code = code;
     this.errorMessage = errorMessage;
   }
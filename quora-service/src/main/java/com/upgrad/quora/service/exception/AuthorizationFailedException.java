@@ -3,12 +3,22 @@ package com.upgrad.quora.service.exception;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 
-/** AuthorizationFailedException is thrown when user is not authorized to access that endpoint. */
+/**
+ * AuthorizationFailedException is thrown when user is not authorized to access that endpoint. Like
+ * the other business exceptions it carries no stack trace, as it is an answer to the client rather
+ * than a fault; the one thrown for unknown access tokens, the most frequent, is created only once.
+ */
 public class AuthorizationFailedException extends Exception {
+
+  /** ATHR-001, thrown when the access token does not exist. */
+  public static final AuthorizationFailedException NOT_SIGNED_IN =
+      new AuthorizationFailedException("ATHR-001", "User has not signed in");
+
   private final String code;
   private final String errorMessage;
 
   public AuthorizationFailedException(final String code, final String errorMessage) {
+    super(null, null, false, false);
     this.code = code;
     this.errorMessage = errorMessage;
   }
@@ -9,6 +9,7 @@ public class InvalidQuestionException extends Exception {
   private final String errorMessage;
 
   public InvalidQuestionException(final String code, final String errorMessage) {
+    super(null, null, false, false);
     this.code = code;
     this.errorMessage = errorMessage;
   }
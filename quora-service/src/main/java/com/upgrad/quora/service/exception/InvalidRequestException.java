@@ -0,0 +1,39 @@
+package com.upgrad.quora.service.exception;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+/** InvalidRequestException is thrown when the parameters of a request are not acceptable. */
+public class InvalidRequestException extends Exception {
+  private final String code;
+  private final String errorMessage;
+
+  public InvalidRequestException(final String code, final String errorMessage) {
+    super(null, null, false, false);
+    this.code = code;
+    this.errorMessage = errorMessage;
+  }
+
+  @Override
+  public void printStackTrace() {
+    super.printStackTrace();
+  }
+
+  @Override
+  public void printStackTrace(PrintStream s) {
+    super.printStackTrace(s);
+  }
+
+  @Override
+  public void printStackTrace(PrintWriter s) {
+    super.printStackTrace(s);
+  }
+
+  public String getCode() {
+    return code;
+  }
+
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+}
@@ -12,6 +12,7 @@ public class SignOutRestrictedException extends Exception {
   private final String errorMessage;
 
   public SignOutRestrictedException(final String code, final String errorMessage) {
+    super(null, null, false, false);
     this.code = code;
     this.errorMessage = errorMessage;
   }
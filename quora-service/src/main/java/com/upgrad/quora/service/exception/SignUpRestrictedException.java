@@ -12,6 +12,7 @@ public class SignUpRestrictedException extends Exception {
   private final String errorMessage;
 
   public SignUpRestrictedException(final String code, final String errorMessage) {
+    super(null, null, false, false);
     this.code = code;
     this.errorMessage = errorMessage;
   }
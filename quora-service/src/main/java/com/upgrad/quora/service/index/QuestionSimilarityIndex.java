@@ -0,0 +1,231 @@
+package com.upgrad.quora.service.index;
+
+import com.upgrad.quora.service.dao.QuestionDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory locality-sensitive hashing index used to spot near-duplicate questions.
+ *
+ * <p>Every question is reduced to a 64 bit SimHash fingerprint of its words and word pairs, so that
+ * questions worded almost the same way get fingerprints that differ in only a few bits. The
+ * fingerprint is split into {@value #BANDS} bands of 16 bits and the question is bucketed under each
+ * band. Two fingerprints within {@value #MAX_DISTANCE} bits of each other are bound to agree on at
+ * least one band, so a lookup only compares against the questions sharing a bucket with the new
+ * content instead of scanning every question.
+ */
+@Component
+public class QuestionSimilarityIndex {
+
+  private static final int BANDS = 4;
+
+  private static final int BAND_BITS = 64 / BANDS;
+
+  private static final int MAX_DISTANCE = 3;
+
+  private static final int LOAD_BATCH_SIZE = 10000;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  // question uuid -> fingerprint of its content.
+  private final Map<String, Long> fingerprints = new ConcurrentHashMap<>();
+
+  // one map per band: band value -> uuids of the questions having that value in the band.
+  private final List<Map<Integer, Set<String>>> buckets = new ArrayList<>(BANDS);
+
+  @Autowired private QuestionDao questionDao;
+
+  public QuestionSimilarityIndex() {
+    for (int band = 0; band < BANDS; band++) {
+      buckets.add(new ConcurrentHashMap<>());
+    }
+  }
+
+  /** Loads every question from the DB in batches, replacing the current content of the index. */
+  @PostConstruct
+  public void rebuild() {
+    for (String uuid : new ArrayList<>(fingerprints.keySet())) {
+      remove(uuid);
+    }
+    Integer lastId = 0;
+    List<Object[]> batch;
+    do {
+      batch = questionDao.getQuestionContentsAfter(lastId, LOAD_BATCH_SIZE);
+      for (Object[] row : batch) {
+        lastId = (Integer) row[0];
+        put((String) row[1], (String) row[2]);
+      }
+    } while (batch.size() == LOAD_BATCH_SIZE);
+  }
+
+  /**
+   * Adds a question to the index, or re-indexes it if its content has been edited.
+   *
+   * @param uuid uuid of the question.
+   * @param content content of the question.
+   */
+  public void put(final String uuid, final String content) {
+    final Long fingerprint = fingerprint(content);
+    fingerprints.compute(
+        uuid,
+        (key, previous) -> {
+          if (previous != null) {
+            unbucket(key, previous);
+          }
+          if (fingerprint == null) {
+            return null;
+          }
+          for (int band = 0; band < BANDS; band++) {
+            buckets
+                .get(band)
+                .compute(
+                    band(fingerprint, band),
+                    (value, bucket) -> {
+                      Set<String> updated =
+                          bucket == null ? ConcurrentHashMap.<String>newKeySet() : bucket;
+                      updated.add(key);
+                      return updated;
+                    });
+          }
+          return fingerprint;
+        });
+  }
+
+  /**
+   * Removes a question from the index.
+   *
+   * @param uuid uuid of the question to be removed.
+   */
+  public void remove(final String uuid) {
+    fingerprints.computeIfPresent(
+        uuid,
+        (key, previous) -> {
+          unbucket(key, previous);
+          return null;
+        });
+  }
+
+  /**
+   * Gets the indexed questions whose content is nearly the same as the given content.
+   *
+   * @param content content to be compared against the indexed questions.
+   * @param limit maximum number of questions to be returned.
+   * @return uuids of the similar questions, closest first.
+   */
+  public List<String> findSimilar(final String content, final int limit) {
+    final Long fingerprint = fingerprint(content);
+    List<String> similar = new ArrayList<>();
+    if (fingerprint == null || limit <= 0) {
+      return similar;
+    }
+    Set<String> candidates = new HashSet<>();
+    for (int band = 0; band < BANDS; band++) {
+      Set<String> bucket = buckets.get(band).get(band(fingerprint, band));
+      if (bucket != null) {
+        candidates.addAll(bucket);
+      }
+    }
+    final Map<String, Integer> distances = new HashMap<>();
+    for (String candidate : candidates) {
+      Long candidateFingerprint = fingerprints.get(candidate);
+      if (candidateFingerprint != null) {
+        int distance = Long.bitCount(candidateFingerprint ^ fingerprint);
+        if (distance <= MAX_DISTANCE) {
+          distances.put(candidate, distance);
+          similar.add(candidate);
+        }
+      }
+    }
+    similar.sort((first, second) -> distances.get(first) - distances.get(second));
+    return similar.size() > limit ? new ArrayList<>(similar.subList(0, limit)) : similar;
+  }
+
+  private void unbucket(final String uuid, final long fingerprint) {
+    for (int band = 0; band < BANDS; band++) {
+      buckets
+          .get(band)
+          .computeIfPresent(
+              band(fingerprint, band),
+              (value, bucket) -> {
+                bucket.remove(uuid);
+                return bucket.isEmpty() ? null : bucket;
+              });
+    }
+  }
+
+  private static int band(final long fingerprint, final int band) {
+    return (int) ((fingerprint >>> (band * BAND_BITS)) & ((1L << BAND_BITS) - 1));
+  }
+
+  /**
+   * Computes the SimHash of the given content using its lower cased words and adjacent word pairs
+   * as features.
+   *
+   * @return fingerprint of the content or null if the content has no words.
+   */
+  static Long fingerprint(final String content) {
+    if (content == null) {
+      return null;
+    }
+    String[] words = content.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+    int[] weights = new int[64];
+    int features = 0;
+    String previous = null;
+    for (String word : words) {
+      if (word.isEmpty()) {
+        continue;
+      }
+      addFeature(weights, word);
+      features++;
+      if (previous != null) {
+        addFeature(weights, previous + ' ' + word);
+        features++;
+      }
+      previous = word;
+    }
+    if (features == 0) {
+      return null;
+    }
+    long fingerprint = 0;
+    for (int bit = 0; bit < 64; bit++) {
+      if (weights[bit] > 0) {
+        fingerprint |= 1L << bit;
+      }
+    }
+    return fingerprint;
+  }
+
+  private static void addFeature(final int[] weights, final String feature) {
+    long hash = hash(feature);
+    for (int bit = 0; bit < 64; bit++) {
+      weights[bit] += ((hash >>> bit) & 1L) == 1L ? 1 : -1;
+    }
+  }
+
+  // 64 bit FNV-1a followed by a final avalanche so that short features spread over all the bits.
+  private static long hash(final String feature) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < feature.length(); i++) {
+      hash ^= feature.charAt(i);
+      hash *= FNV_PRIME;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,84 @@
+package com.upgrad.quora.service.index;
+
+import com.upgrad.quora.service.dao.UserDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory ordered index of usernames used to serve prefix suggestions without hitting the DB.
+ * Only the username and uuid of every user are kept, so the footprint grows with the number of
+ * users and not with the size of their profiles. A prefix lookup is a single O(log n) seek followed
+ * by a walk over at most {@code limit} matching entries.
+ */
+@Component
+public class UserNameIndex {
+
+  private static final int LOAD_BATCH_SIZE = 10000;
+
+  // username -> uuid, kept in natural (lexicographic) order of the username.
+  private final ConcurrentNavigableMap<String, String> userNames = new ConcurrentSkipListMap<>();
+
+  @Autowired private UserDao userDao;
+
+  /** Loads every username from the DB in batches, replacing the current content of the index. */
+  @PostConstruct
+  public void rebuild() {
+    userNames.clear();
+    Integer lastId = 0;
+    List<Object[]> batch;
+    do {
+      batch = userDao.getUserNamesAfter(lastId, LOAD_BATCH_SIZE);
+      for (Object[] row : batch) {
+        lastId = (Integer) row[0];
+        userNames.put((String) row[1], (String) row[2]);
+      }
+    } while (batch.size() == LOAD_BATCH_SIZE);
+  }
+
+  /**
+   * Adds a user to the index.
+   *
+   * @param userName username of the user.
+   * @param uuid uuid of the user.
+   */
+  public void add(final String userName, final String uuid) {
+    userNames.put(userName, uuid);
+  }
+
+  /**
+   * Removes a user from the index.
+   *
+   * @param userName username of the user to be removed.
+   */
+  public void remove(final String userName) {
+    userNames.remove(userName);
+  }
+
+  /**
+   * Gets the usernames starting with the given prefix in lexicographic order.
+   *
+   * @param prefix prefix the usernames should start with.
+   * @param limit maximum number of usernames to be returned.
+   * @return map of username to uuid of the matching users.
+   */
+  public Map<String, String> suggest(final String prefix, final int limit) {
+    Map<String, String> suggestions = new LinkedHashMap<>();
+    if (prefix == null || prefix.isEmpty() || limit <= 0) {
+      return suggestions;
+    }
+    for (Map.Entry<String, String> entry : userNames.tailMap(prefix, true).entrySet()) {
+      if (!entry.getKey().startsWith(prefix) || suggestions.size() == limit) {
+        break;
+      }
+      suggestions.put(entry.getKey(), entry.getValue());
+    }
+    return suggestions;
+  }
+}
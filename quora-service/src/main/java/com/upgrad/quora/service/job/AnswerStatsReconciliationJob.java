@@ -0,0 +1,67 @@
+package com.upgrad.quora.service.job;
+
+import com.upgrad.quora.service.common.ContentVersions;
+import com.upgrad.quora.service.dao.QuestionDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Background job repairing the answer count and last activity stored on the questions.
+ *
+ * <p>Those columns are maintained incrementally by the answer service, but rows removed outside of
+ * it, like the answers purged along with a deleted user, leave them behind. The job walks the
+ * questions in id ranges of {@code batch-size}, each range in its own short transaction, recomputes
+ * the stats from the answers and only writes the questions that have drifted.
+ */
+@Component
+public class AnswerStatsReconciliationJob {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnswerStatsReconciliationJob.class);
+
+  @Autowired private QuestionDao questionDao;
+
+  @Autowired private ContentVersions contentVersions;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Value("${quora.answer-stats.batch-size:1000}")
+  private int batchSize;
+
+  private TransactionTemplate transactionTemplate;
+
+  @PostConstruct
+  public void init() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * Reconciles the answer stats of every question.
+   *
+   * @return number of repaired questions.
+   */
+  @Scheduled(
+      fixedDelayString = "${quora.answer-stats.interval-ms:3600000}",
+      initialDelayString = "${quora.answer-stats.initial-delay-ms:60000}")
+  public int reconcile() {
+    final Integer maxId = transactionTemplate.execute(status -> questionDao.getMaxQuestionId());
+    int repaired = 0;
+    for (int fromId = 0; fromId < maxId; fromId += batchSize) {
+      final int from = fromId;
+      final int to = Math.min(fromId + batchSize, maxId);
+      repaired += transactionTemplate.execute(status -> questionDao.reconcileAnswerStats(from, to));
+    }
+    if (repaired > 0) {
+      contentVersions.questionsChanged();
+      LOG.info("Repaired the answer stats of {} questions", repaired);
+    }
+    return repaired;
+  }
+}
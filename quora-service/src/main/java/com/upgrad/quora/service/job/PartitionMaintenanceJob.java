@@ -0,0 +1,96 @@
+package com.upgrad.quora.service.job;
+
+import com.upgrad.quora.service.dao.PartitionDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Background job maintaining the monthly partitions of the answer and user_auth tables.
+ *
+ * <p>The partitions of the current month and of the next {@code months-ahead} months are created
+ * on startup and then daily, so that new rows never land in the default partition. Partitions older
+ * than the retention of the table are detached and moved to the archive schema; a retention of 0
+ * keeps every partition attached. Each partition is created or archived in its own transaction, and
+ * a failure, e.g. because another instance did the same concurrently, is only logged and retried on
+ * the next run.
+ */
+@Component
+public class PartitionMaintenanceJob {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PartitionMaintenanceJob.class);
+
+  @Autowired private PartitionDao partitionDao;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Value("${quora.partitions.months-ahead:3}")
+  private int monthsAhead;
+
+  @Value("${quora.partitions.answer-retention-months:0}")
+  private int answerRetentionMonths;
+
+  @Value("${quora.partitions.user-auth-retention-months:12}")
+  private int userAuthRetentionMonths;
+
+  private TransactionTemplate transactionTemplate;
+
+  @PostConstruct
+  public void init() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    maintainPartitions();
+  }
+
+  /** Creates the upcoming partitions and archives the expired ones of every partitioned table. */
+  @Scheduled(cron = "${quora.partitions.cron:0 0 3 * * *}")
+  public void maintainPartitions() {
+    maintain("answer", "date", answerRetentionMonths);
+    maintain("user_auth", "login_at", userAuthRetentionMonths);
+  }
+
+  private void maintain(final String table, final String column, final int retentionMonths) {
+    final YearMonth now = YearMonth.now();
+    final List<String> partitions =
+        transactionTemplate.execute(status -> partitionDao.getPartitions(table));
+    for (int ahead = 0; ahead <= monthsAhead; ahead++) {
+      final YearMonth month = now.plusMonths(ahead);
+      if (!partitions.contains(PartitionDao.partitionName(table, month))) {
+        run(
+            "create partition " + PartitionDao.partitionName(table, month),
+            () -> partitionDao.createPartition(table, column, month));
+      }
+    }
+    if (retentionMonths <= 0) {
+      return;
+    }
+    final YearMonth oldestKept = now.minusMonths(retentionMonths);
+    for (String partition : partitions) {
+      YearMonth month = PartitionDao.partitionMonth(table, partition);
+      if (month != null && month.isBefore(oldestKept)) {
+        run("archive partition " + partition, () -> partitionDao.archivePartition(table, partition));
+      }
+    }
+  }
+
+  private void run(final String action, final Runnable ddl) {
+    try {
+      transactionTemplate.execute(
+          status -> {
+            ddl.run();
+            return null;
+          });
+      LOG.info("Partition maintenance: {}", action);
+    } catch (RuntimeException e) {
+      LOG.warn("Partition maintenance: could not {}", action, e);
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package com.upgrad.quora.service.job;
+
+import com.upgrad.quora.service.common.ContentVersions;
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dao.UserAuthDao;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background job removing the rows of soft-deleted users.
+ *
+ * <p>Deleting a user with a lot of content in one transaction holds locks on every affected row
+ * until it commits. Instead, the rows are deleted in batches of at most {@code batch-size} rows,
+ * each batch in its own short transaction, with a pause between batches so that regular traffic
+ * gets the DB in between. The dependent rows are deleted before the rows they refer to, and the
+ * user row goes last. As the remaining rows are the only state of the job, a purge interrupted by a
+ * restart simply carries on where it stopped on the next run.
+ *
+ * <p>The answers of a soft-deleted user are hidden at once but stay counted in the answer count and
+ * last activity of their questions until they are purged: every batch takes its answers off their
+ * questions in the statement deleting them, and marks the list of questions as changed.
+ *
+ * <p>Progress is reported in the {@code user.purge.pending} metric, the number of deleted users the
+ * running purge has yet to remove, {@code user.purge.progress}, the rows of the users being purged
+ * removed so far, and {@code user.purge.rows}, counting every row removed.
+ */
+@Component
+public class UserPurgeJob {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UserPurgeJob.class);
+
+  @Autowired private UserDao userDao;
+
+  @Autowired private UserAuthDao userAuthDao;
+
+  @Autowired private QuestionDao questionDao;
+
+  @Autowired private AnswerDao answerDao;
+
+  @Autowired private ContentVersions contentVersions;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Value("${quora.purge.enabled:true}")
+  private boolean enabled;
+
+  @Value("${quora.purge.batch-size:500}")
+  private int batchSize;
+
+  @Value("${quora.purge.pause-ms:100}")
+  private long pauseMillis;
+
+  private TransactionTemplate transactionTemplate;
+
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  // uuid of the user being purged -> number of rows deleted so far.
+  private final Map<String, Long> progress = new ConcurrentHashMap<>();
+
+  // deleted users the running purge has yet to remove, the one being purged included.
+  private final AtomicInteger pendingUsers = new AtomicInteger();
+
+  private Counter purgedRows;
+
+  @PostConstruct
+  public void init() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    purgedRows = meterRegistry.counter("user.purge.rows");
+    meterRegistry.gauge("user.purge.pending", pendingUsers);
+    meterRegistry.gauge(
+        "user.purge.progress",
+        this,
+        job -> job.getProgress().values().stream().mapToLong(Long::longValue).sum());
+  }
+
+  /**
+   * Runs the purge every {@code quora.purge.interval-ms}, unless {@code quora.purge.enabled} is
+   * false.
+   */
+  @Scheduled(
+      fixedDelayString = "${quora.purge.interval-ms:60000}",
+      initialDelayString = "${quora.purge.initial-delay-ms:60000}")
+  public void scheduledPurge() {
+    if (enabled) {
+      purgeDeletedUsers();
+    }
+  }
+
+  /** Purges every soft-deleted user, oldest deletion first. */
+  public void purgeDeletedUsers() {
+    if (!running.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      List<UserEntity> deletedUsers =
+          transactionTemplate.execute(status -> userDao.getDeletedUsers());
+      pendingUsers.set(deletedUsers.size());
+      for (UserEntity user : deletedUsers) {
+        purgeUser(user);
+        pendingUsers.decrementAndGet();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      pendingUsers.set(0);
+      running.set(false);
+    }
+  }
+
+  /**
+   * Gets the progress of the purges currently running.
+   *
+   * @return map of the uuid of the user being purged to the number of rows deleted so far.
+   */
+  public Map<String, Long> getProgress() {
+    return Collections.unmodifiableMap(new HashMap<>(progress));
+  }
+
+  private void purgeUser(final UserEntity user) throws InterruptedException {
+    final Integer userId = user.getId();
+    progress.put(user.getUuid(), 0L);
+    try {
+      purgeInBatches(user, "answers", this::purgeAnswers);
+      purgeInBatches(user, "answers to questions", answerDao::purgeAnswersToQuestionsOfUser);
+      purgeInBatches(user, "questions", questionDao::purgeQuestions);
+      purgeInBatches(user, "sessions", userAuthDao::purgeUserAuths);
+      transactionTemplate.execute(status -> userDao.purgeUser(userId));
+      purgedRows.increment();
+      LOG.info("Purged user {} ({} rows)", user.getUuid(), progress.get(user.getUuid()) + 1);
+    } finally {
+      progress.remove(user.getUuid());
+    }
+  }
+
+  private int purgeAnswers(final Integer userId, final int batchSize) {
+    final List<String> answeredQuestions = answerDao.purgeAnswersByUser(userId, batchSize);
+    if (!answeredQuestions.isEmpty()) {
+      // The answers were already hidden from their lists, but not from the counts of the questions.
+      contentVersions.questionsChanged();
+    }
+    return answeredQuestions.size();
+  }
+
+  private void purgeInBatches(final UserEntity user, final String rows, final BatchPurge batchPurge)
+      throws InterruptedException {
+    final Integer userId = user.getId();
+    int deleted;
+    do {
+      deleted = transactionTemplate.execute(status -> batchPurge.purge(userId, batchSize));
+      if (deleted > 0) {
+        purgedRows.increment(deleted);
+        long total = progress.merge(user.getUuid(), (long) deleted, Long::sum);
+        LOG.debug("Purged {} {} of user {}, {} rows so far", deleted, rows, user.getUuid(), total);
+        Thread.sleep(pauseMillis);
+      }
+    } while (deleted == batchSize);
+  }
+
+  /** Deletes at most {@code batchSize} rows belonging to the given user. */
+  @FunctionalInterface
+  private interface BatchPurge {
+    int purge(Integer userId, int batchSize);
+  }
+}
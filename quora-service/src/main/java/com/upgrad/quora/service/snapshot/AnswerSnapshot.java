@@ -0,0 +1,65 @@
+package com.upgrad.quora.service.snapshot;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Immutable read-only view of an answer, holding only what is shown when listing the answers to a
+ * question. Being a plain value rather than a managed entity, it is never tracked by the persistence
+ * context and can be shared between threads. The author and the time the answer was posted are
+ * only filled in when the answer is read for the thread of its question, and the question content
+ * only when it is not.
+ */
+public final class AnswerSnapshot {
+
+  private final String uuid;
+
+  private final String answer;
+
+  private final String questionContent;
+
+  private final String authorUuid;
+
+  private final ZonedDateTime date;
+
+  public AnswerSnapshot(final String uuid, final String answer, final String questionContent) {
+    this(uuid, answer, questionContent, null, null);
+  }
+
+  public AnswerSnapshot(
+      final String uuid, final String answer, final String authorUuid, final ZonedDateTime date) {
+    this(uuid, answer, null, authorUuid, date);
+  }
+
+  private AnswerSnapshot(
+      final String uuid,
+      final String answer,
+      final String questionContent,
+      final String authorUuid,
+      final ZonedDateTime date) {
+    this.uuid = uuid;
+    this.answer = answer;
+    this.questionContent = questionContent;
+    this.authorUuid = authorUuid;
+    this.date = date;
+  }
+
+  public String getUuid() {
+    return uuid;
+  }
+
+  public String getAnswer() {
+    return answer;
+  }
+
+  public String getQuestionContent() {
+    return questionContent;
+  }
+
+  public String getAuthorUuid() {
+    return authorUuid;
+  }
+
+  public ZonedDateTime getDate() {
+    return date;
+  }
+}
@@ -0,0 +1,40 @@
+package com.upgrad.quora.service.snapshot;
+
+/**
+ * Immutable read-only view of a user, holding only what is shown next to the questions and answers
+ * the user posted. Unlike the user entity it never carries the password or the salt.
+ */
+public final class AuthorSnapshot {
+
+  private final String uuid;
+
+  private final String userName;
+
+  private final String firstName;
+
+  private final String lastName;
+
+  public AuthorSnapshot(
+      final String uuid, final String userName, final String firstName, final String lastName) {
+    this.uuid = uuid;
+    this.userName = userName;
+    this.firstName = firstName;
+    this.lastName = lastName;
+  }
+
+  public String getUuid() {
+    return uuid;
+  }
+
+  public String getUserName() {
+    return userName;
+  }
+
+  public String getFirstName() {
+    return firstName;
+  }
+
+  public String getLastName() {
+    return lastName;
+  }
+}
@@ -0,0 +1,65 @@
+package com.upgrad.quora.service.snapshot;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Immutable view of what identifies a question and does not change as it gets answered: its DB id,
+ * content, author and the time it was posted. Unlike {@link QuestionSnapshot} it holds neither the
+ * answer count nor the last activity, so it only goes out of date when the question is edited or
+ * deleted, which makes it the value cached by {@link com.upgrad.quora.service.cache.QuestionCache}.
+ */
+public final class QuestionDetails {
+
+  private final Integer id;
+
+  private final String uuid;
+
+  private final String content;
+
+  private final String authorUuid;
+
+  private final ZonedDateTime date;
+
+  public QuestionDetails(
+      final Integer id,
+      final String uuid,
+      final String content,
+      final String authorUuid,
+      final ZonedDateTime date) {
+    this.id = id;
+    this.uuid = uuid;
+    this.content = content;
+    this.authorUuid = authorUuid;
+    this.date = date;
+  }
+
+  /**
+   * Gets a copy of the question with another content.
+   *
+   * @param newContent content of the copy.
+   * @return the question with the new content.
+   */
+  public QuestionDetails withContent(final String newContent) {
+    return new QuestionDetails(id, uuid, newContent, authorUuid, date);
+  }
+
+  public Integer getId() {
+    return id;
+  }
+
+  public String getUuid() {
+    return uuid;
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  public String getAuthorUuid() {
+    return authorUuid;
+  }
+
+  public ZonedDateTime getDate() {
+    return date;
+  }
+}
@@ -0,0 +1,71 @@
+package com.upgrad.quora.service.snapshot;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Immutable read-only view of a question, holding only what is shown when listing questions. Being
+ * a plain value rather than a managed entity, it is never tracked by the persistence context and can
+ * be shared between threads. The author and the time the question was posted are only filled in
+ * when the question is read for its thread.
+ */
+public final class QuestionSnapshot {
+
+  private final String uuid;
+
+  private final String content;
+
+  private final Integer answerCount;
+
+  private final ZonedDateTime lastActivityAt;
+
+  private final String authorUuid;
+
+  private final ZonedDateTime date;
+
+  public QuestionSnapshot(
+      final String uuid,
+      final String content,
+      final Integer answerCount,
+      final ZonedDateTime lastActivityAt) {
+    this(uuid, content, answerCount, lastActivityAt, null, null);
+  }
+
+  public QuestionSnapshot(
+      final String uuid,
+      final String content,
+      final Integer answerCount,
+      final ZonedDateTime lastActivityAt,
+      final String authorUuid,
+      final ZonedDateTime date) {
+    this.uuid = uuid;
+    this.content = content;
+    this.answerCount = answerCount;
+    this.lastActivityAt = lastActivityAt;
+    this.authorUuid = authorUuid;
+    this.date = date;
+  }
+
+  public String getUuid() {
+    return uuid;
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  public Integer getAnswerCount() {
+    return answerCount;
+  }
+
+  public ZonedDateTime getLastActivityAt() {
+    return lastActivityAt;
+  }
+
+  public String getAuthorUuid() {
+    return authorUuid;
+  }
+
+  public ZonedDateTime getDate() {
+    return date;
+  }
+}
@@ -0,0 +1,40 @@
+package com.upgrad.quora.service.snapshot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable read-only view of a question along with a page of its answers and the authors of both,
+ * each author being included once however many of the answers they posted.
+ */
+public final class QuestionThread {
+
+  private final QuestionSnapshot question;
+
+  private final List<AnswerSnapshot> answers;
+
+  private final Map<String, AuthorSnapshot> authors;
+
+  public QuestionThread(
+      final QuestionSnapshot question,
+      final List<AnswerSnapshot> answers,
+      final Map<String, AuthorSnapshot> authors) {
+    this.question = question;
+    this.answers = answers;
+    this.authors = authors;
+  }
+
+  public QuestionSnapshot getQuestion() {
+    return question;
+  }
+
+  /** @return the answers on the page, oldest first. */
+  public List<AnswerSnapshot> getAnswers() {
+    return answers;
+  }
+
+  /** @return map of uuid to the author for every author of the question and the answers. */
+  public Map<String, AuthorSnapshot> getAuthors() {
+    return authors;
+  }
+}
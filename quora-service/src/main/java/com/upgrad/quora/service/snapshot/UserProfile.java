@@ -0,0 +1,84 @@
+package com.upgrad.quora.service.snapshot;
+
+/**
+ * Immutable view of the profile of a user, holding what is shown of the user by the profile
+ * endpoints and leaving out the password, salt and role, so it can be cached and shared between
+ * threads without exposing the credentials of the user.
+ */
+public final class UserProfile {
+
+  private final String uuid;
+
+  private final String firstName;
+
+  private final String lastName;
+
+  private final String userName;
+
+  private final String email;
+
+  private final String country;
+
+  private final String aboutMe;
+
+  private final String dob;
+
+  private final String contactNumber;
+
+  public UserProfile(
+      final String uuid,
+      final String firstName,
+      final String lastName,
+      final String userName,
+      final String email,
+      final String country,
+      final String aboutMe,
+      final String dob,
+      final String contactNumber) {
+    this.uuid = uuid;
+    this.firstName = firstName;
+    this.lastName = lastName;
+    this.userName = userName;
+    this.email = email;
+    this.country = country;
+    this.aboutMe = aboutMe;
+    this.dob = dob;
+    this.contactNumber = contactNumber;
+  }
+
+  public String getUuid() {
+    return uuid;
+  }
+
+  public String getFirstName() {
+    return firstName;
+  }
+
+  public String getLastName() {
+    return lastName;
+  }
+
+  public String getUserName() {
+    return userName;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public String getCountry() {
+    return country;
+  }
+
+  public String getAboutMe() {
+    return aboutMe;
+  }
+
+  public String getDob() {
+    return dob;
+  }
+
+  public String getContactNumber() {
+    return contactNumber;
+  }
+}